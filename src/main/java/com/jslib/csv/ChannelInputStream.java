@@ -0,0 +1,61 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream for a region of a file channel, using positional reads. Channel position is not changed and channel is
+ * not closed when this stream is closed, so that the same channel can be shared by many streams.
+ *
+ * @author Iulian Rotaru
+ */
+final class ChannelInputStream extends InputStream
+{
+  private final FileChannel channel;
+  private final long limit;
+  /** Buffer reused by single byte read. */
+  private final byte[] singleByte = new byte[1];
+  private long position;
+
+  /**
+   * Create input stream for file channel region.
+   *
+   * @param channel file channel,
+   * @param position region start position, inclusive,
+   * @param limit region end position, exclusive.
+   */
+  public ChannelInputStream(FileChannel channel, long position, long limit)
+  {
+    this.channel = channel;
+    this.position = position;
+    this.limit = limit;
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] bytes, int offset, int length) throws IOException
+  {
+    if(position >= limit) {
+      return -1;
+    }
+    length = (int)Math.min(length, limit - position);
+    int count = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+    if(count > 0) {
+      position += count;
+    }
+    return count;
+  }
+
+  @Override
+  public int available()
+  {
+    return (int)Math.min(Integer.MAX_VALUE, limit - position);
+  }
+}
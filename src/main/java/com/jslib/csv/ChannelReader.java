@@ -0,0 +1,172 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Characters reader decoding a file channel with positional reads, that can be moved to another byte position without
+ * allocating new buffers, see {@link #position(long)}. Replaces the buffered reader, input stream reader and input
+ * stream stack when the same file is read from many positions, e.g. on index lookups. As input stream reader does,
+ * malformed and unmappable bytes are replaced with decoder replacement.
+ * <p>
+ * Mark is supported with a read ahead limit smaller than buffer size. Channel position is not changed and channel
+ * is not closed when this reader is closed, so that the same channel can be shared.
+ *
+ * @author Iulian Rotaru
+ */
+final class ChannelReader extends Reader
+{
+  /** Bytes and characters buffers size. */
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private final FileChannel channel;
+  private final Charset charset;
+  private final CharsetDecoder decoder;
+  /** Bytes read from channel and not yet decoded, on read mode. */
+  private final ByteBuffer bytes;
+  /** Decoded characters, on read mode. */
+  private final CharBuffer chars;
+
+  /** Channel position of the next bytes read. */
+  private long position;
+  /** End of channel reached and decoder flushed. */
+  private boolean eof;
+  /** Marked index on characters buffer, -1 if not marked. */
+  private int mark;
+  private int markLimit;
+
+  /**
+   * Create reader for file channel, positioned at channel start.
+   *
+   * @param channel file channel,
+   * @param charset charset used to decode channel bytes.
+   */
+  public ChannelReader(FileChannel channel, Charset charset)
+  {
+    this.channel = channel;
+    this.charset = charset;
+    this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    this.chars = CharBuffer.allocate(BUFFER_SIZE);
+    position(0);
+  }
+
+  public Charset charset()
+  {
+    return charset;
+  }
+
+  /**
+   * Move reader to given byte position, discarding buffered bytes and characters and mark, if any. Position should be
+   * on a character boundary.
+   *
+   * @param position channel byte position.
+   */
+  public void position(long position)
+  {
+    this.position = position;
+    this.eof = false;
+    this.mark = -1;
+    bytes.clear().flip();
+    chars.clear().flip();
+    decoder.reset();
+  }
+
+  @Override
+  public int read() throws IOException
+  {
+    if(!chars.hasRemaining() && !fill()) {
+      return -1;
+    }
+    return chars.get();
+  }
+
+  @Override
+  public int read(char[] buffer, int offset, int length) throws IOException
+  {
+    if(length == 0) {
+      return 0;
+    }
+    if(!chars.hasRemaining() && !fill()) {
+      return -1;
+    }
+    length = Math.min(length, chars.remaining());
+    chars.get(buffer, offset, length);
+    return length;
+  }
+
+  @Override
+  public boolean markSupported()
+  {
+    return true;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) throws IOException
+  {
+    if(readAheadLimit >= BUFFER_SIZE) {
+      throw new IOException("Read ahead limit exceeds buffer size.");
+    }
+    mark = chars.position();
+    markLimit = readAheadLimit;
+  }
+
+  @Override
+  public void reset() throws IOException
+  {
+    if(mark == -1) {
+      throw new IOException("Stream not marked.");
+    }
+    chars.position(mark);
+  }
+
+  @Override
+  public void close()
+  {
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Decode next characters into empty characters buffer, keeping marked characters, if any. Return false on end of
+   * channel.
+   */
+  private boolean fill() throws IOException
+  {
+    if(mark != -1 && chars.position() - mark > markLimit) {
+      mark = -1;
+    }
+    int start = mark != -1 ? mark : chars.position();
+    int kept = chars.position() - start;
+    chars.position(start);
+    chars.compact();
+    if(mark != -1) {
+      mark = 0;
+    }
+
+    while(chars.position() == kept && !eof) {
+      bytes.compact();
+      int count = channel.read(bytes, position);
+      bytes.flip();
+      if(count == -1) {
+        eof = true;
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+      }
+      else {
+        position += count;
+        decoder.decode(bytes, chars, false);
+      }
+    }
+
+    chars.flip();
+    chars.position(kept);
+    return chars.hasRemaining();
+  }
+}
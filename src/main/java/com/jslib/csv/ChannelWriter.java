@@ -0,0 +1,305 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Characters writer encoding straight into a reusable direct byte buffer that is written to a byte channel when full,
+ * replacing the buffered writer, output stream writer and output stream stack. UTF-8, US-ASCII and ISO-8859-1 are
+ * encoded by this class; other charsets use a charset encoder. As output stream writer does, malformed and unmappable
+ * characters are replaced with charset replacement, question mark for encoded charsets.
+ * <p>
+ * If channel is a file channel, written data can be forced to storage device on flush or on close, see
+ * {@link CsvFactoryImpl.ForcePolicy}. Channel is closed when this writer is closed.
+ *
+ * @author Iulian Rotaru
+ */
+final class ChannelWriter extends Writer
+{
+  /** Direct buffer size, in bytes. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** Maximum bytes per encoded character, including a surrogate pair, for charsets encoded by this class. */
+  private static final int MAX_CHAR_BYTES = 4;
+
+  private enum Encoding
+  {
+    UTF_8, US_ASCII, ISO_8859_1, ENCODER
+  }
+
+  private final WritableByteChannel channel;
+  private final CsvFactoryImpl.ForcePolicy force;
+  private final ByteBuffer buffer;
+  private final Encoding encoding;
+  /** Charset encoder, null if charset is encoded by this class. */
+  private final CharsetEncoder encoder;
+  /** Characters left by encoder at previous write end, e.g. high surrogate; null if not using encoder. */
+  private final CharBuffer pending;
+
+  /** High surrogate from previous UTF-8 write waiting for its low surrogate, zero if none. */
+  private char highSurrogate;
+  /** Number of bytes written to channel so far, not including bytes still on buffer. */
+  private long written;
+  private boolean closed;
+
+  /**
+   * Create writer for given channel and charset.
+   *
+   * @param channel target byte channel,
+   * @param charset characters encoding,
+   * @param force force policy, used only if channel is a file channel.
+   */
+  public ChannelWriter(WritableByteChannel channel, Charset charset, CsvFactoryImpl.ForcePolicy force)
+  {
+    this.channel = channel;
+    this.force = force;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    if(charset.equals(StandardCharsets.UTF_8)) {
+      encoding = Encoding.UTF_8;
+    }
+    else if(charset.equals(StandardCharsets.US_ASCII)) {
+      encoding = Encoding.US_ASCII;
+    }
+    else if(charset.equals(StandardCharsets.ISO_8859_1)) {
+      encoding = Encoding.ISO_8859_1;
+    }
+    else {
+      encoding = Encoding.ENCODER;
+    }
+
+    if(encoding == Encoding.ENCODER) {
+      encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+      pending = CharBuffer.allocate(2);
+      pending.flip();
+    }
+    else {
+      encoder = null;
+      pending = null;
+    }
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) throws IOException
+  {
+    ensureOpen();
+    switch(encoding) {
+    case UTF_8:
+      encodeUTF8(chars, offset, length);
+      break;
+
+    case US_ASCII:
+      encodeSingleByte(chars, offset, length, (char)0x7F);
+      break;
+
+    case ISO_8859_1:
+      encodeSingleByte(chars, offset, length, (char)0xFF);
+      break;
+
+    case ENCODER:
+      encode(chars, offset, length);
+      break;
+    }
+  }
+
+  @Override
+  public void write(String string, int offset, int length) throws IOException
+  {
+    char[] chars = new char[length];
+    string.getChars(offset, offset + length, chars, 0);
+    write(chars, 0, length);
+  }
+
+  @Override
+  public void write(int c) throws IOException
+  {
+    write(new char[] { (char)c }, 0, 1);
+  }
+
+  /**
+   * Get the number of encoded bytes, written to channel or still on buffer. Characters held by a charset encoder, at
+   * most an incomplete surrogate pair, are not counted.
+   *
+   * @return encoded bytes count.
+   */
+  long size()
+  {
+    return written + buffer.position();
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    ensureOpen();
+    drain();
+    if(force == CsvFactoryImpl.ForcePolicy.FLUSH) {
+      force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if(highSurrogate != 0) {
+        // stream ends with unpaired high surrogate
+        put((byte)'?');
+        highSurrogate = 0;
+      }
+      if(encoder != null) {
+        encode(pending, true);
+        while(encoder.flush(buffer).isOverflow()) {
+          drain();
+        }
+      }
+      drain();
+      if(force != CsvFactoryImpl.ForcePolicy.NONE) {
+        force();
+      }
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private void encodeUTF8(char[] chars, int offset, int length) throws IOException
+  {
+    int end = offset + length;
+    for(int i = offset; i < end; ++i) {
+      if(buffer.remaining() < MAX_CHAR_BYTES) {
+        drain();
+      }
+      char c = chars[i];
+
+      if(highSurrogate != 0) {
+        char high = highSurrogate;
+        highSurrogate = 0;
+        if(Character.isLowSurrogate(c)) {
+          int codePoint = Character.toCodePoint(high, c);
+          buffer.put((byte)(0xF0 | (codePoint >> 18)));
+          buffer.put((byte)(0x80 | ((codePoint >> 12) & 0x3F)));
+          buffer.put((byte)(0x80 | ((codePoint >> 6) & 0x3F)));
+          buffer.put((byte)(0x80 | (codePoint & 0x3F)));
+          continue;
+        }
+        // unpaired high surrogate is replaced and current character encoded as usual
+        buffer.put((byte)'?');
+      }
+
+      if(c < 0x80) {
+        buffer.put((byte)c);
+      }
+      else if(c < 0x800) {
+        buffer.put((byte)(0xC0 | (c >> 6)));
+        buffer.put((byte)(0x80 | (c & 0x3F)));
+      }
+      else if(Character.isHighSurrogate(c)) {
+        highSurrogate = c;
+      }
+      else if(Character.isLowSurrogate(c)) {
+        buffer.put((byte)'?');
+      }
+      else {
+        buffer.put((byte)(0xE0 | (c >> 12)));
+        buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte)(0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  private void encodeSingleByte(char[] chars, int offset, int length, char max) throws IOException
+  {
+    int end = offset + length;
+    for(int i = offset; i < end; ++i) {
+      if(!buffer.hasRemaining()) {
+        drain();
+      }
+      char c = chars[i];
+      if(c <= max) {
+        buffer.put((byte)c);
+        continue;
+      }
+      // a surrogate pair is a single unmappable character
+      if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+        ++i;
+      }
+      buffer.put((byte)'?');
+    }
+  }
+
+  private void encode(char[] chars, int offset, int length) throws IOException
+  {
+    CharBuffer input;
+    if(pending.hasRemaining()) {
+      // characters left by previous write, e.g. a surrogate pair split between writes, are encoded first
+      input = CharBuffer.allocate(pending.remaining() + length);
+      input.put(pending).put(chars, offset, length).flip();
+    }
+    else {
+      input = CharBuffer.wrap(chars, offset, length);
+    }
+    encode(input, false);
+
+    // encoder leaves on input incomplete characters, at most a high surrogate
+    pending.clear();
+    pending.put(input);
+    pending.flip();
+  }
+
+  private void encode(CharBuffer input, boolean endOfInput) throws IOException
+  {
+    for(;;) {
+      CoderResult result = encoder.encode(input, buffer, endOfInput);
+      if(result.isOverflow()) {
+        drain();
+        continue;
+      }
+      break;
+    }
+  }
+
+  private void put(byte b) throws IOException
+  {
+    if(!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put(b);
+  }
+
+  private void drain() throws IOException
+  {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      written += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void force() throws IOException
+  {
+    if(channel instanceof FileChannel) {
+      ((FileChannel)channel).force(false);
+    }
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if(closed) {
+      throw new IOException("Channel writer closed.");
+    }
+  }
+}
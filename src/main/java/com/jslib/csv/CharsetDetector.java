@@ -0,0 +1,207 @@
+package com.jslib.csv;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.jslib.api.csv.CsvException;
+
+/**
+ * Character encoding detection for CSV bytes stream, from byte order mark and, optionally, from a stream head sample.
+ * UTF-8, UTF-16 and UTF-32 byte order marks are recognized; if found, byte order mark overrides configured charset and
+ * is consumed from stream, so that it does not leak into the first header name or value.
+ * <p>
+ * If there is no byte order mark and sampling is enabled, stream head is tested for UTF-8: if configured charset is a
+ * single byte one and sample is valid UTF-8 with at least one multi-byte sequence, UTF-8 is selected, otherwise
+ * configured charset is kept. Multi-byte UTF-8 sequences are very unlikely to occur by chance in single byte encoded
+ * text, so a valid sample with multi-byte sequences is a strong hint.
+ * <p>
+ * Detection reads stream head on a buffered stream and resets it, so that no bytes are lost, except the byte order
+ * mark.
+ *
+ * @author Iulian Rotaru
+ */
+final class CharsetDetector
+{
+  /** Maximum bytes count of stream head sample used for UTF-8 detection. */
+  private static final int SAMPLE_SIZE = 64 * 1024;
+  /** Maximum byte order mark length. */
+  private static final int BOM_SIZE = 4;
+
+  private final InputStream stream;
+  private final Charset charset;
+  private final int bomLength;
+
+  private CharsetDetector(InputStream stream, Charset charset, int bomLength)
+  {
+    this.stream = stream;
+    this.charset = charset;
+    this.bomLength = bomLength;
+  }
+
+  /**
+   * Detect charset for given bytes stream. Returned detector stream should be used instead of given stream.
+   *
+   * @param stream bytes stream positioned at CSV stream start,
+   * @param configured charset configured on CSV format,
+   * @param sample sample stream head for UTF-8 detection.
+   * @return charset detector.
+   * @throws CsvException if reading stream head fails.
+   */
+  static CharsetDetector detect(InputStream stream, Charset configured, boolean sample)
+  {
+    BufferedInputStream bufferedStream = new BufferedInputStream(stream, SAMPLE_SIZE);
+    try {
+      byte[] head = new byte[sample ? SAMPLE_SIZE : BOM_SIZE];
+      bufferedStream.mark(head.length);
+      int length = read(bufferedStream, head);
+      bufferedStream.reset();
+
+      int bomLength = 0;
+      Charset charset = configured;
+      if(startsWith(head, length, 0xEF, 0xBB, 0xBF)) {
+        charset = StandardCharsets.UTF_8;
+        bomLength = 3;
+      }
+      else if(startsWith(head, length, 0x00, 0x00, 0xFE, 0xFF)) {
+        charset = Charset.forName("UTF-32BE");
+        bomLength = 4;
+      }
+      else if(startsWith(head, length, 0xFF, 0xFE, 0x00, 0x00)) {
+        charset = Charset.forName("UTF-32LE");
+        bomLength = 4;
+      }
+      else if(startsWith(head, length, 0xFE, 0xFF)) {
+        charset = StandardCharsets.UTF_16BE;
+        bomLength = 2;
+      }
+      else if(startsWith(head, length, 0xFF, 0xFE)) {
+        charset = StandardCharsets.UTF_16LE;
+        bomLength = 2;
+      }
+      else if(sample && isSingleByte(configured) && isUTF8(head, length)) {
+        charset = StandardCharsets.UTF_8;
+      }
+
+      if(bomLength > 0) {
+        bufferedStream.skip(bomLength);
+      }
+      return new CharsetDetector(bufferedStream, charset, bomLength);
+    }
+    catch(IOException e) {
+      throw new CsvException("Cannot read CSV stream head. Root cause: %s", e.getMessage());
+    }
+  }
+
+  /**
+   * Create detector with configured charset, without reading stream, for streams not positioned at CSV stream start.
+   *
+   * @param stream bytes stream,
+   * @param configured charset configured on CSV format.
+   * @return charset detector.
+   */
+  static CharsetDetector none(InputStream stream, Charset configured)
+  {
+    return new CharsetDetector(stream, configured, 0);
+  }
+
+  public InputStream stream()
+  {
+    return stream;
+  }
+
+  public Charset charset()
+  {
+    return charset;
+  }
+
+  /**
+   * Get byte order mark length, that is, the byte offset of the first character. Zero if there is no byte order mark.
+   *
+   * @return byte order mark length.
+   */
+  public int bomLength()
+  {
+    return bomLength;
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /** Read until buffer is full or end of stream, returning bytes count. */
+  private static int read(InputStream stream, byte[] buffer) throws IOException
+  {
+    int length = 0;
+    while(length < buffer.length) {
+      int count = stream.read(buffer, length, buffer.length - length);
+      if(count == -1) {
+        break;
+      }
+      length += count;
+    }
+    return length;
+  }
+
+  private static boolean startsWith(byte[] head, int length, int... bom)
+  {
+    if(length < bom.length) {
+      return false;
+    }
+    for(int i = 0; i < bom.length; ++i) {
+      if((head[i] & 0xFF) != bom[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isSingleByte(Charset charset)
+  {
+    return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0F;
+  }
+
+  /**
+   * Test if sample is valid UTF-8 with at least one multi-byte sequence. A sequence truncated by sample end is
+   * accepted. Overlong encodings and surrogates are not checked since they do not occur on single byte encoded text
+   * either.
+   */
+  static boolean isUTF8(byte[] sample, int length)
+  {
+    boolean multiByte = false;
+    int i = 0;
+    while(i < length) {
+      int b = sample[i] & 0xFF;
+      int continuations;
+      if(b < 0x80) {
+        ++i;
+        continue;
+      }
+      if(b >= 0xC2 && b <= 0xDF) {
+        continuations = 1;
+      }
+      else if(b >= 0xE0 && b <= 0xEF) {
+        continuations = 2;
+      }
+      else if(b >= 0xF0 && b <= 0xF4) {
+        continuations = 3;
+      }
+      else {
+        return false;
+      }
+
+      for(int j = 1; j <= continuations; ++j) {
+        if(i + j == length) {
+          // sequence truncated by sample end
+          return multiByte;
+        }
+        if((sample[i + j] & 0xC0) != 0x80) {
+          return false;
+        }
+      }
+      multiByte = true;
+      i += continuations + 1;
+    }
+    return multiByte;
+  }
+}
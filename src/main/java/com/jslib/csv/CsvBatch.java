@@ -0,0 +1,346 @@
+package com.jslib.csv;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvException;
+
+/**
+ * Columnar batch of CSV records. Every descriptor column is stored on a vector with primitive values, if column field
+ * type is numeric or boolean, or on a dictionary encoded vector for string fields. Vector type is selected by
+ * {@link Type#of(Class)}. Null values are recorded on a bitmap per column; for null values vector item is left to the
+ * type default, that is, zero, false or null.
+ * <p>
+ * Batch instance is reused by {@link CsvBatchReader}: vectors are allocated once, with batch capacity, and overwritten
+ * on every new batch. Only items with index less than {@link #size()} are valid. Strings dictionaries are cleared on
+ * every new batch too, so that memory is bounded by batch capacity even for high cardinality columns; as a consequence
+ * strings codes are valid only within the batch that created them.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvBatch
+{
+  private final List<CsvColumn> columns;
+  private final Type[] types;
+  /** Column vectors, with type determined by column type: int[], long[], double[], boolean[] or Object[]. */
+  private final Object[] vectors;
+  /** Strings dictionaries, null for non string columns. */
+  private final Dictionary[] dictionaries;
+  /** Null bitmap per column, one bit per record. */
+  private final long[][] nulls;
+  private final int capacity;
+  private int size;
+
+  CsvBatch(List<CsvColumn> columns, Type[] types, int capacity)
+  {
+    this.columns = columns;
+    this.types = types;
+    this.vectors = new Object[types.length];
+    this.dictionaries = new Dictionary[types.length];
+    this.nulls = new long[types.length][(capacity + 63) >>> 6];
+    this.capacity = capacity;
+
+    for(int i = 0; i < types.length; ++i) {
+      switch(types[i]) {
+      case INT:
+      case STRING:
+        vectors[i] = new int[capacity];
+        break;
+
+      case LONG:
+        vectors[i] = new long[capacity];
+        break;
+
+      case DOUBLE:
+        vectors[i] = new double[capacity];
+        break;
+
+      case BOOLEAN:
+        vectors[i] = new boolean[capacity];
+        break;
+
+      case OBJECT:
+        vectors[i] = new Object[capacity];
+        break;
+      }
+      if(types[i] == Type.STRING) {
+        dictionaries[i] = new Dictionary();
+      }
+    }
+  }
+
+  /**
+   * Get the number of records stored on this batch.
+   *
+   * @return batch records count.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Get the maximum number of records this batch can store.
+   *
+   * @return batch capacity.
+   */
+  public int capacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Get batch columns, in descriptor order.
+   *
+   * @return batch columns.
+   */
+  public List<CsvColumn> columns()
+  {
+    return Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * Get index of the column bound to given field.
+   *
+   * @param fieldName field name.
+   * @return column index.
+   * @throws CsvException if there is no column bound to requested field.
+   */
+  public int columnIndex(String fieldName)
+  {
+    for(int i = 0; i < columns.size(); ++i) {
+      if(columns.get(i).fieldName().equals(fieldName)) {
+        return i;
+      }
+    }
+    throw new CsvException("Missing column for field |%s|.", fieldName);
+  }
+
+  public Type type(int column)
+  {
+    return types[column];
+  }
+
+  public int[] ints(int column)
+  {
+    return (int[])vector(column, Type.INT);
+  }
+
+  public long[] longs(int column)
+  {
+    return (long[])vector(column, Type.LONG);
+  }
+
+  public double[] doubles(int column)
+  {
+    return (double[])vector(column, Type.DOUBLE);
+  }
+
+  public boolean[] booleans(int column)
+  {
+    return (boolean[])vector(column, Type.BOOLEAN);
+  }
+
+  public Object[] objects(int column)
+  {
+    return (Object[])vector(column, Type.OBJECT);
+  }
+
+  /**
+   * Get codes vector for a string column. Code is the index of the string value on column dictionary, see
+   * {@link #dictionary(int)}.
+   *
+   * @param column column index.
+   * @return string codes vector.
+   */
+  public int[] codes(int column)
+  {
+    return (int[])vector(column, Type.STRING);
+  }
+
+  /**
+   * Get dictionary for a string column. Returned list is a live view and is valid only until next batch is read.
+   *
+   * @param column column index.
+   * @return column strings dictionary.
+   */
+  public List<String> dictionary(int column)
+  {
+    vector(column, Type.STRING);
+    return Collections.unmodifiableList(dictionaries[column].values);
+  }
+
+  /**
+   * Convenient method to decode string value for given string column and record index.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return string value, possibly null.
+   */
+  public String string(int column, int row)
+  {
+    if(isNull(column, row)) {
+      return null;
+    }
+    return dictionaries[column].values.get(codes(column)[row]);
+  }
+
+  public boolean isNull(int column, int row)
+  {
+    return (nulls[column][row >>> 6] & (1L << row)) != 0;
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private Object vector(int column, Type type)
+  {
+    if(types[column] != type) {
+      throw new CsvException("Column |%s| type is |%s| not |%s|.", columns.get(column).fieldName(), types[column], type);
+    }
+    return vectors[column];
+  }
+
+  void clear()
+  {
+    size = 0;
+    for(long[] bitmap : nulls) {
+      Arrays.fill(bitmap, 0L);
+    }
+    for(Dictionary dictionary : dictionaries) {
+      if(dictionary != null) {
+        dictionary.clear();
+      }
+    }
+  }
+
+  void size(int size)
+  {
+    this.size = size;
+  }
+
+  void setInt(int column, int row, int value)
+  {
+    ((int[])vectors[column])[row] = value;
+  }
+
+  void setLong(int column, int row, long value)
+  {
+    ((long[])vectors[column])[row] = value;
+  }
+
+  void setDouble(int column, int row, double value)
+  {
+    ((double[])vectors[column])[row] = value;
+  }
+
+  void setBoolean(int column, int row, boolean value)
+  {
+    ((boolean[])vectors[column])[row] = value;
+  }
+
+  void setObject(int column, int row, Object value)
+  {
+    ((Object[])vectors[column])[row] = value;
+  }
+
+  void setString(int column, int row, String value)
+  {
+    ((int[])vectors[column])[row] = dictionaries[column].code(value);
+  }
+
+  void setNull(int column, int row)
+  {
+    nulls[column][row >>> 6] |= 1L << row;
+    switch(types[column]) {
+    case OBJECT:
+      ((Object[])vectors[column])[row] = null;
+      break;
+
+    case BOOLEAN:
+      ((boolean[])vectors[column])[row] = false;
+      break;
+
+    case LONG:
+      ((long[])vectors[column])[row] = 0L;
+      break;
+
+    case DOUBLE:
+      ((double[])vectors[column])[row] = 0.0;
+      break;
+
+    default:
+      ((int[])vectors[column])[row] = 0;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Column vector type.
+   *
+   * @author Iulian Rotaru
+   */
+  public enum Type
+  {
+    /** Integer values, including short and byte, stored on int[]. */
+    INT,
+    /** Long values stored on long[]. */
+    LONG,
+    /** Floating point values, including float, stored on double[]. */
+    DOUBLE,
+    /** Boolean values stored on boolean[]. */
+    BOOLEAN,
+    /** Dictionary encoded strings stored as int[] codes. */
+    STRING,
+    /** Any other type, stored on Object[]. */
+    OBJECT;
+
+    public static Type of(Class<?> type)
+    {
+      if(type == int.class || type == Integer.class || type == short.class || type == Short.class || type == byte.class || type == Byte.class) {
+        return INT;
+      }
+      if(type == long.class || type == Long.class) {
+        return LONG;
+      }
+      if(type == double.class || type == Double.class || type == float.class || type == Float.class) {
+        return DOUBLE;
+      }
+      if(type == boolean.class || type == Boolean.class) {
+        return BOOLEAN;
+      }
+      if(type == String.class) {
+        return STRING;
+      }
+      return OBJECT;
+    }
+  }
+
+  private static final class Dictionary
+  {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    public int code(String value)
+    {
+      Integer code = codes.get(value);
+      if(code == null) {
+        code = values.size();
+        codes.put(value, code);
+        values.add(value);
+      }
+      return code;
+    }
+
+    public void clear()
+    {
+      codes.clear();
+      values.clear();
+    }
+  }
+}
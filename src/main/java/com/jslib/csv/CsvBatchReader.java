@@ -0,0 +1,267 @@
+package com.jslib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.text.ParseException;
+import java.util.List;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvFormat;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.converter.Converter;
+import com.jslib.converter.ConverterException;
+import com.jslib.converter.ConverterRegistry;
+import com.jslib.util.Classes;
+import com.jslib.util.Params;
+
+/**
+ * Columnar CSV reader that fills batches of records into column vectors instead of creating an instance per record.
+ * Uses the same parser as {@link CsvReaderImpl} and the same descriptor configuration: columns, column formatters and
+ * CSV format, including null value and strict mode. Vector type for a column is selected from the type of the field
+ * bound to column, see {@link CsvBatch.Type#of(Class)}.
+ * <p>
+ * Column values are parsed by the same {@link CsvValueParser} used by {@link CsvReaderImpl}, that is, by column
+ * formatter if column has one, otherwise by direct parsing or converter, and the resulting object is stored on vector,
+ * unboxed if vector is primitive. Values out of the range of a <code>short</code> or <code>byte</code> field, stored on
+ * an <code>int</code> vector, are rejected. Rejected values are handled as by {@link CsvReaderImpl}, see
+ * {@link #rejectHandler(CsvRejectHandler)}, and are stored as null.
+ * <p>
+ * Returned batch is reused, that is, every {@link #next()} overwrites the batch returned by previous call.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvBatchReader<T> implements Closeable
+{
+  private static final Log log = LogFactory.getLog(CsvBatchReader.class);
+
+  private final Converter converter;
+  private final CsvReaderImpl<T> reader;
+  private final CsvDescriptor<T> descriptor;
+  private final CsvFormat format;
+  private final int batchSize;
+
+  /** Lazily created on first record since descriptor columns can be loaded from CSV header. */
+  private CsvBatch batch;
+  /** Types of the fields bound to columns. */
+  private Class<?>[] fieldTypes;
+  /** Column value parsers resolved on batch creation. */
+  private CsvValueParser[] parsers;
+
+  /**
+   * Create batch reader using character encoding configured in the CSV format from given CSV descriptor.
+   *
+   * @param descriptor CSV descriptor,
+   * @param stream bytes input stream,
+   * @param batchSize maximum number of records per batch.
+   */
+  public CsvBatchReader(CsvDescriptor<T> descriptor, InputStream stream, int batchSize)
+  {
+    this(descriptor, new CsvReaderImpl<>(descriptor, stream), batchSize);
+  }
+
+  /**
+   * Create batch reader for given characters stream.
+   *
+   * @param descriptor CSV descriptor,
+   * @param reader source characters stream,
+   * @param batchSize maximum number of records per batch.
+   */
+  public CsvBatchReader(CsvDescriptor<T> descriptor, Reader reader, int batchSize)
+  {
+    this(descriptor, new CsvReaderImpl<>(descriptor, reader), batchSize);
+  }
+
+  private CsvBatchReader(CsvDescriptor<T> descriptor, CsvReaderImpl<T> reader, int batchSize)
+  {
+    Params.GT(batchSize, 0, "Batch size");
+    log.trace("CsvBatchReader(CsvDescriptor<T>,CsvReaderImpl<T>,int)");
+    this.converter = ConverterRegistry.getConverter();
+    this.reader = reader;
+    this.descriptor = descriptor;
+    this.format = descriptor.format();
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Set handler for rejected values and records, see {@link CsvReaderImpl#rejectHandler(CsvRejectHandler)}.
+   *
+   * @param rejectHandler reject handler.
+   * @return this pointer.
+   */
+  public CsvBatchReader<T> rejectHandler(CsvRejectHandler rejectHandler)
+  {
+    reader.rejectHandler(rejectHandler);
+    return this;
+  }
+
+  /**
+   * Read next batch of records. Returned batch is filled with at most batch size records and is null if there are no
+   * more records on CSV stream.
+   *
+   * @return next batch of records or null at the end of CSV stream.
+   */
+  public CsvBatch next()
+  {
+    if(batch != null) {
+      batch.clear();
+    }
+
+    int row = 0;
+    while(row < batchSize && reader.hasNext()) {
+      if(batch == null) {
+        batch = createBatch();
+      }
+
+      List<String> values = reader.values();
+      if(values.size() != fieldTypes.length) {
+        reader.reject(-1, String.format("CSV values count |%d| does not match columns count |%d|.", values.size(), fieldTypes.length), null);
+      }
+
+      for(int column = 0; column < fieldTypes.length; ++column) {
+        if(column < values.size()) {
+          setValue(column, row, values.get(column));
+        }
+        else {
+          batch.setNull(column, row);
+        }
+      }
+      ++row;
+    }
+
+    if(row == 0) {
+      return null;
+    }
+    batch.size(row);
+    return batch;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    reader.close();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private CsvBatch createBatch()
+  {
+    List<CsvColumn> columns = descriptor.columns();
+    CsvBatch.Type[] types = new CsvBatch.Type[columns.size()];
+    fieldTypes = new Class<?>[columns.size()];
+    parsers = new CsvValueParser[columns.size()];
+
+    for(int i = 0; i < columns.size(); ++i) {
+      CsvColumn column = columns.get(i);
+      Field field = Classes.getOptionalFieldEx(descriptor.type(), column.fieldName());
+      if(field == null) {
+        String message = String.format("Missing field |%s#%s|", descriptor.type(), column.fieldName());
+        log.warn(message);
+        if(format.strict()) {
+          throw new CsvException(message);
+        }
+        // keep column as raw strings if there is no field to get type from
+        fieldTypes[i] = String.class;
+      }
+      else {
+        fieldTypes[i] = field.getType();
+      }
+      types[i] = CsvBatch.Type.of(fieldTypes[i]);
+      parsers[i] = CsvValueParser.of(column, fieldTypes[i], converter);
+    }
+
+    return new CsvBatch(columns, types, batchSize);
+  }
+
+  private void setValue(int column, int row, String columnValue)
+  {
+    if(CsvReaderImpl.isNull(columnValue, format.nullValue())) {
+      batch.setNull(column, row);
+      return;
+    }
+
+    try {
+      setObject(column, row, batch.type(column), parsers[column].parse(columnValue));
+      return;
+    }
+    catch(ParseException | ClassCastException e) {
+      reject(column, e.getMessage(), e);
+    }
+    catch(ConverterException e) {
+      reject(column, String.valueOf(e.getCause() != null ? e.getCause() : e), e);
+    }
+    batch.setNull(column, row);
+  }
+
+  private void reject(int column, String cause, Throwable exception)
+  {
+    reader.reject(column, String.format("Could not set column |%s| value. Root cause: %s", descriptor.columns().get(column).fieldName(), cause), exception);
+  }
+
+  private void setObject(int column, int row, CsvBatch.Type type, Object value)
+  {
+    if(value == null) {
+      batch.setNull(column, row);
+      return;
+    }
+
+    switch(type) {
+    case INT:
+      long longValue = ((Number)value).longValue();
+      if(longValue < minValue(fieldTypes[column]) || longValue > maxValue(fieldTypes[column])) {
+        reject(column, String.format("Value |%s| out of |%s| range.", value, fieldTypes[column]), null);
+        batch.setNull(column, row);
+        break;
+      }
+      batch.setInt(column, row, (int)longValue);
+      break;
+
+    case LONG:
+      batch.setLong(column, row, ((Number)value).longValue());
+      break;
+
+    case DOUBLE:
+      batch.setDouble(column, row, ((Number)value).doubleValue());
+      break;
+
+    case BOOLEAN:
+      batch.setBoolean(column, row, (Boolean)value);
+      break;
+
+    case STRING:
+      batch.setString(column, row, (String)value);
+      break;
+
+    case OBJECT:
+      batch.setObject(column, row, value);
+      break;
+    }
+  }
+
+  private static long minValue(Class<?> type)
+  {
+    if(type == byte.class || type == Byte.class) {
+      return Byte.MIN_VALUE;
+    }
+    if(type == short.class || type == Short.class) {
+      return Short.MIN_VALUE;
+    }
+    return Integer.MIN_VALUE;
+  }
+
+  private static long maxValue(Class<?> type)
+  {
+    if(type == byte.class || type == Byte.class) {
+      return Byte.MAX_VALUE;
+    }
+    if(type == short.class || type == Short.class) {
+      return Short.MAX_VALUE;
+    }
+    return Integer.MAX_VALUE;
+  }
+}
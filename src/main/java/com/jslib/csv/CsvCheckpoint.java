@@ -0,0 +1,154 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.util.Params;
+
+/**
+ * Resume point for reading a CSV file, see {@link CsvTailReader#checkpoint()}. Checkpoint has the byte offset of the
+ * next record to read and the CSV header values, if header is enabled and was already processed, so that descriptor
+ * columns can be loaded on resume without reading header again. Checkpoint also has the charset used to decode CSV
+ * file, that could be detected from a byte order mark and is not found on resume offset.
+ * <p>
+ * Checkpoint is immutable and can be saved to and loaded from a properties file. Save is atomic, that is, a process
+ * crash during save leaves the previous checkpoint file intact.
+ *
+ * @author Iulian Rotaru
+ */
+public final class CsvCheckpoint
+{
+  private static final String OFFSET = "offset";
+  private static final String HEADER_SIZE = "header.size";
+  private static final String HEADER_VALUE = "header.%d";
+  private static final String CHARSET = "charset";
+
+  private final long offset;
+  private final List<String> header;
+  private final Charset charset;
+
+  /**
+   * Create checkpoint instance using format charset.
+   *
+   * @param offset byte offset of the next record to read,
+   * @param header CSV header values, null if header is not enabled or not processed.
+   */
+  public CsvCheckpoint(long offset, List<String> header)
+  {
+    this(offset, header, null);
+  }
+
+  /**
+   * Create checkpoint instance.
+   *
+   * @param offset byte offset of the next record to read,
+   * @param header CSV header values, null if header is not enabled or not processed,
+   * @param charset CSV file charset, null to use format charset.
+   */
+  public CsvCheckpoint(long offset, List<String> header, Charset charset)
+  {
+    Params.GTE(offset, 0, "Offset");
+    this.offset = offset;
+    this.header = header != null ? Collections.unmodifiableList(new ArrayList<>(header)) : null;
+    this.charset = charset;
+  }
+
+  public long offset()
+  {
+    return offset;
+  }
+
+  public List<String> header()
+  {
+    return header;
+  }
+
+  /**
+   * Get CSV file charset or null if format charset should be used.
+   *
+   * @return CSV file charset, possibly null.
+   */
+  public Charset charset()
+  {
+    return charset;
+  }
+
+  /**
+   * Save this checkpoint to given file. Checkpoint is written to a temporary file that is moved atomically over target
+   * file.
+   *
+   * @param file checkpoint file.
+   * @throws IOException if file writing fails.
+   */
+  public void save(Path file) throws IOException
+  {
+    Properties properties = new Properties();
+    properties.setProperty(OFFSET, Long.toString(offset));
+    if(charset != null) {
+      properties.setProperty(CHARSET, charset.name());
+    }
+    if(header != null) {
+      properties.setProperty(HEADER_SIZE, Integer.toString(header.size()));
+      for(int i = 0; i < header.size(); ++i) {
+        properties.setProperty(String.format(HEADER_VALUE, i), header.get(i));
+      }
+    }
+
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (OutputStream stream = Files.newOutputStream(temp)) {
+      properties.store(stream, null);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Load checkpoint from file created by {@link #save(Path)}.
+   *
+   * @param file checkpoint file.
+   * @return checkpoint instance.
+   * @throws IOException if file reading fails.
+   * @throws CsvException if file content is not a valid checkpoint.
+   */
+  public static CsvCheckpoint load(Path file) throws IOException
+  {
+    Properties properties = new Properties();
+    try (InputStream stream = Files.newInputStream(file)) {
+      properties.load(stream);
+    }
+
+    try {
+      long offset = Long.parseLong(properties.getProperty(OFFSET));
+      List<String> header = null;
+      if(properties.containsKey(HEADER_SIZE)) {
+        int headerSize = Integer.parseInt(properties.getProperty(HEADER_SIZE));
+        header = new ArrayList<>(headerSize);
+        for(int i = 0; i < headerSize; ++i) {
+          header.add(properties.getProperty(String.format(HEADER_VALUE, i), ""));
+        }
+      }
+      Charset charset = properties.containsKey(CHARSET) ? Charset.forName(properties.getProperty(CHARSET)) : null;
+      return new CsvCheckpoint(offset, header, charset);
+    }
+    catch(NumberFormatException | IllegalCharsetNameException | UnsupportedCharsetException e) {
+      throw new CsvException("Invalid CSV checkpoint file |%s|. Root cause: %s", file, e.getMessage());
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d:%s:%s", offset, header, charset);
+  }
+}
@@ -0,0 +1,46 @@
+package com.jslib.csv;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark the constructor used to create records of a descriptor type, mainly for immutable value types. Column values
+ * are converted into constructor arguments by parameter name; parameter names should be the names of the fields they
+ * initialize, since fields are still used to find value types and to get values when writing.
+ * <p>
+ * Parameter names are listed by annotation value, in parameters order. If value is empty, parameter names are taken
+ * from class file, if compiled with <code>-parameters</code>, or are the type declared fields, if constructor parameter
+ * types match declared fields types.
+ *
+ * <pre>
+ * public class Point
+ * {
+ *   private final int x;
+ *   private final int y;
+ *
+ *   &#64;CsvConstructor({"x", "y"})
+ *   public Point(int x, int y)
+ *   {
+ *     this.x = x;
+ *     this.y = y;
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Iulian Rotaru
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface CsvConstructor
+{
+  /**
+   * Names of the fields initialized by constructor parameters, in parameters order.
+   *
+   * @return parameter names, possibly empty.
+   */
+  String[] value() default {};
+}
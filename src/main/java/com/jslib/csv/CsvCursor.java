@@ -0,0 +1,164 @@
+package com.jslib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+
+/**
+ * Forward only cursor on a CSV stream sorted by key columns, used by streaming algorithms walking sorted streams in
+ * lockstep. Cursor holds current record raw values and key; record instance is created on demand, so that records not
+ * needed by algorithm are not bound to instances. Optionally, cursor holds raw record text too, see
+ * {@link #keepRawRecord()}.
+ * <p>
+ * Cursor checks that keys are not decreasing and throws CSV exception otherwise, since an unsorted stream silently
+ * produces wrong results.
+ *
+ * @author Iulian Rotaru
+ */
+final class CsvCursor<T> implements Closeable
+{
+  private final CsvDescriptor<T> descriptor;
+  private final CsvReaderImpl<T> reader;
+  private final String[] keyFields;
+  /** Name for error messages. */
+  private final String name;
+
+  /** Key created on first record, after header processing. */
+  private CsvKey key;
+
+  private List<String> values;
+  @SuppressWarnings("rawtypes")
+  private Comparable[] keyValues;
+  private T instance;
+
+  CsvCursor(CsvDescriptor<T> descriptor, Reader reader, String[] keyFields)
+  {
+    this(descriptor, new CsvReaderImpl<>(descriptor, reader), keyFields, "reader");
+  }
+
+  /**
+   * Create cursor for CSV file, transparently decompressed if GZIP compressed.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file sorted by key columns,
+   * @param keyFields names of the fields bound to key columns.
+   * @throws IOException if file opening fails.
+   */
+  CsvCursor(CsvDescriptor<T> descriptor, Path file, String[] keyFields) throws IOException
+  {
+    this(descriptor, new CsvReaderImpl<>(descriptor, open(file)), keyFields, file.toString());
+  }
+
+  private CsvCursor(CsvDescriptor<T> descriptor, CsvReaderImpl<T> reader, String[] keyFields, String name)
+  {
+    this.descriptor = descriptor;
+    this.reader = reader;
+    this.keyFields = keyFields;
+    this.name = name;
+  }
+
+  private static InputStream open(Path file) throws IOException
+  {
+    InputStream stream = Files.newInputStream(file);
+    try {
+      return CsvFactoryImpl.decompress(stream);
+    }
+    catch(IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Collect raw record text, see {@link #record()}. Should be called before first {@link #advance()}.
+   *
+   * @return this pointer.
+   */
+  CsvCursor<T> keepRawRecord()
+  {
+    reader.keepRawRecord();
+    return this;
+  }
+
+  /**
+   * Move cursor to next record.
+   *
+   * @return false if there are no more records.
+   * @throws CsvException if keys order is decreasing.
+   */
+  @SuppressWarnings("rawtypes")
+  boolean advance()
+  {
+    if(!reader.hasNext()) {
+      values = null;
+      keyValues = null;
+      instance = null;
+      return false;
+    }
+    if(key == null) {
+      key = new CsvKey(descriptor, keyFields);
+    }
+
+    Comparable[] previousKeyValues = keyValues;
+    values = reader.values();
+    keyValues = key.values(values);
+    instance = null;
+    if(previousKeyValues != null && CsvKey.compare(previousKeyValues, keyValues) > 0) {
+      throw new CsvException("CSV stream |%s| is not sorted by key |%s|.", name, String.join(",", keyFields));
+    }
+    return true;
+  }
+
+  boolean valid()
+  {
+    return values != null;
+  }
+
+  List<String> values()
+  {
+    return values;
+  }
+
+  /**
+   * Get current record text, as found on CSV stream, without line end. Returns null if raw record is not collected.
+   *
+   * @return current record text, possibly null.
+   */
+  String record()
+  {
+    return reader.rawRecord();
+  }
+
+  @SuppressWarnings("rawtypes")
+  Comparable[] key()
+  {
+    return keyValues;
+  }
+
+  /**
+   * Get current record instance, created on first call.
+   *
+   * @return current record instance.
+   */
+  T instance()
+  {
+    if(instance == null) {
+      // reader binds values parsed by last hasNext() and no hasNext() was called after advance()
+      instance = reader.next();
+    }
+    return instance;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    reader.close();
+  }
+}
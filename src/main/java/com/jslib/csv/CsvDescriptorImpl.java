@@ -3,7 +3,10 @@ package com.jslib.csv;
 import static com.jslib.util.Params.notNull;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,6 +31,12 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
   private final CsvFormatImpl format;
   private final Class<T> type;
   private final List<CsvColumn> columns = new ArrayList<>();
+  /** Field names of the columns with string values interning enabled, see {@link #intern(String...)}. */
+  private final Set<String> internFields = new HashSet<>();
+  /** Enable string values interning on all columns. */
+  private boolean internAll;
+  /** Use generated record mapper, see {@link #compile()}. */
+  private boolean compiled;
 
   public CsvDescriptorImpl(Class<T> type)
   {
@@ -111,6 +120,12 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     if(config.hasAttribute("strict")) {
       format.strict(config.getAttribute("strict", boolean.class));
     }
+    if(config.hasAttribute("intern")) {
+      internAll = config.getAttribute("intern", boolean.class);
+    }
+    if(config.hasAttribute("compile")) {
+      compiled = config.getAttribute("compile", boolean.class);
+    }
 
     for(Config column : config.getChildren()) {
       String fieldName = column.getAttribute("field");
@@ -136,6 +151,9 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
       }
 
       columns.add(new CsvColumnImpl(fieldName, formatter));
+      if(column.hasAttribute("intern") && column.getAttribute("intern", boolean.class)) {
+        internFields.add(fieldName);
+      }
     }
   }
 
@@ -158,11 +176,7 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
       return;
     }
 
-    String columns = Strings.join(header, ',');
-    NameConverter converter = JavaName.accept(columns) ? new JavaName() : new NonJavaName();
-
-    for(String columnName : header) {
-      String fieldName = converter.fieldName(columnName);
+    for(String fieldName : fieldNames(header)) {
       if(Classes.getOptionalFieldEx(type, fieldName) == null) {
         throw new CsvException("Field |%s| not found on type |%s|.", fieldName, type);
       }
@@ -170,6 +184,26 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     }
   }
 
+  /**
+   * Convert CSV header column names to field names. If all column names are valid Java names they are used as they
+   * are, otherwise column names are converted to Java member names, e.g. <code>POSTAL-ADDRESS</code> is converted to
+   * <code>postalAddress</code>.
+   * 
+   * @param header CSV header column names.
+   * @return field names, in header order.
+   */
+  static List<String> fieldNames(List<String> header)
+  {
+    String columns = Strings.join(header, ',');
+    NameConverter converter = JavaName.accept(columns) ? new JavaName() : new NonJavaName();
+
+    List<String> fieldNames = new ArrayList<>(header.size());
+    for(String columnName : header) {
+      fieldNames.add(converter.fieldName(columnName));
+    }
+    return fieldNames;
+  }
+
   @Override
   public CsvDescriptor<T> columns(String... fieldNames)
   {
@@ -178,7 +212,7 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
       if(format.strict() && Classes.getOptionalFieldEx(type, fieldName) == null) {
         throw new CsvException("Field |%s| not found on type |%s|.", fieldName, type);
       }
-      columns.add(new CsvColumnImpl(fieldName, null));
+      columns.add(new CsvColumnImpl(fieldName, (Format)null));
     }
     return this;
   }
@@ -195,7 +229,7 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
       if(format.strict() && Classes.getOptionalFieldEx(type, fieldName) == null) {
         throw new CsvException("Field |%s| not found on type |%s|.", fieldName, type);
       }
-      columns.add(new CsvColumnImpl(fieldName, null));
+      columns.add(new CsvColumnImpl(fieldName, (Format)null));
     }
     return this;
   }
@@ -207,7 +241,7 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     if(format.strict() && Classes.getOptionalFieldEx(type, fieldName) == null) {
       throw new CsvException("Field |%s| not found on type |%s|.", fieldName, type);
     }
-    columns.add(new CsvColumnImpl(fieldName, null));
+    columns.add(new CsvColumnImpl(fieldName, (Format)null));
     return this;
   }
 
@@ -222,12 +256,100 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     return this;
   }
 
+  /**
+   * Add column with per thread formatter instances created by given factory. Use it for formatters that are not thread
+   * safe, like formatters based on {@link java.text.SimpleDateFormat}, when descriptor is shared by readers or writers
+   * running on different threads. Every thread gets its own formatter instance, created on first use; readers and
+   * writers resolve column formatter once, so a reader or writer should be used by a single thread.
+   * <p>
+   * Per thread instances live as long as their thread; on pooled threads, e.g. in application servers, call
+   * {@link #removeThreadFormatters()} when the thread is done with this descriptor. Columns added by other methods or
+   * from configuration keep the given formatter instance, shared by all threads.
+   * 
+   * @param fieldName field name,
+   * @param formatterFactory factory for column formatter instances.
+   * @return this pointer.
+   */
+  public CsvDescriptorImpl<T> columnPerThread(String fieldName, Supplier<? extends Format> formatterFactory)
+  {
+    Params.notNullOrEmpty(fieldName, "Field name");
+    Params.notNull(formatterFactory, "Formatter factory");
+    if(format.strict() && Classes.getOptionalFieldEx(type, fieldName) == null) {
+      throw new CsvException("Field |%s| not found on type |%s|.", fieldName, type);
+    }
+    columns.add(new CsvColumnImpl(fieldName, formatterFactory));
+    return this;
+  }
+
   @Override
   public List<CsvColumn> columns()
   {
     return columns;
   }
 
+  /**
+   * Remove the formatter instances created for current thread by per thread columns, see
+   * {@link #columnPerThread(String, Supplier)}. A next use from current thread creates new instances.
+   */
+  public void removeThreadFormatters()
+  {
+    for(CsvColumn column : columns) {
+      if(column instanceof CsvColumnImpl) {
+        ((CsvColumnImpl)column).removeThreadFormatter();
+      }
+    }
+  }
+
+  /**
+   * Enable string values interning for columns bound to given fields or for all columns if no field name is provided.
+   * Interning is meant for low cardinality columns, e.g. country or currency, and ensures that repeating values share
+   * the same string instance. Interning is disabled by reader on columns that prove to have high cardinality.
+   * 
+   * @param fieldNames optional field names, empty for all columns.
+   * @return this pointer.
+   */
+  public CsvDescriptorImpl<T> intern(String... fieldNames)
+  {
+    if(fieldNames.length == 0) {
+      internAll = true;
+      return this;
+    }
+    for(String fieldName : fieldNames) {
+      Params.notNullOrEmpty(fieldName, "Field name");
+      internFields.add(fieldName);
+    }
+    return this;
+  }
+
+  /**
+   * Test if string values interning is enabled for column bound to given field.
+   * 
+   * @param fieldName field name.
+   * @return true if column values should be interned.
+   */
+  boolean isInterned(String fieldName)
+  {
+    return internAll || internFields.contains(fieldName);
+  }
+
+  /**
+   * Enable generated record mapper for this descriptor. Readers and writers bind record fields through method handles
+   * resolved once per column and create instances through a generated factory, instead of reflection on every record.
+   * Mapper is created when descriptor columns are known, that is, after CSV header processing if header is enabled.
+   * 
+   * @return this pointer.
+   */
+  public CsvDescriptorImpl<T> compile()
+  {
+    compiled = true;
+    return this;
+  }
+
+  boolean isCompiled()
+  {
+    return compiled;
+  }
+
   // ----------------------------------------------------------------------------------------------
 
   private static <T> Class<T> getType(Config config) throws ConfigException
@@ -281,15 +403,31 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     }
   }
 
+  /**
+   * Descriptor column. Column formatter is either a shared instance or, if column is created with a formatter factory,
+   * an instance per thread, created on thread first use.
+   * 
+   * @author Iulian Rotaru
+   */
   private static final class CsvColumnImpl implements CsvColumn
   {
     private final String fieldName;
     private final Format formatter;
+    /** Per thread formatters, null if column has shared formatter instance. */
+    private final ThreadLocal<Format> formatters;
 
     public CsvColumnImpl(String fieldName, Format formatter)
     {
       this.fieldName = fieldName;
       this.formatter = formatter;
+      this.formatters = null;
+    }
+
+    public CsvColumnImpl(String fieldName, Supplier<? extends Format> formatterFactory)
+    {
+      this.fieldName = fieldName;
+      this.formatter = null;
+      this.formatters = formatterFactory != null ? ThreadLocal.withInitial(formatterFactory) : null;
     }
 
     @Override
@@ -301,7 +439,14 @@ public class CsvDescriptorImpl<T> implements CsvDescriptor<T>
     @Override
     public Format formatter()
     {
-      return formatter;
+      return formatters != null ? formatters.get() : formatter;
+    }
+
+    void removeThreadFormatter()
+    {
+      if(formatters != null) {
+        formatters.remove();
+      }
     }
   }
 
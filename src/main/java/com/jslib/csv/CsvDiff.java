@@ -0,0 +1,173 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Streaming row level difference between two versions of a CSV file, both sorted ascending by key columns, see
+ * {@link CsvSorter}. Streams are walked in lockstep, with constant memory: records with key present only on new
+ * version are added, records with key present only on old version are removed and records with the same key but
+ * different values are changed. Unchanged records are not reported and not even bound to instances.
+ * <p>
+ * Both versions are read with the same CSV descriptor and should have the same columns. Records are compared raw, as
+ * found on CSV stream, so that a formatting only difference, e.g. quoting or null value spelling, is reported as
+ * change, with empty changed fields list. If there are duplicated keys, records with the same key are paired in stream
+ * order.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvDiff<T>
+{
+  private static final Log log = LogFactory.getLog(CsvDiff.class);
+
+  /**
+   * Listener for records difference.
+   *
+   * @author Iulian Rotaru
+   */
+  public interface Listener<T>
+  {
+    /**
+     * Record present only on new version.
+     *
+     * @param record new record.
+     * @throws IOException if listener output fails.
+     */
+    void added(T record) throws IOException;
+
+    /**
+     * Record present only on old version.
+     *
+     * @param record old record.
+     * @throws IOException if listener output fails.
+     */
+    void removed(T record) throws IOException;
+
+    /**
+     * Record with the same key on both versions, with different values.
+     *
+     * @param oldRecord old record,
+     * @param newRecord new record,
+     * @param fieldNames names of fields bound to changed columns, in columns order, empty if only formatting changed.
+     * @throws IOException if listener output fails.
+     */
+    void changed(T oldRecord, T newRecord, List<String> fieldNames) throws IOException;
+  }
+
+  private final CsvDescriptor<T> descriptor;
+  private final String[] keyFields;
+
+  /**
+   * Create difference for given descriptor and key fields.
+   *
+   * @param descriptor CSV descriptor,
+   * @param keyFields names of the fields bound to key columns, in sort order.
+   */
+  public CsvDiff(CsvDescriptor<T> descriptor, String... keyFields)
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNullOrEmpty(keyFields, "Key fields");
+    log.trace("CsvDiff(CsvDescriptor<T>,String...)");
+    this.descriptor = descriptor;
+    this.keyFields = keyFields;
+  }
+
+  /**
+   * Compare two sorted CSV files, transparently decompressed if GZIP compressed.
+   *
+   * @param oldFile old version CSV file,
+   * @param newFile new version CSV file,
+   * @param listener differences listener.
+   * @throws IOException if files reading or listener output fails.
+   * @throws CsvException if a CSV file is not sorted by key.
+   */
+  public void diff(Path oldFile, Path newFile, Listener<T> listener) throws IOException
+  {
+    Params.notNull(oldFile, "Old file");
+    Params.notNull(newFile, "New file");
+    try (CsvCursor<T> oldCursor = new CsvCursor<>(descriptor, oldFile, keyFields); CsvCursor<T> newCursor = new CsvCursor<>(descriptor, newFile, keyFields)) {
+      diff(oldCursor.keepRawRecord(), newCursor.keepRawRecord(), listener);
+    }
+  }
+
+  /**
+   * Compare two sorted CSV characters streams. Streams are closed by this method.
+   *
+   * @param oldReader old version CSV stream,
+   * @param newReader new version CSV stream,
+   * @param listener differences listener.
+   * @throws IOException if streams reading or listener output fails.
+   * @throws CsvException if a CSV stream is not sorted by key.
+   */
+  public void diff(Reader oldReader, Reader newReader, Listener<T> listener) throws IOException
+  {
+    Params.notNull(oldReader, "Old reader");
+    Params.notNull(newReader, "New reader");
+    try (CsvCursor<T> oldCursor = new CsvCursor<>(descriptor, oldReader, keyFields); CsvCursor<T> newCursor = new CsvCursor<>(descriptor, newReader, keyFields)) {
+      diff(oldCursor.keepRawRecord(), newCursor.keepRawRecord(), listener);
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private void diff(CsvCursor<T> oldCursor, CsvCursor<T> newCursor, Listener<T> listener) throws IOException
+  {
+    Params.notNull(listener, "Listener");
+    oldCursor.advance();
+    newCursor.advance();
+
+    while(oldCursor.valid() || newCursor.valid()) {
+      int result;
+      if(!newCursor.valid()) {
+        result = -1;
+      }
+      else if(!oldCursor.valid()) {
+        result = 1;
+      }
+      else {
+        result = CsvKey.compare(oldCursor.key(), newCursor.key());
+      }
+
+      if(result < 0) {
+        listener.removed(oldCursor.instance());
+        oldCursor.advance();
+        continue;
+      }
+      if(result > 0) {
+        listener.added(newCursor.instance());
+        newCursor.advance();
+        continue;
+      }
+
+      if(!oldCursor.record().equals(newCursor.record())) {
+        listener.changed(oldCursor.instance(), newCursor.instance(), changedFields(oldCursor.values(), newCursor.values()));
+      }
+      oldCursor.advance();
+      newCursor.advance();
+    }
+  }
+
+  private List<String> changedFields(List<String> oldValues, List<String> newValues)
+  {
+    List<String> fieldNames = new ArrayList<>();
+    List<CsvColumn> columns = descriptor.columns();
+    for(int i = 0; i < columns.size(); ++i) {
+      String oldValue = i < oldValues.size() ? oldValues.get(i) : null;
+      String newValue = i < newValues.size() ? newValues.get(i) : null;
+      if(oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+        fieldNames.add(columns.get(i).fieldName());
+      }
+    }
+    return fieldNames;
+  }
+}
@@ -1,19 +1,55 @@
 package com.jslib.csv;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
 import com.jslib.api.csv.CsvFactory;
 import com.jslib.api.csv.CsvReader;
 import com.jslib.api.csv.CsvWriter;
 import com.jslib.lang.Config;
 import com.jslib.lang.ConfigException;
+import com.jslib.util.Params;
 
 public class CsvFactoryImpl implements CsvFactory
 {
+  /** GZIP stream magic bytes, in stream order. */
+  private static final int GZIP_MAGIC_0 = 0x1F;
+  private static final int GZIP_MAGIC_1 = 0x8B;
+
+  /** Default buffer size for compressed streams, large enough to amortize native inflater and deflater calls. */
+  private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+  /** File extension used to select compressed output, see {@link #getWriter(CsvDescriptor, Path)}. */
+  private static final String GZIP_EXTENSION = ".gz";
+
+  /**
+   * Policy for forcing written data to storage device, for writers on file channels.
+   * 
+   * @author Iulian Rotaru
+   */
+  public enum ForcePolicy
+  {
+    /** Leave writing to storage device to operating system. */
+    NONE,
+    /** Force data to storage device when writer is closed. */
+    CLOSE,
+    /** Force data to storage device on every writer flush and when writer is closed. */
+    FLUSH
+  }
+
   @Override
   public <T> CsvDescriptor<T> getDescriptor(Class<T> type)
   {
@@ -38,10 +74,45 @@ public class CsvFactoryImpl implements CsvFactory
     return new CsvReaderImpl<T>(descriptor, reader);
   }
 
+  /**
+   * Create CSV reader for given bytes stream. If stream starts with GZIP magic bytes it is transparently decompressed.
+   *
+   * @param descriptor CSV descriptor,
+   * @param stream bytes input stream, possibly GZIP compressed.
+   * @return CSV reader.
+   * @throws CsvException if reading GZIP header fails.
+   */
   @Override
   public <T> CsvReader<T> getReader(CsvDescriptor<T> descriptor, InputStream stream)
   {
-    return new CsvReaderImpl<T>(descriptor, stream);
+    try {
+      return new CsvReaderImpl<T>(descriptor, decompress(stream));
+    }
+    catch(IOException e) {
+      throw new CsvException("Cannot read CSV stream. Root cause: %s", e.getMessage());
+    }
+  }
+
+  /**
+   * Create CSV reader for given file. File is transparently decompressed if it is GZIP compressed, detected by magic
+   * bytes not by file extension.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file, possibly GZIP compressed.
+   * @return CSV reader.
+   * @throws IOException if file opening fails.
+   */
+  public <T> CsvReader<T> getReader(CsvDescriptor<T> descriptor, Path file) throws IOException
+  {
+    Params.notNull(file, "CSV file");
+    InputStream stream = Files.newInputStream(file);
+    try {
+      return new CsvReaderImpl<T>(descriptor, decompress(stream));
+    }
+    catch(IOException e) {
+      stream.close();
+      throw e;
+    }
   }
 
   @Override
@@ -55,4 +126,157 @@ public class CsvFactoryImpl implements CsvFactory
   {
     return new CsvWriterImpl<T>(descriptor, stream);
   }
+
+  /**
+   * Create CSV writer for given file. If file name has <code>.gz</code> extension output is GZIP compressed with
+   * default compression level. Otherwise records are encoded straight to file channel, see
+   * {@link #getWriter(CsvDescriptor, WritableByteChannel)}.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file, created or truncated.
+   * @return CSV writer.
+   * @throws IOException if file creation fails.
+   */
+  public <T> CsvWriter<T> getWriter(CsvDescriptor<T> descriptor, Path file) throws IOException
+  {
+    return getWriter(descriptor, file, ForcePolicy.NONE);
+  }
+
+  /**
+   * Create CSV writer for given file, with given policy for forcing data to storage device. Force policy is not
+   * supported for GZIP compressed files, see {@link #getWriter(CsvDescriptor, Path)}.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file, created or truncated,
+   * @param force force policy.
+   * @return CSV writer.
+   * @throws IOException if file creation fails.
+   * @throws CsvException if force policy is requested for a compressed file.
+   */
+  public <T> CsvWriter<T> getWriter(CsvDescriptor<T> descriptor, Path file, ForcePolicy force) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "CSV file");
+    Params.notNull(force, "Force policy");
+    return writer(descriptor, file, force);
+  }
+
+  /**
+   * Create CSV writer implementation for given file, for package classes that use writer implementation methods. See
+   * {@link #getWriter(CsvDescriptor, Path, ForcePolicy)}.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file, created or truncated,
+   * @param force force policy.
+   * @return CSV writer implementation.
+   * @throws IOException if file creation fails.
+   * @throws CsvException if force policy is requested for a compressed file.
+   */
+  static <T> CsvWriterImpl<T> writer(CsvDescriptor<T> descriptor, Path file, ForcePolicy force) throws IOException
+  {
+    if(file.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+      if(force != ForcePolicy.NONE) {
+        throw new CsvException("Force policy is not supported for compressed file |%s|.", file);
+      }
+      return new CsvWriterImpl<T>(descriptor, compress(file));
+    }
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    return new CsvWriterImpl<T>(descriptor, new ChannelWriter(channel, descriptor.format().charset(), force));
+  }
+
+  /**
+   * Create CSV writer for given byte channel. Records are encoded with the CSV format charset straight into a direct
+   * byte buffer that is written to channel when full, without intermediate streams. Channel is closed when CSV writer
+   * is closed.
+   *
+   * @param descriptor CSV descriptor,
+   * @param channel target byte channel.
+   * @return CSV writer.
+   */
+  public <T> CsvWriter<T> getWriter(CsvDescriptor<T> descriptor, WritableByteChannel channel)
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(channel, "Byte channel");
+    return new CsvWriterImpl<T>(descriptor, new ChannelWriter(channel, descriptor.format().charset(), ForcePolicy.NONE));
+  }
+
+  /**
+   * Create CSV writer with GZIP compressed output. Compressed stream is finished and given stream closed when CSV
+   * writer is closed.
+   *
+   * @param descriptor CSV descriptor,
+   * @param stream bytes output stream,
+   * @param level compression level, from 0 to 9 or -1 for default,
+   * @param bufferSize compressed output buffer size.
+   * @return CSV writer.
+   * @throws IOException if writing GZIP header fails.
+   */
+  public <T> CsvWriter<T> getWriter(CsvDescriptor<T> descriptor, OutputStream stream, int level, int bufferSize) throws IOException
+  {
+    Params.notNull(stream, "Output stream");
+    Params.range(level, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION, "Compression level");
+    Params.GT(bufferSize, 0, "Buffer size");
+    return new CsvWriterImpl<T>(descriptor, new GzipOutputStream(stream, level, bufferSize));
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Return decompressed stream if given stream starts with GZIP magic bytes or given stream otherwise. Magic bytes are
+   * peeked using stream mark, after wrapping with a buffered stream if mark is not supported.
+   *
+   * @param stream bytes input stream.
+   * @return decompressed or original bytes stream.
+   * @throws IOException if reading from stream fails.
+   */
+  static InputStream decompress(InputStream stream) throws IOException
+  {
+    Params.notNull(stream, "Input stream");
+    if(!stream.markSupported()) {
+      stream = new BufferedInputStream(stream);
+    }
+
+    stream.mark(2);
+    boolean gzip = stream.read() == GZIP_MAGIC_0 && stream.read() == GZIP_MAGIC_1;
+    stream.reset();
+
+    // inflater reads straight from source stream with its own large buffer
+    // characters reader from CSV reader implementation provides the only buffering layer on decompressed bytes
+    return gzip ? new GZIPInputStream(stream, COMPRESSION_BUFFER_SIZE) : stream;
+  }
+
+  /**
+   * Create GZIP compressed output stream, with default compression level, for given file. Caller is responsible to
+   * check that file name has <code>.gz</code> extension.
+   *
+   * @param file output file, created or truncated.
+   * @return compressed bytes output stream.
+   * @throws IOException if file creation fails.
+   */
+  private static OutputStream compress(Path file) throws IOException
+  {
+    OutputStream stream = Files.newOutputStream(file);
+    try {
+      return new GzipOutputStream(stream, Deflater.DEFAULT_COMPRESSION, COMPRESSION_BUFFER_SIZE);
+    }
+    catch(IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * GZIP output stream with configurable compression level.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class GzipOutputStream extends GZIPOutputStream
+  {
+    public GzipOutputStream(OutputStream stream, int level, int bufferSize) throws IOException
+    {
+      super(stream, bufferSize);
+      // GZIP header is written by super constructor but no data was deflated yet so it is safe to change level
+      def.setLevel(level);
+    }
+  }
 }
@@ -30,6 +30,27 @@ public class CsvFormatImpl implements CsvFormat
   {
   }
 
+  /**
+   * Create CSV format with properties copied from given format.
+   * 
+   * @param format source CSV format.
+   */
+  public CsvFormatImpl(CsvFormat format)
+  {
+    Params.notNull(format, "CSV format");
+    this.delimiterChar = format.delimiter();
+    this.commentChar = format.comment();
+    this.openQuoteChar = format.openQuote();
+    this.closeQuoteChar = format.closeQuote();
+    this.escapeChar = format.escape();
+    this.header = format.header();
+    this.emptyLines = format.emptyLines();
+    this.trim = format.trim();
+    this.nullValue = format.nullValue();
+    this.charset = format.charset();
+    this.strict = format.strict();
+  }
+
   @Override
   public CsvFormatImpl delimiter(char delimiter)
   {
@@ -0,0 +1,247 @@
+package com.jslib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Index on a key column for point lookups over a CSV file. Index is built by a single scan of the CSV file and maps
+ * key column values to record byte offsets. On {@link #lookup(String)} only the record with requested key is parsed
+ * and bound to a new instance, using the same binding as {@link CsvReaderImpl}. Lookups reuse a single reader, moved
+ * to probed record offset, so that reader buffers and caches are not allocated per lookup.
+ * <p>
+ * Index storage is an open addressing hash table, with linear probing, allocated off-heap on a direct byte buffer.
+ * Every slot stores key hash and record offset, so that key strings are not retained; hash collisions are solved by
+ * comparing requested key with the key value of the parsed record. If key value is not unique lookup returns the first
+ * record from CSV file. Index holds at most {@link #MAX_SIZE} records.
+ * <p>
+ * Byte offsets are computed from the charset configured on descriptor format, or from the charset of the byte order
+ * mark if CSV file has one, and only charsets with predictable characters length are supported: UTF-8, UTF-16 and
+ * UTF-32 with explicit byte order, that is, UTF-16BE, UTF-16LE, UTF-32BE and UTF-32LE, and single byte charsets. CSV
+ * file should be well formed for its charset, see {@link CsvReaderImpl#recordOffset()}.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvIndex<T> implements Closeable
+{
+  private static final Log log = LogFactory.getLog(CsvIndex.class);
+
+  /** Slot bytes size: 64 bits key hash followed by 64 bits record offset. */
+  private static final int SLOT_SIZE = 16;
+  private static final int INITIAL_CAPACITY = 1024;
+  /** Maximum hash table capacity, the largest power of two for which slots fit a direct byte buffer. */
+  private static final int MAX_CAPACITY = 1 << 26;
+  /** Maximum number of indexed records, for a load factor of 0.5 on maximum capacity. */
+  public static final int MAX_SIZE = MAX_CAPACITY / 2;
+
+  private final CsvDescriptor<T> descriptor;
+  private final FileChannel channel;
+  private final String fieldName;
+
+  /** Index of the key column on descriptor columns list, resolved after header processing. */
+  private int keyIndex;
+  /** Reader reused by lookups, moved to probed record offset. */
+  private CsvReaderImpl<T> reader;
+
+  /** Hash table slots. A slot with zero offset is empty; to avoid ambiguity stored offset is record offset plus one. */
+  private ByteBuffer slots;
+  /** Hash table capacity, always a power of two. */
+  private int capacity;
+  /** Number of used slots. */
+  private int size;
+
+  /**
+   * Create index on key column for given CSV file. Scan entire CSV file and store key hash and record offset for every
+   * record. If format has header and descriptor has no columns defined, they are loaded from CSV header.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file,
+   * @param fieldName name of the field bound to key column.
+   * @throws IOException if CSV file reading fails.
+   * @throws CsvException if key column is missing, format charset does not support byte offsets or CSV file has more
+   *           than {@link #MAX_SIZE} records.
+   */
+  public CsvIndex(CsvDescriptor<T> descriptor, Path file, String fieldName) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "CSV file");
+    Params.notNullOrEmpty(fieldName, "Field name");
+    log.trace("CsvIndex(CsvDescriptor<T>,Path,String)");
+
+    this.descriptor = descriptor;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.fieldName = fieldName;
+    this.keyIndex = -1;
+    allocate(INITIAL_CAPACITY);
+
+    try {
+      build();
+    }
+    catch(IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private void build() throws IOException
+  {
+    // reader is not closed since it would close the file channel used for lookups
+    CsvReaderImpl<T> scanner = new CsvReaderImpl<>(descriptor, Channels.newInputStream(channel));
+    // charset used by index scan, possibly detected from byte order mark, is reused on lookups
+    Charset charset = scanner.charset();
+    while(scanner.hasNext()) {
+      if(keyIndex == -1) {
+        // first record is available only after header processing, if any, so that descriptor columns are loaded
+        keyIndex = keyIndex();
+      }
+      long offset = scanner.recordOffset();
+      if(offset == -1) {
+        throw new CsvException("Charset |%s| not supported for CSV index.", charset);
+      }
+      List<String> values = scanner.values();
+      if(keyIndex < values.size()) {
+        put(hash(values.get(keyIndex)), offset);
+      }
+    }
+    log.debug("Indexed |{java_type}| CSV records: {}.", descriptor.type(), size);
+    this.reader = new CsvReaderImpl<>(descriptor, new ChannelReader(channel, charset));
+  }
+
+  private int keyIndex()
+  {
+    List<CsvColumn> columns = descriptor.columns();
+    for(int i = 0; i < columns.size(); ++i) {
+      if(columns.get(i).fieldName().equals(fieldName)) {
+        return i;
+      }
+    }
+    throw new CsvException("Missing key column for field |%s#%s|.", descriptor.type(), fieldName);
+  }
+
+  /**
+   * Get the record with given key value or null if key is not indexed.
+   *
+   * @param key key value.
+   * @return instance bound to record with given key or null.
+   * @throws IOException if CSV file reading fails.
+   */
+  public T lookup(String key) throws IOException
+  {
+    Params.notNull(key, "Key value");
+    long hash = hash(key);
+    int mask = capacity - 1;
+
+    for(int slot = (int)hash & mask;; slot = (slot + 1) & mask) {
+      long offset = slots.getLong(slot * SLOT_SIZE + 8);
+      if(offset == 0) {
+        return null;
+      }
+      if(slots.getLong(slot * SLOT_SIZE) != hash) {
+        continue;
+      }
+
+      reader.seek(offset - 1);
+      if(reader.hasNext() && keyIndex < reader.values().size() && key.equals(reader.values().get(keyIndex))) {
+        return reader.next();
+      }
+    }
+  }
+
+  /**
+   * Get the number of indexed records.
+   *
+   * @return indexed records count.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    channel.close();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private void allocate(int capacity)
+  {
+    this.capacity = capacity;
+    this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+  }
+
+  private void put(long hash, long offset)
+  {
+    if(size == MAX_SIZE) {
+      throw new CsvException("CSV index records count exceeds maximum |%d|.", MAX_SIZE);
+    }
+    // keep load factor under 0.5 to have short probing sequences
+    if(2 * (size + 1) > capacity) {
+      ByteBuffer oldSlots = slots;
+      int oldMask = capacity - 1;
+      allocate(capacity << 1);
+
+      // start reinsertion from an empty slot so that probing sequences are not split and the order of records with the
+      // same key, that is, the first record wins on lookup, is preserved
+      int start = 0;
+      while(oldSlots.getLong(start * SLOT_SIZE + 8) != 0) {
+        ++start;
+      }
+      for(int i = 0; i <= oldMask; ++i) {
+        int slot = (start + i) & oldMask;
+        long oldOffset = oldSlots.getLong(slot * SLOT_SIZE + 8);
+        if(oldOffset != 0) {
+          store(oldSlots.getLong(slot * SLOT_SIZE), oldOffset);
+        }
+      }
+    }
+    store(hash, offset + 1);
+    ++size;
+  }
+
+  private void store(long hash, long offset)
+  {
+    int mask = capacity - 1;
+    int slot = (int)hash & mask;
+    while(slots.getLong(slot * SLOT_SIZE + 8) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    slots.putLong(slot * SLOT_SIZE, hash);
+    slots.putLong(slot * SLOT_SIZE + 8, offset);
+  }
+
+  /**
+   * FNV-1a 64 bits hash on key characters, with a final bits mix since lower bits are used for slot index.
+   *
+   * @param key key value.
+   * @return key hash.
+   */
+  private static long hash(String key)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for(int i = 0; i < key.length(); ++i) {
+      hash ^= key.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,218 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Streaming merge join of two CSV streams sorted ascending by key columns, see {@link CsvSorter}. Streams are walked in
+ * lockstep and joined records are pushed to a handler, so that memory use does not depend on streams size; only right
+ * records with the same key are buffered, to support many to many joins.
+ * <p>
+ * Key columns are compared by the type of the fields bound to them, see {@link CsvKey}, and should have the same type
+ * on both sides. Null keys never match, like SQL null. If a stream is not sorted by key, join fails with CSV exception.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvJoin<L, R>
+{
+  private static final Log log = LogFactory.getLog(CsvJoin.class);
+
+  /**
+   * Join type, with SQL semantic.
+   *
+   * @author Iulian Rotaru
+   */
+  public enum Type
+  {
+    /** Only records with matching keys. */
+    INNER,
+    /** All left records, with null right record if there is no match. */
+    LEFT,
+    /** All right records, with null left record if there is no match. */
+    RIGHT,
+    /** All records from both sides, with null record on the side without match. */
+    FULL
+  }
+
+  /**
+   * Handler for joined records.
+   *
+   * @author Iulian Rotaru
+   */
+  public interface Handler<L, R>
+  {
+    /**
+     * Handle joined records pair. On outer joins one of the records can be null.
+     *
+     * @param left left record, null if right record has no match,
+     * @param right right record, null if left record has no match.
+     * @throws IOException if handler output fails.
+     */
+    void handle(L left, R right) throws IOException;
+  }
+
+  private final CsvDescriptor<L> leftDescriptor;
+  private final CsvDescriptor<R> rightDescriptor;
+  private final String[] leftFields;
+  private final String[] rightFields;
+
+  /**
+   * Create join on key fields with the same names on both sides.
+   *
+   * @param leftDescriptor left CSV descriptor,
+   * @param rightDescriptor right CSV descriptor,
+   * @param keyFields names of the fields bound to key columns, in sort order.
+   */
+  public CsvJoin(CsvDescriptor<L> leftDescriptor, CsvDescriptor<R> rightDescriptor, String... keyFields)
+  {
+    this(leftDescriptor, rightDescriptor, keyFields, keyFields);
+  }
+
+  /**
+   * Create join on key fields with different names on left and right side.
+   *
+   * @param leftDescriptor left CSV descriptor,
+   * @param rightDescriptor right CSV descriptor,
+   * @param leftFields names of left key fields, in sort order,
+   * @param rightFields names of right key fields, in sort order.
+   */
+  public CsvJoin(CsvDescriptor<L> leftDescriptor, CsvDescriptor<R> rightDescriptor, String[] leftFields, String[] rightFields)
+  {
+    Params.notNull(leftDescriptor, "Left CSV descriptor");
+    Params.notNull(rightDescriptor, "Right CSV descriptor");
+    Params.notNullOrEmpty(leftFields, "Left key fields");
+    Params.notNullOrEmpty(rightFields, "Right key fields");
+    Params.isTrue(leftFields.length == rightFields.length, "Left and right key fields count should be equal.");
+    log.trace("CsvJoin(CsvDescriptor<L>,CsvDescriptor<R>,String[],String[])");
+    this.leftDescriptor = leftDescriptor;
+    this.rightDescriptor = rightDescriptor;
+    this.leftFields = leftFields;
+    this.rightFields = rightFields;
+  }
+
+  /**
+   * Join two sorted CSV files, transparently decompressed if GZIP compressed.
+   *
+   * @param left left CSV file,
+   * @param right right CSV file,
+   * @param type join type,
+   * @param handler joined records handler.
+   * @throws IOException if files reading or handler output fails.
+   * @throws CsvException if a CSV file is not sorted by key.
+   */
+  public void join(Path left, Path right, Type type, Handler<L, R> handler) throws IOException
+  {
+    Params.notNull(left, "Left file");
+    Params.notNull(right, "Right file");
+    try (CsvCursor<L> leftCursor = new CsvCursor<>(leftDescriptor, left, leftFields); CsvCursor<R> rightCursor = new CsvCursor<>(rightDescriptor, right, rightFields)) {
+      join(leftCursor, rightCursor, type, handler);
+    }
+  }
+
+  /**
+   * Join two sorted CSV characters streams. Streams are closed by this method.
+   *
+   * @param left left CSV stream,
+   * @param right right CSV stream,
+   * @param type join type,
+   * @param handler joined records handler.
+   * @throws IOException if streams reading or handler output fails.
+   * @throws CsvException if a CSV stream is not sorted by key.
+   */
+  public void join(Reader left, Reader right, Type type, Handler<L, R> handler) throws IOException
+  {
+    Params.notNull(left, "Left reader");
+    Params.notNull(right, "Right reader");
+    try (CsvCursor<L> leftCursor = new CsvCursor<>(leftDescriptor, left, leftFields); CsvCursor<R> rightCursor = new CsvCursor<>(rightDescriptor, right, rightFields)) {
+      join(leftCursor, rightCursor, type, handler);
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private static <L, R> void join(CsvCursor<L> left, CsvCursor<R> right, Type type, Handler<L, R> handler) throws IOException
+  {
+    Params.notNull(type, "Join type");
+    Params.notNull(handler, "Join handler");
+    boolean leftOuter = type == Type.LEFT || type == Type.FULL;
+    boolean rightOuter = type == Type.RIGHT || type == Type.FULL;
+
+    left.advance();
+    right.advance();
+    // right records with the same key, reused for all left records with that key
+    List<R> group = new ArrayList<>();
+
+    while(left.valid() || right.valid()) {
+      int result = compare(left, right);
+      if(result < 0) {
+        if(leftOuter) {
+          handler.handle(left.instance(), null);
+        }
+        left.advance();
+        continue;
+      }
+      if(result > 0) {
+        if(rightOuter) {
+          handler.handle(null, right.instance());
+        }
+        right.advance();
+        continue;
+      }
+
+      @SuppressWarnings("rawtypes")
+      Comparable[] key = right.key();
+      group.clear();
+      do {
+        group.add(right.instance());
+      }
+      while(right.advance() && CsvKey.compare(key, right.key()) == 0);
+
+      do {
+        L instance = left.instance();
+        for(R item : group) {
+          handler.handle(instance, item);
+        }
+      }
+      while(left.advance() && CsvKey.compare(key, left.key()) == 0);
+    }
+  }
+
+  /**
+   * Compare current keys of left and right cursors. Exhausted cursor is considered greater than any key. A null key
+   * value is considered less than the other side key so that it never matches.
+   */
+  private static int compare(CsvCursor<?> left, CsvCursor<?> right)
+  {
+    if(!right.valid()) {
+      return -1;
+    }
+    if(!left.valid()) {
+      return 1;
+    }
+    int result = CsvKey.compare(left.key(), right.key());
+    if(result == 0 && hasNull(left.key())) {
+      // both keys have null on the same position; consume left side first, left then right remain unmatched
+      return -1;
+    }
+    return result;
+  }
+
+  private static boolean hasNull(Object[] key)
+  {
+    for(Object value : key) {
+      if(value == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
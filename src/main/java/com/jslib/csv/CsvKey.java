@@ -0,0 +1,207 @@
+package com.jslib.csv;
+
+import java.lang.reflect.Field;
+import java.text.ParseException;
+import java.util.List;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvFormat;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.converter.Converter;
+import com.jslib.converter.ConverterException;
+import com.jslib.converter.ConverterRegistry;
+import com.jslib.format.Format;
+import com.jslib.util.Classes;
+
+/**
+ * Composite key extracted from raw CSV record values, used to order records on descriptor columns. Key values are
+ * converted to the type of the field bound to column, using column formatter if configured or converter otherwise, so
+ * that numbers and dates are compared by value, not lexicographically. If converted value is not comparable key uses
+ * raw string value.
+ * <p>
+ * Null and missing values, and values that cannot be converted on not strict mode, are null keys, ordered before any
+ * other value. Numbers are compared by value even if formatter or converter returns different number types for the
+ * same column, e.g. integer and long. Values of unrelated types on the same column, that is, a formatter returning
+ * different types, are ordered by type name so that comparison is consistent and does not throw.
+ * <p>
+ * Key columns are resolved on construction; if descriptor columns are loaded from CSV header, key should be created
+ * after header processing.
+ *
+ * @author Iulian Rotaru
+ */
+final class CsvKey
+{
+  private static final Log log = LogFactory.getLog(CsvKey.class);
+
+  private final Converter converter;
+  private final CsvFormat format;
+  /** Indexes of key columns on CSV record. */
+  private final int[] indexes;
+  /** Key columns formatters, null items for columns without formatter. */
+  private final Format[] formatters;
+  /** Types of the fields bound to key columns. */
+  private final Class<?>[] types;
+
+  /**
+   * Create key for given descriptor columns.
+   *
+   * @param descriptor CSV descriptor with columns loaded,
+   * @param fieldNames names of the fields bound to key columns, in comparison order.
+   * @throws CsvException if a field name is not a descriptor column.
+   */
+  CsvKey(CsvDescriptor<?> descriptor, String... fieldNames)
+  {
+    this.converter = ConverterRegistry.getConverter();
+    this.format = descriptor.format();
+    this.indexes = new int[fieldNames.length];
+    this.formatters = new Format[fieldNames.length];
+    this.types = new Class<?>[fieldNames.length];
+
+    List<CsvColumn> columns = descriptor.columns();
+    for(int i = 0; i < fieldNames.length; ++i) {
+      indexes[i] = -1;
+      for(int j = 0; j < columns.size(); ++j) {
+        if(columns.get(j).fieldName().equals(fieldNames[i])) {
+          indexes[i] = j;
+          break;
+        }
+      }
+      if(indexes[i] == -1) {
+        throw new CsvException("Key field |%s| is not a column of CSV descriptor for |%s|.", fieldNames[i], descriptor.type());
+      }
+
+      formatters[i] = columns.get(indexes[i]).formatter();
+      Field field = Classes.getOptionalFieldEx(descriptor.type(), fieldNames[i]);
+      // compare raw strings if there is no field to get type from
+      types[i] = field != null ? field.getType() : String.class;
+    }
+  }
+
+  /**
+   * Get key values for given CSV record.
+   *
+   * @param values raw record values.
+   * @return key values, possibly with null items.
+   */
+  @SuppressWarnings("rawtypes")
+  Comparable[] values(List<String> values)
+  {
+    return values(select(values));
+  }
+
+  /**
+   * Select raw values of key columns from given CSV record.
+   *
+   * @param values raw record values.
+   * @return raw key values, in key columns order, null items for missing values.
+   */
+  String[] select(List<String> values)
+  {
+    String[] keyValues = new String[indexes.length];
+    for(int i = 0; i < indexes.length; ++i) {
+      if(indexes[i] < values.size()) {
+        keyValues[i] = values.get(indexes[i]);
+      }
+    }
+    return keyValues;
+  }
+
+  /**
+   * Get key values for raw key values selected by {@link #select(List)}.
+   *
+   * @param keyValues raw key values.
+   * @return key values, possibly with null items.
+   */
+  @SuppressWarnings("rawtypes")
+  Comparable[] values(String[] keyValues)
+  {
+    Comparable[] key = new Comparable[indexes.length];
+    for(int i = 0; i < indexes.length; ++i) {
+      if(keyValues[i] != null) {
+        key[i] = value(i, keyValues[i]);
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Compare key values, with null values first.
+   *
+   * @param key1 first key values,
+   * @param key2 second key values.
+   * @return negative number, zero or positive number if first key is less than, equal or greater than second key.
+   */
+  @SuppressWarnings("rawtypes")
+  static int compare(Comparable[] key1, Comparable[] key2)
+  {
+    for(int i = 0; i < key1.length; ++i) {
+      if(key1[i] == key2[i]) {
+        continue;
+      }
+      if(key1[i] == null) {
+        return -1;
+      }
+      if(key2[i] == null) {
+        return 1;
+      }
+      int result = compare(key1[i], key2[i]);
+      if(result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /** Compare not null values, possibly of different types. */
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private static int compare(Comparable value1, Comparable value2)
+  {
+    if(value1.getClass() == value2.getClass()) {
+      return value1.compareTo(value2);
+    }
+    if(value1 instanceof Number && value2 instanceof Number) {
+      Number number1 = (Number)value1;
+      Number number2 = (Number)value2;
+      if(isIntegral(number1) && isIntegral(number2)) {
+        return Long.compare(number1.longValue(), number2.longValue());
+      }
+      return Double.compare(number1.doubleValue(), number2.doubleValue());
+    }
+    return value1.getClass().getName().compareTo(value2.getClass().getName());
+  }
+
+  private static boolean isIntegral(Number number)
+  {
+    return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  @SuppressWarnings("rawtypes")
+  private Comparable value(int keyIndex, String columnValue)
+  {
+    if(CsvReaderImpl.isNull(columnValue, format.nullValue())) {
+      return null;
+    }
+    if(types[keyIndex] == String.class && formatters[keyIndex] == null) {
+      return columnValue;
+    }
+
+    Object value;
+    try {
+      value = formatters[keyIndex] != null ? formatters[keyIndex].parse(columnValue) : converter.asObject(columnValue, types[keyIndex]);
+    }
+    catch(ParseException | ConverterException e) {
+      String message = String.format("Could not convert key value |%s|. Root cause: %s", columnValue, e.getMessage());
+      log.error(message);
+      if(format.strict()) {
+        throw new CsvException(message);
+      }
+      return null;
+    }
+    return value instanceof Comparable ? (Comparable)value : columnValue;
+  }
+}
@@ -0,0 +1,543 @@
+package com.jslib.csv;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Classes;
+
+/**
+ * Binding between record instances and descriptor columns, used by {@link CsvReaderImpl} to create instances from
+ * converted column values and by {@link CsvWriterImpl} to get column values from instances. Mapper is created for a
+ * descriptor with columns loaded and fields bound to columns are resolved once, on mapper creation.
+ * <p>
+ * Default mapper uses reflection. If descriptor is compiled, see {@link CsvDescriptorImpl#compile()}, mapper uses
+ * method handles created once per column, so that access checks are not performed on every record, and a
+ * {@link LambdaMetafactory} generated factory for instances, if descriptor type and its no-arguments constructor are
+ * public.
+ * <p>
+ * Types without no-arguments constructor, like immutable value types and Java records, are created through a
+ * constructor, see {@link ConstructorMapper}: column values are passed as constructor arguments, by parameter name.
+ *
+ * @author Iulian Rotaru
+ */
+abstract class CsvMapper<T>
+{
+  private static final Log log = LogFactory.getLog(CsvMapper.class);
+
+  protected final CsvDescriptor<T> descriptor;
+  /** Fields bound to descriptor columns, null items for missing fields. */
+  protected final Field[] fields;
+
+  protected CsvMapper(CsvDescriptor<T> descriptor)
+  {
+    this.descriptor = descriptor;
+    List<CsvColumn> columns = descriptor.columns();
+    this.fields = new Field[columns.size()];
+    for(int i = 0; i < fields.length; ++i) {
+      fields[i] = Classes.getOptionalFieldEx(descriptor.type(), columns.get(i).fieldName());
+    }
+  }
+
+  /**
+   * Create mapper for descriptor, with columns already loaded. If descriptor type has no constructor usable by mapper,
+   * returned mapper still gets field values, e.g. for writers, and constructor error is thrown on instance creation.
+   *
+   * @param descriptor CSV descriptor.
+   * @return mapper instance.
+   */
+  static <T> CsvMapper<T> of(CsvDescriptor<T> descriptor)
+  {
+    try {
+      Constructor<T> constructor = constructor(descriptor.type());
+      if(constructor != null) {
+        return new ConstructorMapper<>(descriptor, constructor);
+      }
+    }
+    catch(CsvException e) {
+      return new GetterMapper<>(descriptor, e);
+    }
+    if(descriptor instanceof CsvDescriptorImpl && ((CsvDescriptorImpl<?>)descriptor).isCompiled()) {
+      return new GeneratedMapper<>(descriptor);
+    }
+    return new ReflectionMapper<>(descriptor);
+  }
+
+  /**
+   * Get field bound to column.
+   *
+   * @param column column index.
+   * @return column field, null if descriptor type has no field for column.
+   */
+  Field field(int column)
+  {
+    return fields[column];
+  }
+
+  /**
+   * Create instance and initialize its fields from column values. Null values leave fields to their JVM defaults.
+   *
+   * @param values field values indexed by column, possibly with null items.
+   * @return newly created instance.
+   */
+  abstract T create(Object[] values);
+
+  /**
+   * Get value of the field bound to column.
+   *
+   * @param instance record instance,
+   * @param column column index.
+   * @return field value, possibly null.
+   */
+  abstract Object get(T instance, int column);
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Get constructor used to create instances of given type, null if type is created with no-arguments constructor.
+   * Constructor annotated with {@link CsvConstructor} takes precedence, then no-arguments constructor and last the
+   * canonical constructor, that is, the constructor with parameter types matching declared fields types. Java records
+   * canonical constructor is always found since record fields are declared in components order.
+   *
+   * @param type descriptor type.
+   * @return constructor or null.
+   * @throws CsvException if type has neither no-arguments nor annotated or canonical constructor.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> Constructor<T> constructor(Class<T> type)
+  {
+    Constructor<T> noArgumentsConstructor = null;
+    for(Constructor<?> constructor : type.getDeclaredConstructors()) {
+      if(constructor.isAnnotationPresent(CsvConstructor.class)) {
+        return (Constructor<T>)constructor;
+      }
+      if(constructor.getParameterCount() == 0) {
+        noArgumentsConstructor = (Constructor<T>)constructor;
+      }
+    }
+    if(noArgumentsConstructor != null) {
+      return null;
+    }
+
+    List<Field> fields = declaredFields(type);
+    Class<?>[] fieldTypes = new Class<?>[fields.size()];
+    for(int i = 0; i < fieldTypes.length; ++i) {
+      fieldTypes[i] = fields.get(i).getType();
+    }
+    try {
+      return type.getDeclaredConstructor(fieldTypes);
+    }
+    catch(NoSuchMethodException e) {
+      throw new CsvException("Missing no-arguments, annotated or canonical constructor for |%s|.", type);
+    }
+  }
+
+  /**
+   * Get names of the fields initialized by constructor parameters, in parameters order. Names are taken from
+   * {@link CsvConstructor} annotation, from Java record components, from class file if compiled with
+   * <code>-parameters</code> or from declared fields if constructor is canonical, in this order.
+   *
+   * @param constructor constructor.
+   * @return parameter names.
+   * @throws CsvException if parameter names cannot be determined.
+   */
+  static String[] parameterNames(Constructor<?> constructor)
+  {
+    int parametersCount = constructor.getParameterCount();
+    CsvConstructor annotation = constructor.getAnnotation(CsvConstructor.class);
+    if(annotation != null && annotation.value().length > 0) {
+      if(annotation.value().length != parametersCount) {
+        throw new CsvException("Annotated parameter names count |%d| does not match constructor |%s| parameters count.", annotation.value().length, constructor);
+      }
+      return annotation.value();
+    }
+
+    String[] names = recordComponents(constructor.getDeclaringClass());
+    if(names != null && names.length == parametersCount) {
+      return names;
+    }
+
+    Parameter[] parameters = constructor.getParameters();
+    if(parametersCount > 0 && parameters[0].isNamePresent()) {
+      names = new String[parametersCount];
+      for(int i = 0; i < parametersCount; ++i) {
+        names[i] = parameters[i].getName();
+      }
+      return names;
+    }
+
+    List<Field> fields = declaredFields(constructor.getDeclaringClass());
+    if(fields.size() == parametersCount) {
+      names = new String[parametersCount];
+      for(int i = 0; i < parametersCount; ++i) {
+        if(fields.get(i).getType() != constructor.getParameterTypes()[i]) {
+          names = null;
+          break;
+        }
+        names[i] = fields.get(i).getName();
+      }
+      if(names != null) {
+        return names;
+      }
+    }
+    throw new CsvException("Cannot determine parameter names for constructor |%s|. Use CsvConstructor annotation value.", constructor);
+  }
+
+  /** Type declared instance fields, in declaration order. */
+  private static List<Field> declaredFields(Class<?> type)
+  {
+    List<Field> fields = new ArrayList<>();
+    for(Field field : type.getDeclaredFields()) {
+      if(!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Get Java record component names, in canonical constructor order, or null if type is not a record. Records API is
+   * accessed reflectively so that this library still runs on Java 8.
+   */
+  private static String[] recordComponents(Class<?> type)
+  {
+    try {
+      Method isRecord = Class.class.getMethod("isRecord");
+      if(!(Boolean)isRecord.invoke(type)) {
+        return null;
+      }
+      Object[] components = (Object[])Class.class.getMethod("getRecordComponents").invoke(type);
+      String[] names = new String[components.length];
+      for(int i = 0; i < components.length; ++i) {
+        names[i] = (String)components[i].getClass().getMethod("getName").invoke(components[i]);
+      }
+      return names;
+    }
+    catch(NoSuchMethodException e) {
+      // Java runtime without records support
+      return null;
+    }
+    catch(ReflectiveOperationException e) {
+      log.debug("Cannot get record components for |{}|. Root cause: {}", type, e);
+      return null;
+    }
+  }
+
+  /**
+   * Mapper using reflection for instance creation and fields access.
+   *
+   * @author Iulian Rotaru
+   */
+  private static class ReflectionMapper<T> extends CsvMapper<T>
+  {
+    ReflectionMapper(CsvDescriptor<T> descriptor)
+    {
+      super(descriptor);
+    }
+
+    @Override
+    T create(Object[] values)
+    {
+      T instance = Classes.newInstance(descriptor.type());
+      for(int i = 0; i < fields.length; ++i) {
+        if(fields[i] != null && values[i] != null) {
+          Classes.setFieldValue(instance, fields[i], values[i]);
+        }
+      }
+      return instance;
+    }
+
+    @Override
+    Object get(T instance, int column)
+    {
+      if(fields[column] == null) {
+        // let reflection utility report missing field
+        return Classes.getFieldValue(instance, descriptor.columns().get(column).fieldName());
+      }
+      return Classes.getFieldValue(instance, fields[column]);
+    }
+  }
+
+  /**
+   * Mapper for types without a constructor usable by mapper, supporting only field values retrieval. Instance creation
+   * throws the constructor resolution error.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class GetterMapper<T> extends ReflectionMapper<T>
+  {
+    private final CsvException constructorError;
+
+    GetterMapper(CsvDescriptor<T> descriptor, CsvException constructorError)
+    {
+      super(descriptor);
+      this.constructorError = constructorError;
+    }
+
+    @Override
+    T create(Object[] values)
+    {
+      throw new CsvException("Cannot create instance of |%s|. Root cause: %s", descriptor.type(), constructorError.getMessage());
+    }
+  }
+
+  /**
+   * Mapper with method handles resolved once per column and generated instances factory.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class GeneratedMapper<T> extends CsvMapper<T>
+  {
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Supplier<T> factory;
+    private final MethodHandle[] setters;
+    private final MethodHandle[] getters;
+
+    GeneratedMapper(CsvDescriptor<T> descriptor)
+    {
+      super(descriptor);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      this.factory = factory(lookup, descriptor.type());
+      this.setters = new MethodHandle[fields.length];
+      this.getters = new MethodHandle[fields.length];
+
+      for(int i = 0; i < fields.length; ++i) {
+        if(fields[i] == null) {
+          continue;
+        }
+        try {
+          // fields returned by reflection utility are accessible so private fields are allowed
+          // setter argument is boxed value and is unboxed by handle for primitive fields
+          setters[i] = lookup.unreflectSetter(fields[i]).asType(SETTER_TYPE);
+          getters[i] = lookup.unreflectGetter(fields[i]).asType(GETTER_TYPE);
+        }
+        catch(IllegalAccessException e) {
+          throw new CsvException("Cannot access field |%s|. Root cause: %s", fields[i], e.getMessage());
+        }
+      }
+    }
+
+    @Override
+    T create(Object[] values)
+    {
+      T instance = factory.get();
+      try {
+        for(int i = 0; i < setters.length; ++i) {
+          if(setters[i] != null && values[i] != null) {
+            setters[i].invokeExact((Object)instance, values[i]);
+          }
+        }
+      }
+      catch(RuntimeException | Error e) {
+        throw e;
+      }
+      catch(Throwable t) {
+        throw new CsvException("Cannot set field value. Root cause: %s", t);
+      }
+      return instance;
+    }
+
+    @Override
+    Object get(T instance, int column)
+    {
+      if(getters[column] == null) {
+        throw new CsvException("Missing field |%s#%s|", descriptor.type(), descriptor.columns().get(column).fieldName());
+      }
+      try {
+        return (Object)getters[column].invokeExact((Object)instance);
+      }
+      catch(RuntimeException | Error e) {
+        throw e;
+      }
+      catch(Throwable t) {
+        throw new CsvException("Cannot get field value. Root cause: %s", t);
+      }
+    }
+
+    /**
+     * Create instances factory. Uses a lambda generated by {@link LambdaMetafactory} if type and its no-arguments
+     * constructor are public, since generated class should be able to call constructor, and a constructor method
+     * handle otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> factory(MethodHandles.Lookup lookup, Class<T> type)
+    {
+      Constructor<T> constructor;
+      try {
+        constructor = type.getDeclaredConstructor();
+      }
+      catch(NoSuchMethodException e) {
+        throw new CsvException("Missing no-arguments constructor for |%s|.", type);
+      }
+
+      try {
+        if(Modifier.isPublic(type.getModifiers()) && Modifier.isPublic(constructor.getModifiers())) {
+          MethodHandle handle = lookup.unreflectConstructor(constructor);
+          CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+          return (Supplier<T>)site.getTarget().invoke();
+        }
+
+        constructor.setAccessible(true);
+        final MethodHandle handle = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        return () -> {
+          try {
+            return (T)handle.invokeExact();
+          }
+          catch(RuntimeException | Error e) {
+            throw e;
+          }
+          catch(Throwable t) {
+            throw new CsvException("Cannot create instance of |%s|. Root cause: %s", type, t);
+          }
+        };
+      }
+      catch(Throwable t) {
+        log.warn("Cannot generate factory for |{}|. Fallback to reflection. Root cause: {}", type, t);
+        return () -> Classes.newInstance(type);
+      }
+    }
+  }
+
+  /**
+   * Mapper creating instances through a constructor, for types without no-arguments constructor like immutable value
+   * types and Java records. Column values are placed into a pre-sized arguments array, by parameter name, and
+   * constructor is invoked through a cached method handle. Arguments for primitive parameters without value are set to
+   * primitive defaults and columns not bound to a parameter are set on created instance, if their fields are not final.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class ConstructorMapper<T> extends CsvMapper<T>
+  {
+    private final Constructor<T> constructor;
+    /** Constructor spread over an objects array, returning object. */
+    private final MethodHandle factory;
+    /** Arguments defaults, null for objects and default values for primitives. */
+    private final Object[] defaults;
+    /** Constructor parameter index for every column, -1 for columns not bound to a parameter. */
+    private final int[] parameters;
+    private final MethodHandle[] setters;
+    private final MethodHandle[] getters;
+
+    ConstructorMapper(CsvDescriptor<T> descriptor, Constructor<T> constructor)
+    {
+      super(descriptor);
+      this.constructor = constructor;
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+      Class<?>[] parameterTypes = constructor.getParameterTypes();
+      this.defaults = new Object[parameterTypes.length];
+      for(int i = 0; i < parameterTypes.length; ++i) {
+        if(parameterTypes[i].isPrimitive()) {
+          defaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+        }
+      }
+
+      String[] parameterNames = parameterNames(constructor);
+      this.parameters = new int[fields.length];
+      this.setters = new MethodHandle[fields.length];
+      this.getters = new MethodHandle[fields.length];
+
+      try {
+        constructor.setAccessible(true);
+        this.factory = lookup.unreflectConstructor(constructor).asSpreader(Object[].class, parameterTypes.length).asType(MethodType.methodType(Object.class, Object[].class));
+
+        for(int i = 0; i < fields.length; ++i) {
+          parameters[i] = indexOf(parameterNames, descriptor.columns().get(i).fieldName());
+          if(fields[i] == null) {
+            continue;
+          }
+          getters[i] = lookup.unreflectGetter(fields[i]).asType(GeneratedMapper.GETTER_TYPE);
+          if(parameters[i] != -1) {
+            continue;
+          }
+          if(Modifier.isFinal(fields[i].getModifiers())) {
+            log.warn("Final field |{}| is not initialized by constructor |{}|. Ignore its column.", fields[i], constructor);
+            continue;
+          }
+          setters[i] = lookup.unreflectSetter(fields[i]).asType(GeneratedMapper.SETTER_TYPE);
+        }
+      }
+      catch(IllegalAccessException | SecurityException e) {
+        throw new CsvException("Cannot access constructor |%s|. Root cause: %s", constructor, e.getMessage());
+      }
+    }
+
+    @Override
+    T create(Object[] values)
+    {
+      Object[] arguments = defaults.clone();
+      for(int i = 0; i < parameters.length; ++i) {
+        if(parameters[i] != -1 && values[i] != null) {
+          arguments[parameters[i]] = values[i];
+        }
+      }
+
+      T instance;
+      try {
+        @SuppressWarnings("unchecked")
+        T object = (T)(Object)factory.invokeExact(arguments);
+        instance = object;
+        for(int i = 0; i < setters.length; ++i) {
+          if(setters[i] != null && values[i] != null) {
+            setters[i].invokeExact((Object)instance, values[i]);
+          }
+        }
+      }
+      catch(ClassCastException e) {
+        throw new CsvException("Column value type does not match constructor |%s| parameter type. Root cause: %s", constructor, e.getMessage());
+      }
+      catch(RuntimeException | Error e) {
+        throw e;
+      }
+      catch(Throwable t) {
+        throw new CsvException("Cannot create instance with constructor |%s|. Root cause: %s", constructor, t);
+      }
+      return instance;
+    }
+
+    @Override
+    Object get(T instance, int column)
+    {
+      if(getters[column] == null) {
+        throw new CsvException("Missing field |%s#%s|", descriptor.type(), descriptor.columns().get(column).fieldName());
+      }
+      try {
+        return (Object)getters[column].invokeExact((Object)instance);
+      }
+      catch(RuntimeException | Error e) {
+        throw e;
+      }
+      catch(Throwable t) {
+        throw new CsvException("Cannot get field value. Root cause: %s", t);
+      }
+    }
+
+    private static int indexOf(String[] names, String name)
+    {
+      for(int i = 0; i < names.length; ++i) {
+        if(names[i].equals(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * CSV reader for multiple files sharing the same descriptor, iterated as a single records sequence. Every file is read
+ * by its own {@link CsvReaderImpl} so that header, if enabled, is processed on every file; GZIP compressed files are
+ * transparently decompressed, see {@link CsvFactoryImpl#getReader(CsvDescriptor, Path)}.
+ * <p>
+ * If header is enabled, headers of all files are read before reading records: descriptor columns, if not already
+ * defined, are loaded from the first file with header and the headers of all files should be the same; empty files are
+ * ignored. A file with different header is rejected with CSV exception on reader creation.
+ * <p>
+ * Files can be read concurrently, with configured parallelism. Reading threads push records in chunks on bounded
+ * queues, so that a slow consumer does not lead to unbounded memory use. On ordered mode records are returned in files
+ * order, every file having its own queue; on unordered mode all files share a single queue and records are returned as
+ * soon as they are available. Note that on concurrent mode descriptor column formatters are used by multiple threads
+ * and should be thread safe.
+ * <p>
+ * This class is not thread safe, that is, it should be iterated by a single thread.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvMultiReader<T> implements CsvReader<T>
+{
+  private static final Log log = LogFactory.getLog(CsvMultiReader.class);
+
+  /** Number of records pushed on queue by reading threads at once. */
+  private static final int CHUNK_SIZE = 1024;
+  /** Maximum number of chunks a queue can hold before reading threads block. */
+  private static final int QUEUE_CAPACITY = 16;
+
+  private final CsvFactoryImpl factory;
+  private final CsvDescriptor<T> descriptor;
+  private final List<Path> files;
+
+  /** Executor for concurrent reading, null on sequential mode. */
+  private final ExecutorService executor;
+  /** Chunk queue per file; on unordered mode all items point to the same queue. Null on sequential mode. */
+  private final BlockingQueue<Chunk<T>>[] queues;
+
+  /** Number of files completely read. */
+  private int filesCount;
+  /** Reader for current file, used on sequential mode. */
+  private CsvReader<T> reader;
+  /** Records iterator for current chunk, used on concurrent mode. */
+  private Iterator<T> chunk;
+  /** A record is available but not yet consumed by {@link #next()}. */
+  private boolean pending;
+
+  /**
+   * Create sequential reader for given files. Files are read one after another, in list order.
+   *
+   * @param descriptor CSV descriptor,
+   * @param files CSV files.
+   * @throws IOException if reading files header fails.
+   * @throws CsvException if files headers are not the same.
+   */
+  public CsvMultiReader(CsvDescriptor<T> descriptor, List<Path> files) throws IOException
+  {
+    this(descriptor, files, 1, true);
+  }
+
+  /**
+   * Create reader for given files, reading concurrently if parallelism is greater than one.
+   *
+   * @param descriptor CSV descriptor,
+   * @param files CSV files,
+   * @param parallelism maximum number of files read concurrently,
+   * @param ordered if true return records in files order.
+   * @throws IOException if reading files header fails.
+   * @throws CsvException if files headers are not the same.
+   */
+  @SuppressWarnings("unchecked")
+  public CsvMultiReader(CsvDescriptor<T> descriptor, List<Path> files, int parallelism, boolean ordered) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(files, "CSV files");
+    Params.GT(parallelism, 0, "Parallelism");
+    log.trace("CsvMultiReader(CsvDescriptor<T>,List<Path>,int,boolean)");
+
+    this.factory = new CsvFactoryImpl();
+    this.descriptor = descriptor;
+    this.files = new ArrayList<>(files);
+
+    // descriptor load from header is not thread safe; ensure columns are loaded before starting reading threads
+    if(descriptor.format().header()) {
+      checkHeaders();
+    }
+
+    if(parallelism == 1 || files.size() < 2) {
+      this.executor = null;
+      this.queues = null;
+      return;
+    }
+
+    this.executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()), new DaemonThreadFactory("csv-reader-"));
+    this.queues = new BlockingQueue[files.size()];
+    BlockingQueue<Chunk<T>> sharedQueue = ordered ? null : new ArrayBlockingQueue<>(QUEUE_CAPACITY * parallelism);
+    for(int i = 0; i < queues.length; ++i) {
+      final BlockingQueue<Chunk<T>> queue = ordered ? new ArrayBlockingQueue<>(QUEUE_CAPACITY) : sharedQueue;
+      final Path file = this.files.get(i);
+      queues[i] = queue;
+      // executor starts tasks in submit order so on ordered mode the file currently consumed is always in progress
+      executor.execute(() -> produce(file, queue));
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Get files from directory matching given glob pattern, sorted by file name.
+   *
+   * @param directory directory to scan,
+   * @param glob glob pattern, e.g. <code>part-*.csv.gz</code>.
+   * @return sorted list of matching files, possibly empty.
+   * @throws IOException if directory reading fails.
+   */
+  public static List<Path> files(Path directory, String glob) throws IOException
+  {
+    Params.notNull(directory, "Directory");
+    Params.notNullOrEmpty(glob, "Glob pattern");
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+      for(Path file : stream) {
+        if(Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    }
+    Collections.sort(files);
+    return files;
+  }
+
+  @Override
+  public boolean hasNext()
+  {
+    // file reader parses a new record on every hasNext() so take care to not skip a pending record
+    if(!pending) {
+      pending = executor == null ? hasNextSequential() : hasNextConcurrent();
+    }
+    return pending;
+  }
+
+  @Override
+  public T next()
+  {
+    if(!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    pending = false;
+    return executor == null ? reader.next() : chunk.next();
+  }
+
+  @Override
+  public Iterator<T> iterator()
+  {
+    return this;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(executor != null) {
+      // interrupt reading threads possibly blocked on full queues
+      executor.shutdownNow();
+    }
+    if(reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Read header of every file and check it is the same as the header of the first file with header. Descriptor
+   * columns, if not defined, are loaded from the first file with header. Empty files are ignored.
+   *
+   * @throws IOException if file reading fails.
+   * @throws CsvException if a file header is not the same as first file header.
+   */
+  private void checkHeaders() throws IOException
+  {
+    Path firstFile = null;
+    List<String> firstHeader = null;
+    for(Path file : files) {
+      List<String> header;
+      try (CsvReaderImpl<T> reader = (CsvReaderImpl<T>)factory.getReader(descriptor, file)) {
+        reader.hasNext();
+        header = reader.header();
+      }
+      if(header == null) {
+        // empty file
+        continue;
+      }
+      if(firstHeader == null) {
+        firstFile = file;
+        firstHeader = header;
+        continue;
+      }
+      if(!header.equals(firstHeader)) {
+        throw new CsvException("CSV file |%s| header |%s| does not match file |%s| header |%s|.", file, header, firstFile, firstHeader);
+      }
+    }
+  }
+
+  private boolean hasNextSequential()
+  {
+    while(reader == null || !reader.hasNext()) {
+      if(reader != null) {
+        try {
+          reader.close();
+        }
+        catch(IOException e) {
+          log.error(e);
+        }
+        reader = null;
+        ++filesCount;
+      }
+      if(filesCount == files.size()) {
+        return false;
+      }
+      try {
+        reader = factory.getReader(descriptor, files.get(filesCount));
+      }
+      catch(IOException e) {
+        throw new CsvException("Cannot open CSV file |%s|. Root cause: %s", files.get(filesCount), e.getMessage());
+      }
+    }
+    return true;
+  }
+
+  private boolean hasNextConcurrent()
+  {
+    while(chunk == null || !chunk.hasNext()) {
+      if(filesCount == files.size()) {
+        return false;
+      }
+
+      Chunk<T> next;
+      try {
+        next = queues[filesCount].take();
+      }
+      catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CsvException("Interrupted while waiting for CSV records.");
+      }
+
+      if(next.error != null) {
+        throw new CsvException("Cannot read CSV file |%s|. Root cause: %s", next.file, next.error);
+      }
+      if(next.records == null) {
+        // end of file marker
+        ++filesCount;
+        continue;
+      }
+      chunk = next.records.iterator();
+    }
+    return true;
+  }
+
+  /**
+   * Read all records from given file and push them on queue, in chunks. Terminate with end of file marker or with
+   * error chunk if reading fails.
+   *
+   * @param file CSV file,
+   * @param queue chunks queue.
+   */
+  private void produce(Path file, BlockingQueue<Chunk<T>> queue)
+  {
+    try {
+      Chunk<T> last;
+      try (CsvReader<T> reader = factory.getReader(descriptor, file)) {
+        List<T> records = new ArrayList<>(CHUNK_SIZE);
+        for(T record : reader) {
+          records.add(record);
+          if(records.size() == CHUNK_SIZE) {
+            queue.put(new Chunk<>(file, records, null));
+            records = new ArrayList<>(CHUNK_SIZE);
+          }
+        }
+        if(!records.isEmpty()) {
+          queue.put(new Chunk<>(file, records, null));
+        }
+        last = new Chunk<>(file, null, null);
+      }
+      catch(IOException | RuntimeException e) {
+        log.error(e);
+        last = new Chunk<>(file, null, e);
+      }
+      queue.put(last);
+    }
+    catch(InterruptedException e) {
+      // reader was closed before consuming all records
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Records chunk from a file. Chunk with null records is end of file marker; if error is not null file reading
+   * failed.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Chunk<T>
+  {
+    final Path file;
+    final List<T> records;
+    final Throwable error;
+
+    Chunk(Path file, List<T> records, Throwable error)
+    {
+      this.file = file;
+      this.records = records;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.jslib.csv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Writer for large exports that formats records on multiple threads and writes them in original order. Input records
+ * are split in chunks of configured size; every chunk is formatted and encoded to bytes by a {@link CsvWriterImpl} on a
+ * fork-join pool worker and encoded chunks are written to output stream in input order. Header, if enabled, is written
+ * by the writer of the first chunk, so output is the same as written by a single {@link CsvWriterImpl}.
+ * <p>
+ * The number of chunks in progress is bounded to twice the parallelism, so memory use does not depend on input size.
+ * Input is iterated on caller thread. Record mapper is resolved once per write and shared by chunk writers. Column
+ * formatters are used concurrently by workers; formatters that are not thread safe should be created per thread, see
+ * {@link CsvDescriptorImpl#columnPerThread(String, java.util.function.Supplier)}.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvParallelWriter<T>
+{
+  private static final Log log = LogFactory.getLog(CsvParallelWriter.class);
+
+  /** Default number of records per chunk. */
+  private static final int CHUNK_SIZE = 8192;
+
+  private final CsvDescriptor<T> descriptor;
+
+  private int chunkSize = CHUNK_SIZE;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Create parallel writer for given descriptor.
+   *
+   * @param descriptor CSV descriptor.
+   */
+  public CsvParallelWriter(CsvDescriptor<T> descriptor)
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    log.trace("CsvParallelWriter(CsvDescriptor<T>)");
+    this.descriptor = descriptor;
+  }
+
+  /**
+   * Set the number of records formatted by a worker in one task.
+   *
+   * @param chunkSize records per chunk.
+   * @return this pointer.
+   */
+  public CsvParallelWriter<T> chunkSize(int chunkSize)
+  {
+    Params.GT(chunkSize, 0, "Chunk size");
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Set the number of worker threads formatting chunks. By default uses available processors count.
+   *
+   * @param parallelism number of worker threads.
+   * @return this pointer.
+   */
+  public CsvParallelWriter<T> parallelism(int parallelism)
+  {
+    Params.GT(parallelism, 0, "Parallelism");
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Write records from iterable to output stream. Output stream is flushed but not closed.
+   *
+   * @param records records to write, none null,
+   * @param stream output bytes stream.
+   * @throws IOException if writing to output stream fails.
+   */
+  public void write(Iterable<? extends T> records, OutputStream stream) throws IOException
+  {
+    Params.notNull(records, "Records");
+    write(records.iterator(), stream);
+  }
+
+  /**
+   * Write records from stream to output stream. Records stream is consumed sequentially, on caller thread. Output
+   * stream is flushed but not closed.
+   *
+   * @param records records to write, none null,
+   * @param stream output bytes stream.
+   * @throws IOException if writing to output stream fails.
+   */
+  public void write(Stream<? extends T> records, OutputStream stream) throws IOException
+  {
+    Params.notNull(records, "Records");
+    write(records.iterator(), stream);
+  }
+
+  /**
+   * Write records from iterator to output stream. Output stream is flushed but not closed.
+   *
+   * @param records records to write, none null,
+   * @param stream output bytes stream.
+   * @throws IOException if writing to output stream fails.
+   */
+  public void write(Iterator<? extends T> records, OutputStream stream) throws IOException
+  {
+    Params.notNull(records, "Records");
+    Params.notNull(stream, "Output stream");
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    Deque<Future<ByteArrayOutputStream>> chunks = new ArrayDeque<>();
+    try {
+      boolean header = true;
+      // mapper is resolved once per write and shared by chunk writers; a compiled mapper generates classes
+      CsvMapper<T> mapper = null;
+      while(records.hasNext()) {
+        if(mapper == null) {
+          mapper = CsvMapper.of(descriptor);
+        }
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while(chunk.size() < chunkSize && records.hasNext()) {
+          chunk.add(records.next());
+        }
+
+        final boolean firstChunk = header;
+        final CsvMapper<T> chunkMapper = mapper;
+        header = false;
+        chunks.add(pool.submit(() -> format(chunk, chunkMapper, firstChunk)));
+
+        // write completed chunks in order while there are too many chunks in progress
+        while(chunks.size() >= 2 * parallelism) {
+          get(chunks.poll()).writeTo(stream);
+        }
+      }
+
+      while(!chunks.isEmpty()) {
+        get(chunks.poll()).writeTo(stream);
+      }
+      stream.flush();
+    }
+    finally {
+      for(Future<ByteArrayOutputStream> chunk : chunks) {
+        chunk.cancel(true);
+      }
+      pool.shutdownNow();
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Format and encode chunk records with a writer created on worker thread, using shared record mapper. Header is
+   * written only by first chunk.
+   */
+  private ByteArrayOutputStream format(List<T> chunk, CsvMapper<T> mapper, boolean header) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (CsvWriterImpl<T> writer = new CsvWriterImpl<>(descriptor, bytes).mapper(mapper)) {
+      if(!header) {
+        writer.skipHeader();
+      }
+      writer.writeAll(chunk);
+    }
+    return bytes;
+  }
+
+  private static ByteArrayOutputStream get(Future<ByteArrayOutputStream> chunk) throws IOException
+  {
+    try {
+      return chunk.get();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for formatted chunk.");
+    }
+    catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new CsvException("Chunk formatting failed. Root cause: %s", e.getCause());
+    }
+  }
+}
@@ -0,0 +1,388 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvWriter;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.converter.Converter;
+import com.jslib.converter.ConverterRegistry;
+import com.jslib.util.Params;
+
+/**
+ * Writer routing every record to an output file chosen by record partition key, for example a date or region column.
+ * Partition files are created on given directory, named after partition key with characters not safe for file names
+ * replaced by underscore; null key is named <code>null</code>. Since replacement is not one to one, if the name of a
+ * new partition is already used by another partition, ignoring case, a <code>~n</code> suffix is appended, e.g. keys
+ * <code>New York</code> and <code>New_York</code> are written to <code>New_York.csv</code> and
+ * <code>New_York~1.csv</code>.
+ * <p>
+ * Open files count is bounded: when limit is reached the least recently used partition writer is closed and, if that
+ * partition receives records again, its file is reopened in append mode. Header, if enabled by CSV format, is written
+ * once per file. Partition files existing before this writer are truncated when first opened.
+ * <p>
+ * Optionally, partition files are rolled to a new part after a number of records or bytes; in that case part index is
+ * appended to file name, e.g. <code>eu-00000.csv</code>, <code>eu-00001.csv</code>. Bytes limit is checked after every
+ * record, with encoded bytes count, so a part can exceed limit by at most one record.
+ * <p>
+ * This writer is not thread safe.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvPartitionedWriter<T> implements CsvWriter<T>
+{
+  private static final Log log = LogFactory.getLog(CsvPartitionedWriter.class);
+
+  /** Default maximum number of partition files open at once. */
+  private static final int MAX_OPEN_FILES = 32;
+  /** Default partition files extension. */
+  private static final String EXTENSION = ".csv";
+
+  private final CsvDescriptor<T> descriptor;
+  private final Path directory;
+  private final Function<? super T, ?> partitionKey;
+
+  /** All partitions seen by this writer, with their rolling state, in creation order. */
+  private final Map<String, Partition> partitions = new LinkedHashMap<>();
+  /** Partition file names, lower case, mapped to partition keys; used to keep file names unique. */
+  private final Map<String, String> fileNames = new HashMap<>();
+  /** Partitions with open writer, in access order, least recently used first. */
+  private final LinkedHashMap<String, Partition> openPartitions = new LinkedHashMap<>(16, 0.75F, true);
+
+  private int maxOpenFiles = MAX_OPEN_FILES;
+  private long maxRecords;
+  private long maxBytes;
+  private String extension = EXTENSION;
+
+  /**
+   * Create partitioned writer with partition key computed by given function. Partition key is converted to string with
+   * {@link String#valueOf(Object)}.
+   *
+   * @param descriptor CSV descriptor,
+   * @param directory directory for partition files, created if missing,
+   * @param partitionKey function computing record partition key.
+   * @throws IOException if directory creation fails.
+   */
+  public CsvPartitionedWriter(CsvDescriptor<T> descriptor, Path directory, Function<? super T, ?> partitionKey) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(directory, "Partitions directory");
+    Params.notNull(partitionKey, "Partition key");
+    log.trace("CsvPartitionedWriter(CsvDescriptor<T>,Path,Function<T,?>)");
+    this.descriptor = descriptor;
+    this.directory = Files.createDirectories(directory);
+    this.partitionKey = partitionKey;
+  }
+
+  /**
+   * Create partitioned writer with partition key given by the value of a descriptor column, formatted as written on
+   * CSV file, that is, with column formatter if column has one.
+   *
+   * @param descriptor CSV descriptor,
+   * @param directory directory for partition files, created if missing,
+   * @param fieldName name of the field bound to partition column.
+   * @throws IOException if directory creation fails.
+   * @throws CsvException if field is not bound to a descriptor column.
+   */
+  public CsvPartitionedWriter(CsvDescriptor<T> descriptor, Path directory, String fieldName) throws IOException
+  {
+    this(descriptor, directory, columnValue(descriptor, fieldName));
+  }
+
+  /**
+   * Set maximum number of partition files open at once.
+   *
+   * @param maxOpenFiles maximum open files count.
+   * @return this pointer.
+   */
+  public CsvPartitionedWriter<T> maxOpenFiles(int maxOpenFiles)
+  {
+    Params.GT(maxOpenFiles, 0, "Maximum open files");
+    this.maxOpenFiles = maxOpenFiles;
+    return this;
+  }
+
+  /**
+   * Roll partition file to a new part after given number of records.
+   *
+   * @param maxRecords maximum records per file, 0 for no limit.
+   * @return this pointer.
+   */
+  public CsvPartitionedWriter<T> maxRecords(long maxRecords)
+  {
+    Params.GTE(maxRecords, 0, "Maximum records");
+    this.maxRecords = maxRecords;
+    return this;
+  }
+
+  /**
+   * Roll partition file to a new part after given number of bytes, header included.
+   *
+   * @param maxBytes maximum bytes per file, 0 for no limit.
+   * @return this pointer.
+   */
+  public CsvPartitionedWriter<T> maxBytes(long maxBytes)
+  {
+    Params.GTE(maxBytes, 0, "Maximum bytes");
+    this.maxBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Set partition files extension, by default <code>.csv</code>.
+   *
+   * @param extension file extension, with leading dot.
+   * @return this pointer.
+   */
+  public CsvPartitionedWriter<T> extension(String extension)
+  {
+    Params.notNull(extension, "File extension");
+    this.extension = extension;
+    return this;
+  }
+
+  @Override
+  public void write(T object) throws IOException
+  {
+    Params.notNull(object, "Object argument");
+    String key = String.valueOf(partitionKey.apply(object));
+
+    Partition partition = openPartitions.get(key);
+    if(partition == null) {
+      partition = partitions.computeIfAbsent(key, Partition::new);
+      open(partition);
+    }
+
+    partition.writer.write(object);
+    ++partition.records;
+    if((maxRecords > 0 && partition.records >= maxRecords) || (maxBytes > 0 && partition.size() >= maxBytes)) {
+      close(partition);
+      partition.roll();
+    }
+  }
+
+  /**
+   * Get partition files created so far, in partitions creation order and, for every partition, in parts order.
+   *
+   * @return partition files.
+   */
+  public List<Path> files()
+  {
+    List<Path> files = new ArrayList<>();
+    for(Partition partition : partitions.values()) {
+      for(int part = 0; part <= partition.part; ++part) {
+        if(part < partition.part || partition.created) {
+          files.add(file(partition.fileName, part));
+        }
+      }
+    }
+    return files;
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    for(Partition partition : openPartitions.values()) {
+      partition.writer.flush();
+    }
+  }
+
+  /**
+   * Close all open partition files. All files are closed even if closing one fails; first exception is thrown after
+   * all files are closed.
+   *
+   * @throws IOException if closing a partition file fails.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    IOException exception = null;
+    Iterator<Partition> iterator = openPartitions.values().iterator();
+    while(iterator.hasNext()) {
+      Partition partition = iterator.next();
+      iterator.remove();
+      try {
+        partition.close();
+      }
+      catch(IOException e) {
+        if(exception == null) {
+          exception = e;
+        }
+      }
+    }
+    if(exception != null) {
+      throw exception;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Open partition writer, closing least recently used partition if open files limit is reached. Partition file is
+   * truncated if not yet created by this writer and opened in append mode, with header skipped, otherwise.
+   */
+  private void open(Partition partition) throws IOException
+  {
+    if(openPartitions.size() >= maxOpenFiles) {
+      Iterator<Partition> iterator = openPartitions.values().iterator();
+      Partition eldest = iterator.next();
+      iterator.remove();
+      log.debug("Close least recently used partition |{}|.", eldest.key);
+      eldest.close();
+    }
+
+    Path file = file(partition.fileName, partition.part);
+    FileChannel channel;
+    if(partition.created) {
+      channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    else {
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    partition.initialSize = channel.size();
+    partition.channelWriter = new ChannelWriter(channel, descriptor.format().charset(), CsvFactoryImpl.ForcePolicy.NONE);
+    partition.writer = new CsvWriterImpl<>(descriptor, partition.channelWriter);
+    if(partition.created) {
+      partition.writer.skipHeader();
+    }
+    partition.created = true;
+    openPartitions.put(partition.key, partition);
+  }
+
+  private void close(Partition partition) throws IOException
+  {
+    openPartitions.remove(partition.key);
+    partition.close();
+  }
+
+  private Path file(String fileName, int part)
+  {
+    if(maxRecords == 0 && maxBytes == 0) {
+      return directory.resolve(fileName + extension);
+    }
+    return directory.resolve(String.format("%s-%05d%s", fileName, part, extension));
+  }
+
+  /**
+   * Get file name for a new partition, unique among partitions of this writer. Comparison ignores case so that names
+   * are unique on case insensitive file systems too.
+   */
+  private String uniqueFileName(String key)
+  {
+    String fileName = fileName(key);
+    String uniqueFileName = fileName;
+    for(int index = 1; fileNames.putIfAbsent(uniqueFileName.toLowerCase(Locale.ROOT), key) != null; ++index) {
+      uniqueFileName = fileName + '~' + index;
+    }
+    if(!uniqueFileName.equals(fileName)) {
+      log.debug("Partition |{}| file name |{}| already used. Rename to |{}|.", key, fileName, uniqueFileName);
+    }
+    return uniqueFileName;
+  }
+
+  /** Replace characters not safe for file names, including path separators, with underscore. */
+  private static String fileName(String key)
+  {
+    if(key.isEmpty()) {
+      return "_";
+    }
+    StringBuilder fileName = new StringBuilder(key.length());
+    for(int i = 0; i < key.length(); ++i) {
+      char c = key.charAt(i);
+      fileName.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || (c == '.' && i > 0) ? c : '_');
+    }
+    return fileName.toString();
+  }
+
+  private static <T> Function<T, String> columnValue(CsvDescriptor<T> descriptor, String fieldName)
+  {
+    Params.notNullOrEmpty(fieldName, "Field name");
+    List<CsvColumn> columns = descriptor.columns();
+    for(int i = 0; i < columns.size(); ++i) {
+      if(!columns.get(i).fieldName().equals(fieldName)) {
+        continue;
+      }
+      final int columnIndex = i;
+      final CsvColumn column = columns.get(i);
+      final Converter converter = ConverterRegistry.getConverter();
+      final CsvMapper<T> mapper = CsvMapper.of(descriptor);
+      return record -> {
+        Object value = mapper.get(record, columnIndex);
+        if(value == null) {
+          return null;
+        }
+        return column.formatter() != null ? column.formatter().format(value) : converter.asString(value);
+      };
+    }
+    throw new CsvException("Missing column for field |%s|.", fieldName);
+  }
+
+  /**
+   * Partition state, kept after partition writer is closed so that partition file is reopened in append mode and
+   * rolling continues with current part.
+   *
+   * @author Iulian Rotaru
+   */
+  private final class Partition
+  {
+    final String key;
+    final String fileName;
+    /** Current part index, always 0 if rolling is not enabled. */
+    int part;
+    /** Records written on current part. */
+    long records;
+    /** Current part file was created by this writer, so that it is reopened in append mode. */
+    boolean created;
+
+    /** Current part file size when writer was opened. */
+    long initialSize;
+    ChannelWriter channelWriter;
+    CsvWriterImpl<T> writer;
+
+    Partition(String key)
+    {
+      this.key = key;
+      this.fileName = uniqueFileName(key);
+    }
+
+    /** Current part file size, including bytes not yet written to file. */
+    long size()
+    {
+      return initialSize + channelWriter.size();
+    }
+
+    void roll()
+    {
+      ++part;
+      records = 0;
+      created = false;
+    }
+
+    void close() throws IOException
+    {
+      try {
+        writer.close();
+      }
+      finally {
+        writer = null;
+        channelWriter = null;
+      }
+    }
+  }
+}
@@ -6,11 +6,16 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import com.jslib.api.csv.CsvColumn;
 import com.jslib.api.csv.CsvDescriptor;
@@ -22,57 +27,312 @@ import com.jslib.api.log.LogFactory;
 import com.jslib.converter.Converter;
 import com.jslib.converter.ConverterException;
 import com.jslib.converter.ConverterRegistry;
-import com.jslib.format.Format;
-import com.jslib.util.Classes;
 import com.jslib.util.Params;
-import com.jslib.util.Strings;
 
 public class CsvReaderImpl<T> implements CsvReader<T>
 {
   private static final Log log = LogFactory.getLog(CsvReaderImpl.class);
 
+  /** Batch list initial capacity limit, so that a large maximum batch size does not allocate in advance. */
+  private static final int BATCH_INITIAL_CAPACITY = 1024;
+  /** Marker returned by {@link #_parseRecord()} for a record skipped because it exceeds a parsing limit. */
+  private static final List<String> SKIPPED = Collections.unmodifiableList(new ArrayList<String>(0));
+
   private final Converter converter;
   private final Reader reader;
   private final CsvDescriptor<T> descriptor;
   private final CsvFormat format;
+  /** Charset used to decode bytes stream, possibly detected from byte order mark or stream head sample. */
+  private final Charset charset;
+  /** Character encoding used to compute byte offsets while parsing, see {@link #recordOffset()}. */
+  private final Encoding encoding;
+
+  /**
+   * Null value from CSV format. Tokenizer detects null values on raw characters and adds this instance to record
+   * values, so that null values are recognized by reference, see {@link #isNull(String, String)}.
+   */
+  private final String nullValue;
+  /** Null value upper case characters, for case insensitive compare on raw characters; null if no null value. */
+  private final char[] nullUpperCase;
+  /** Lower case of null value upper case characters, as {@link String#equalsIgnoreCase(String)} does. */
+  private final char[] nullLowerCase;
 
   /** Values for a single CSV row. Values are updated by {@link #parseRecord()} and consumed by {@link #next()}. */
   private List<String> values;
 
   private boolean headerProcessed;
+  /** Header values, null if header is not enabled or not yet processed. */
+  private List<String> header;
+  /** Raw header text, null if header is not enabled or not processed, or if raw records are not collected. */
+  private String rawHeader;
+
+  /** Record mapper, created on first record, after descriptor columns are loaded. */
+  private CsvMapper<T> mapper;
+  /** Converted field values indexed by column, reused for all records. */
+  private Object[] fieldValues;
+  /** Column value parsers resolved with record mapper, null items for missing fields. */
+  private CsvValueParser[] parsers;
+
+  /** Per column string caches, null for not interned columns, see {@link CsvDescriptorImpl#intern(String...)}. */
+  private StringCache[] caches;
+
+  /** Byte offset, on source stream, of the next character to be read. */
+  private long offset;
+  /** Byte offset saved on characters reader mark and restored on reset. */
+  private long markOffset;
+  /** Byte offset where current record starts, updated by {@link #_parseRecord()}. */
+  private long recordOffset;
+  /** Offset, in characters, of the next character to be read. */
+  private long charOffset;
+  /** Line number, 1 based, of the next character to be read. */
+  private long line = 1;
+  /** Last character read, used to count CR LF as a single line end. */
+  private int lastChar = -1;
+  /** Characters offset, line number and last character saved on characters reader mark and restored on reset. */
+  private long markCharOffset;
+  private long markLine;
+  private int markLastChar;
+  /** Characters offset and line number where current record starts, updated by {@link #_parseRecord()}. */
+  private long recordCharOffset;
+  private long recordLine;
+  /** Current record was terminated by end of line, as opposed to end of stream. */
+  private boolean recordComplete;
+  /** Current record was terminated by CR at end of stream, that could be the first character of a CR LF line end. */
+  private boolean lineEndTruncated;
+  /** First character was read, after byte order mark character check. */
+  private boolean streamStarted;
+
+  /** Maximum characters count of a value, after quotes removal. */
+  private int maxFieldLength = Integer.MAX_VALUE;
+  /** Maximum values count of a record. */
+  private int maxColumns = Integer.MAX_VALUE;
+  /** Maximum characters count of a record, including delimiters and quotes but not line end characters. */
+  private int maxRecordLength = Integer.MAX_VALUE;
+  /** Number of records skipped because exceeding a parsing limit. */
+  private long skippedRecords;
+
+  /** Handler for rejected records, null if rejects are logged. */
+  private CsvRejectHandler rejectHandler;
+  /**
+   * Raw characters of the record being parsed, truncated to {@link #rawRecordLimit}; collected only if reject handler
+   * is set or raw records are requested, see {@link #keepRawRecord()}.
+   */
+  private StringBuilder rawRecord;
+  /** Maximum raw record length. */
+  private int rawRecordLimit;
+  /** Raw record length saved on characters reader mark and restored on reset. */
+  private int rawMarkLength;
 
   /**
-   * Create CSV reader using character encoding configured in the CSV format from given CSV descriptor.
+   * Create CSV reader using character encoding configured in the CSV format from given CSV descriptor. If stream starts
+   * with a byte order mark, byte order mark is skipped and its charset is used instead, see {@link CharsetDetector}.
    * 
    * @param descriptor CSV descriptor,
    * @param stream bytes input stream.
    */
   public CsvReaderImpl(CsvDescriptor<T> descriptor, InputStream stream)
   {
-    this(descriptor, reader(stream, descriptor));
-    log.trace("CsvReaderImpl(CsvDescriptor<T>,InputStream)");
+    this(descriptor, stream, false);
+  }
+
+  /**
+   * Create CSV reader with byte order mark detection and, optionally, with UTF-8 detection from stream head sample. If
+   * sampling is enabled, there is no byte order mark and format charset is a single byte one, UTF-8 is used if stream
+   * head is valid UTF-8 with multi-byte sequences; otherwise format charset is used. See {@link CharsetDetector}.
+   * <p>
+   * Byte offsets are relative to stream start, byte order mark included, so that they can be used to seek on source
+   * file.
+   * 
+   * @param descriptor CSV descriptor,
+   * @param stream bytes input stream,
+   * @param sampleCharset enable UTF-8 detection from stream head sample.
+   */
+  public CsvReaderImpl(CsvDescriptor<T> descriptor, InputStream stream, boolean sampleCharset)
+  {
+    this(descriptor, CharsetDetector.detect(stream, charset(descriptor), sampleCharset));
+    log.trace("CsvReaderImpl(CsvDescriptor<T>,InputStream,boolean)");
+  }
+
+  private CsvReaderImpl(CsvDescriptor<T> descriptor, CharsetDetector detector)
+  {
+    this(descriptor, new BufferedReader(new InputStreamReader(detector.stream(), detector.charset())), detector.charset());
+    this.offset = detector.bomLength();
   }
 
-  private static Reader reader(InputStream stream, CsvDescriptor<?> descriptor)
+  private static Charset charset(CsvDescriptor<?> descriptor)
   {
     Params.notNull(descriptor, "CSV descriptor");
     Params.notNull(descriptor.format(), "CSV descriptor format");
-    return new BufferedReader(new InputStreamReader(stream, descriptor.format().charset()));
+    return descriptor.format().charset();
   }
 
   /**
-   * Create CSV reader using platform default character set.
+   * Create CSV reader for characters stream. Byte offsets are computed with the charset configured on CSV format. A
+   * leading byte order mark character, if any, is skipped.
    * 
    * @param descriptor CSV descriptor,
-   * @param reader source characters stream with default encoding.
+   * @param reader source characters stream.
    */
   public CsvReaderImpl(CsvDescriptor<T> descriptor, Reader reader)
+  {
+    this(descriptor, reader, charset(descriptor));
+  }
+
+  private CsvReaderImpl(CsvDescriptor<T> descriptor, Reader reader, Charset charset)
   {
     log.trace("CsvReaderImpl(CsvDescriptor<T>,Reader)");
     this.converter = ConverterRegistry.getConverter();
-    this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+    this.reader = reader instanceof BufferedReader || reader instanceof ChannelReader ? reader : new BufferedReader(reader);
     this.descriptor = descriptor;
     this.format = descriptor.format();
+    this.charset = charset;
+    this.encoding = Encoding.of(charset);
+
+    this.nullValue = this.format.nullValue();
+    if(this.nullValue != null) {
+      this.nullUpperCase = new char[nullValue.length()];
+      this.nullLowerCase = new char[nullValue.length()];
+      for(int i = 0; i < nullUpperCase.length; ++i) {
+        nullUpperCase[i] = Character.toUpperCase(nullValue.charAt(i));
+        nullLowerCase[i] = Character.toLowerCase(nullUpperCase[i]);
+      }
+    }
+    else {
+      this.nullUpperCase = null;
+      this.nullLowerCase = null;
+    }
+
+    if(!this.format.header()) {
+      this.caches = caches(descriptor);
+    }
+  }
+
+  /**
+   * Create CSV reader for a bytes stream already positioned on a record boundary, at given byte offset. Header, if
+   * enabled, is considered already processed and descriptor columns loaded. Used to resume parsing from a record
+   * offset, see {@link #recordOffset()}. Stream is decoded with given charset, that should be the {@link #charset()}
+   * of the reader that produced the offset, so that a charset detected on CSV stream start is preserved on resume.
+   * Byte order mark is detected only if offset is zero.
+   * 
+   * @param descriptor CSV descriptor,
+   * @param stream bytes input stream positioned at record start,
+   * @param offset byte offset of stream position, relative to the CSV stream start,
+   * @param charset charset used to decode the stream.
+   */
+  CsvReaderImpl(CsvDescriptor<T> descriptor, InputStream stream, long offset, Charset charset)
+  {
+    this(descriptor, offset == 0 ? CharsetDetector.detect(stream, charset, false) : CharsetDetector.none(stream, charset));
+    this.headerProcessed = true;
+    this.offset += offset;
+    this.caches = caches(descriptor);
+  }
+
+  /**
+   * Create CSV reader for records of a file channel, to be positioned with {@link #seek(long)} before parsing. Header,
+   * if enabled, is considered already processed and descriptor columns loaded. Reader charset should be the
+   * {@link #charset()} of the reader that produced the record offsets.
+   * 
+   * @param descriptor CSV descriptor,
+   * @param reader file channel reader.
+   */
+  CsvReaderImpl(CsvDescriptor<T> descriptor, ChannelReader reader)
+  {
+    this(descriptor, reader, reader.charset());
+    this.headerProcessed = true;
+    this.caches = caches(descriptor);
+  }
+
+  /**
+   * Set maximum characters count of a value, after quotes removal. By default values length is not limited.
+   * 
+   * @param maxFieldLength maximum value length, strictly positive.
+   * @return this pointer.
+   * @see #skippedRecords()
+   */
+  public CsvReaderImpl<T> maxFieldLength(int maxFieldLength)
+  {
+    Params.GT(maxFieldLength, 0, "Maximum field length");
+    this.maxFieldLength = maxFieldLength;
+    return this;
+  }
+
+  /**
+   * Set maximum values count of a record. By default values count is not limited.
+   * 
+   * @param maxColumns maximum values count, strictly positive.
+   * @return this pointer.
+   * @see #skippedRecords()
+   */
+  public CsvReaderImpl<T> maxColumns(int maxColumns)
+  {
+    Params.GT(maxColumns, 0, "Maximum columns");
+    this.maxColumns = maxColumns;
+    return this;
+  }
+
+  /**
+   * Set maximum characters count of a record, including delimiters and quotes but not line end characters. By default
+   * record length is not limited.
+   * 
+   * @param maxRecordLength maximum record length, strictly positive.
+   * @return this pointer.
+   * @see #skippedRecords()
+   */
+  public CsvReaderImpl<T> maxRecordLength(int maxRecordLength)
+  {
+    Params.GT(maxRecordLength, 0, "Maximum record length");
+    this.maxRecordLength = maxRecordLength;
+    return this;
+  }
+
+  /**
+   * Get the number of records skipped because exceeding a parsing limit. When a limit is exceeded, record characters
+   * are discarded up to next line end and parsing resumes with the next line, so that a runaway record, e.g. with an
+   * unterminated quote, does not consume the rest of the stream into a single value. Skipped record byte range is
+   * logged. On strict mode and for header record, exceeding a limit throws CSV exception instead.
+   * 
+   * @return skipped records count.
+   */
+  public long skippedRecords()
+  {
+    return skippedRecords;
+  }
+
+  /**
+   * Set handler for records rejected on lenient mode, replacing rejects logging. A record is rejected for values count
+   * not matching columns count, for a column without bound field, for a value that cannot be parsed or converted and
+   * for exceeding a parsing limit. Handler receives raw record text, record byte offset, rejected column and cause.
+   * <p>
+   * Rejected value leaves field with its default value and record is still returned, except records exceeding a
+   * parsing limit that are skipped. On strict mode rejects throw CSV exception, as without handler.
+   * 
+   * @param rejectHandler reject handler.
+   * @return this pointer.
+   */
+  public CsvReaderImpl<T> rejectHandler(CsvRejectHandler rejectHandler)
+  {
+    Params.notNull(rejectHandler, "Reject handler");
+    this.rejectHandler = rejectHandler;
+    if(this.rawRecord == null) {
+      this.rawRecord = new StringBuilder();
+      this.rawRecordLimit = CsvReject.MAX_RECORD_LENGTH;
+    }
+    return this;
+  }
+
+  /**
+   * Collect raw record text, not truncated, so that records can be copied as found on CSV stream, see
+   * {@link #rawRecord()}. Should be called before first {@link #hasNext()}.
+   * 
+   * @return this pointer.
+   */
+  CsvReaderImpl<T> keepRawRecord()
+  {
+    if(this.rawRecord == null) {
+      this.rawRecord = new StringBuilder();
+    }
+    this.rawRecordLimit = Integer.MAX_VALUE;
+    return this;
   }
 
   @Override
@@ -95,68 +355,58 @@ public class CsvReaderImpl<T> implements CsvReader<T>
       }
     }
 
-    T instance = Classes.newInstance(descriptor.type());
+    if(mapper == null) {
+      // mapper is created on first record since descriptor columns can be loaded from CSV header
+      mapper = CsvMapper.of(descriptor);
+      fieldValues = new Object[descriptor.columns().size()];
+      parsers = new CsvValueParser[fieldValues.length];
+      for(int i = 0; i < parsers.length; ++i) {
+        if(mapper.field(i) != null) {
+          parsers[i] = CsvValueParser.of(descriptor.columns().get(i), mapper.field(i).getType(), converter);
+        }
+      }
+    }
 
     if(values.size() != descriptor.columns().size()) {
-      String message = String.format("CSV values count |%d| does not match columns count |%d|.", values.size(), descriptor.columns().size());
-      log.warn(message);
-      if(format.strict()) {
-        throw new CsvException(message);
-      }
+      reject(-1, String.format("CSV values count |%d| does not match columns count |%d|.", values.size(), descriptor.columns().size()), null);
     }
 
     int columnsCount = Math.min(descriptor.columns().size(), values.size());
     for(int i = 0; i < columnsCount; ++i) {
       CsvColumn column = descriptor.columns().get(i);
 
-      // seems like field lookup performance on recent JREs does not justify caching class fields
-      // benchmarks did not reveal any differences when using local cache
-      Field field = Classes.getOptionalFieldEx(descriptor.type(), column.fieldName());
+      Field field = mapper.field(i);
       if(field == null) {
-        String message = String.format("Missing field |%s#%s|", descriptor.type(), column.fieldName());
-        log.warn(message);
-        if(format.strict()) {
-          throw new CsvException(message);
-        }
+        reject(i, String.format("Missing field |%s#%s|", descriptor.type(), column.fieldName()), null);
         continue;
       }
 
       final String columnValue = values.get(i);
-      if(columnValue.equalsIgnoreCase(format.nullValue())) {
+      if(isNull(columnValue, nullValue)) {
+        // tokenizer adds null value instance for values recognized as null
         // if column value is recognized as null leave field with the default initialized by JVM at instance creation
         continue;
       }
 
       Object fieldValue = null;
-      Format formatter = column.formatter();
-      if(formatter != null) {
-        try {
-          fieldValue = formatter.parse(columnValue);
-        }
-        catch(ParseException e) {
-          String message = String.format("Could not set field value |%s|. Root cause: %s", field, e.getMessage());
-          log.error(message);
-          if(format.strict()) {
-            throw new CsvException(message);
-          }
-        }
+      try {
+        fieldValue = parsers[i].parse(columnValue);
       }
-      else {
-        try {
-          fieldValue = converter.asObject(columnValue, field.getType());
-        }
-        catch(ConverterException e) {
-          String message = String.format("Could not set field value |%s|. Root cause: %s", field, e.getCause() != null ? e.getCause() : e);
-          log.error(message);
-          if(format.strict()) {
-            throw new CsvException(message);
-          }
-        }
+      catch(ParseException e) {
+        reject(i, String.format("Could not set field value |%s|. Root cause: %s", field, e.getMessage()), e);
       }
-
-      if(fieldValue != null) {
-        Classes.setFieldValue(instance, field, fieldValue);
+      catch(ConverterException e) {
+        reject(i, String.format("Could not set field value |%s|. Root cause: %s", field, e.getCause() != null ? e.getCause() : e), e);
       }
+      fieldValues[i] = fieldValue;
+    }
+
+    T instance;
+    try {
+      instance = mapper.create(fieldValues);
+    }
+    finally {
+      Arrays.fill(fieldValues, null);
     }
 
     // take care to mark values as consumed
@@ -165,11 +415,114 @@ public class CsvReaderImpl<T> implements CsvReader<T>
 
   }
 
+  /**
+   * Handle rejected record: throw CSV exception on strict mode, otherwise pass reject to handler, if set, or log
+   * rejection message.
+   * 
+   * @param column rejected column index, -1 for entire record,
+   * @param message rejection message,
+   * @param cause rejection cause, possibly null.
+   * @throws CsvException if on strict mode.
+   */
+  void reject(int column, String message, Throwable cause)
+  {
+    if(format.strict()) {
+      throw new CsvException("%s Record at %s.", message, position());
+    }
+    if(rejectHandler != null) {
+      rejectHandler.reject(new CsvReject(recordLine, recordOffset(), column, rejectRecord(), message, cause));
+      return;
+    }
+    if(cause != null) {
+      log.error(message);
+    }
+    else {
+      log.warn(message);
+    }
+  }
+
+  /**
+   * Get raw text of the record parsed by last {@link #hasNext()}, as found on CSV stream but without line end. Returns
+   * null if raw records are not collected, see {@link #keepRawRecord()}.
+   * 
+   * @return raw record text, possibly null.
+   */
+  String rawRecord()
+  {
+    if(rawRecord == null) {
+      return null;
+    }
+    int length = rawRecord.length();
+    while(length > 0 && (rawRecord.charAt(length - 1) == '\n' || rawRecord.charAt(length - 1) == '\r')) {
+      --length;
+    }
+    return rawRecord.substring(0, length);
+  }
+
+  /** Raw record text for reject, truncated to {@link CsvReject#MAX_RECORD_LENGTH}. */
+  private String rejectRecord()
+  {
+    String record = rawRecord();
+    return record.length() > CsvReject.MAX_RECORD_LENGTH ? record.substring(0, CsvReject.MAX_RECORD_LENGTH) : record;
+  }
+
+  /**
+   * Parse and bind next records, at most given maximum count. Returned list is newly created and owned by caller; it is
+   * empty if there are no more records on CSV stream. A record parsed by a previous {@link #hasNext()} and not yet
+   * consumed is the first record of returned list.
+   * 
+   * @param max maximum number of records, strictly positive.
+   * @return next records, possibly empty.
+   */
+  public List<T> nextBatch(int max)
+  {
+    Params.GT(max, 0, "Batch size");
+    List<T> batch = new ArrayList<>(Math.min(max, BATCH_INITIAL_CAPACITY));
+    while(batch.size() < max) {
+      if(values == null) {
+        values = parseRecord();
+        if(values == null) {
+          break;
+        }
+      }
+      batch.add(next());
+    }
+    return batch;
+  }
+
+  /**
+   * Parse and bind all remaining records in batches of given size and pass every batch to consumer. Last batch can be
+   * smaller than batch size. Every batch is a new list and consumer is free to keep it. This method does not close the
+   * reader.
+   * 
+   * @param size batch size, strictly positive,
+   * @param consumer batches consumer.
+   */
+  public void forEachBatch(int size, Consumer<List<T>> consumer)
+  {
+    Params.GT(size, 0, "Batch size");
+    Params.notNull(consumer, "Batch consumer");
+    for(;;) {
+      List<T> batch = nextBatch(size);
+      if(batch.isEmpty()) {
+        break;
+      }
+      consumer.accept(batch);
+    }
+  }
+
   private List<String> parseRecord()
   {
     try {
+      if(!streamStarted) {
+        streamStarted = true;
+        skipByteOrderMark();
+      }
       for(;;) {
         List<String> values = _parseRecord();
+        if(values == SKIPPED) {
+          continue;
+        }
 
         // header processing
         if(format.header() && !headerProcessed) {
@@ -178,7 +531,10 @@ public class CsvReaderImpl<T> implements CsvReader<T>
             log.info("Empty CSV stream for type |{java_type}|.", descriptor.type());
             return null;
           }
+          header = values;
+          rawHeader = rawRecord();
           descriptor.load(values);
+          caches = caches(descriptor);
           // after header processed continue CSV stream parsing
           continue;
         }
@@ -207,14 +563,18 @@ public class CsvReaderImpl<T> implements CsvReader<T>
 
   private List<String> _parseRecord() throws IOException
   {
+    recordStart();
+    recordComplete = false;
+    lineEndTruncated = false;
     List<String> values = new ArrayList<>();
     StringBuilder valueBuilder = new StringBuilder();
     State state = State.RECORD_START;
     boolean escapeDetected = false;
     boolean closeQuoteDetected = false;
+    int recordLength = 0;
 
     RECORD: for(;;) {
-      int i = reader.read();
+      int i = read();
       if(i == -1) {
         if(values.isEmpty() && valueBuilder.length() == 0) {
           // if encounter EOS when value builder is empty and there are no values on current record return null, to mark
@@ -225,10 +585,16 @@ public class CsvReaderImpl<T> implements CsvReader<T>
           return null;
         }
         // here we have EOS but we have some values on row; handle EOS as EOL
+        // record is not marked as complete since source stream could be still in progress
         addValue(values, valueBuilder);
         return values;
       }
       final char c = (char)i;
+      // line end characters are not counted so that a record ending exactly at the limit is not skipped together with
+      // the next record
+      if(c != '\n' && c != '\r' && ++recordLength > maxRecordLength) {
+        return skipRecord("record length", maxRecordLength);
+      }
 
       switch(state) {
       case RECORD_START:
@@ -251,6 +617,9 @@ public class CsvReaderImpl<T> implements CsvReader<T>
 
         if(Character.isWhitespace(c)) {
           // collect white spaces while waiting to decide if complex value
+          if(valueBuilder.length() == maxFieldLength) {
+            return skipRecord("field length", maxFieldLength);
+          }
           valueBuilder.append(c);
           break;
         }
@@ -273,10 +642,16 @@ public class CsvReaderImpl<T> implements CsvReader<T>
         }
 
         if(c != format.delimiter()) {
+          if(valueBuilder.length() == maxFieldLength) {
+            return skipRecord("field length", maxFieldLength);
+          }
           valueBuilder.append(c);
         }
         else {
           addValue(values, valueBuilder);
+          if(values.size() == maxColumns) {
+            return skipRecord("columns", maxColumns);
+          }
           valueBuilder.setLength(0);
           state = State.VALUE_START;
         }
@@ -298,27 +673,233 @@ public class CsvReaderImpl<T> implements CsvReader<T>
           }
           if(c == format.delimiter()) {
             addValue(values, valueBuilder);
+            if(values.size() == maxColumns) {
+              return skipRecord("columns", maxColumns);
+            }
             valueBuilder.setLength(0);
             state = State.VALUE_START;
             continue;
           }
         }
         escapeDetected = false;
+        if(valueBuilder.length() == maxFieldLength) {
+          return skipRecord("field length", maxFieldLength);
+        }
         valueBuilder.append(c);
         break;
 
       // on comment processing just wait for EOL
       case COMMENT:
         if(isEOL(c)) {
+          // record starts after comment line
           state = State.RECORD_START;
+          recordLength = 0;
+          recordStart();
         }
         break;
       }
     }
 
+    recordComplete = !lineEndTruncated;
     return values;
   }
 
+  /**
+   * Skip byte order mark character left by characters stream decoder, e.g. an UTF-8 input stream reader, so that it
+   * does not leak into first header name or value. Byte order mark bytes are counted on byte offset, but characters
+   * offset starts after it, as for byte order mark detected on bytes stream.
+   */
+  private void skipByteOrderMark() throws IOException
+  {
+    mark();
+    if(read() == '\uFEFF') {
+      charOffset = 0;
+      lastChar = -1;
+      return;
+    }
+    reset();
+  }
+
+  /** Save current position as record start and clear raw record characters. */
+  private void recordStart()
+  {
+    recordOffset = offset;
+    recordCharOffset = charOffset;
+    recordLine = line;
+    if(rawRecord != null) {
+      rawRecord.setLength(0);
+    }
+  }
+
+  /**
+   * Handle a record exceeding a parsing limit: throw CSV exception on strict mode or for header record, otherwise
+   * discard record characters up to next line end. Line end is searched ignoring quotes since a runaway record is most
+   * likely caused by a missing close quote.
+   * 
+   * @param limit limit display name,
+   * @param value limit value.
+   * @return skipped record marker.
+   * @throws IOException if reading from characters stream fails.
+   * @throws CsvException if on strict mode or record is the header.
+   */
+  private List<String> skipRecord(String limit, int value) throws IOException
+  {
+    if(format.strict() || (format.header() && !headerProcessed)) {
+      throw new CsvException("Record at %s exceeds maximum %s |%d|.", position(), limit, value);
+    }
+    for(;;) {
+      int i = read();
+      if(i == -1 || isEOL((char)i)) {
+        break;
+      }
+    }
+    ++skippedRecords;
+    String message = String.format("Skip record at %s up to byte offset |%d|. Record exceeds maximum %s |%d|.", position(), offset(), limit, value);
+    if(rejectHandler != null) {
+      rejectHandler.reject(new CsvReject(recordLine, recordOffset(), -1, rejectRecord(), message, null));
+    }
+    else {
+      log.warn(message);
+    }
+    return SKIPPED;
+  }
+
+  /**
+   * Get the charset used to decode bytes stream. This is the format charset unless overridden by a byte order mark or
+   * by stream head sampling, see {@link CharsetDetector}.
+   * 
+   * @return stream charset.
+   */
+  public Charset charset()
+  {
+    return charset;
+  }
+
+  /**
+   * Get byte offset, relative to CSV stream start, of the record parsed by last {@link #hasNext()}. Offset is
+   * computed from character encoding configured on CSV format and is meaningful only if this reader was created from
+   * a bytes stream. Returns -1 if format charset is not supported for offsets computation.
+   * <p>
+   * Offset is counted from decoded characters, not from source bytes. Malformed input, e.g. invalid UTF-8 sequences,
+   * is decoded to replacement character whose encoded length is not the length of the malformed bytes, so offsets of
+   * records after malformed input drift without any error. Offsets, and indexes and checkpoints built on them, are
+   * reliable only for well formed input.
+   * 
+   * @return current record byte offset or -1.
+   */
+  public long recordOffset()
+  {
+    return encoding != Encoding.UNSUPPORTED ? recordOffset : -1;
+  }
+
+  /**
+   * Get offset, in characters, of the record parsed by last {@link #hasNext()}. Offset is relative to the position
+   * where this reader started, that is, CSV stream start or resume offset.
+   * 
+   * @return current record characters offset.
+   */
+  public long recordCharOffset()
+  {
+    return recordCharOffset;
+  }
+
+  /**
+   * Get line number, 1 based, where the record parsed by last {@link #hasNext()} starts. LF, CR and CR LF are counted
+   * as line ends, including those inside quoted values. Lines are counted from the position where this reader started,
+   * that is, CSV stream start or resume offset.
+   * 
+   * @return current record line number.
+   */
+  public long recordLine()
+  {
+    return recordLine;
+  }
+
+  /** Current record position, for error messages. */
+  private String position()
+  {
+    return String.format("line |%d|, byte offset |%d|", recordLine, recordOffset());
+  }
+
+  /**
+   * Get byte offset, relative to CSV stream start, of the next character to be parsed. After {@link #hasNext()} this is
+   * the end offset of the current record. See {@link #recordOffset()} for offsets computation.
+   * 
+   * @return current byte offset or -1.
+   */
+  long offset()
+  {
+    return encoding != Encoding.UNSUPPORTED ? offset : -1;
+  }
+
+  /**
+   * Test if the record parsed by last {@link #hasNext()} was terminated by end of line. Returns false if record was
+   * terminated by end of stream, in which case record could be incomplete if source stream is still written. Returns
+   * false also for a record terminated by CR at end of stream, since CR could be followed by LF not yet written.
+   * 
+   * @return true if current record is terminated by end of line.
+   */
+  boolean recordComplete()
+  {
+    return recordComplete;
+  }
+
+  /**
+   * Get raw values of the record parsed by last {@link #hasNext()}, before binding to instance fields. Returns null if
+   * there is no record or it was already consumed by {@link #next()}.
+   * 
+   * @return current record values, possibly null.
+   */
+  List<String> values()
+  {
+    return values;
+  }
+
+  /**
+   * Get raw header values, as found on CSV stream. Returns null if header is not enabled or not yet processed, that
+   * is, before first {@link #hasNext()}.
+   * 
+   * @return header values, possibly null.
+   */
+  List<String> header()
+  {
+    return header;
+  }
+
+  /**
+   * Get raw header text, as found on CSV stream but without line end. Returns null if header is not enabled or not
+   * yet processed, or if raw records are not collected, see {@link #keepRawRecord()}.
+   * 
+   * @return raw header text, possibly null.
+   */
+  String rawHeader()
+  {
+    return rawHeader;
+  }
+
+  /**
+   * Move reader to record starting at given byte offset, discarding current record, if any, so that the same reader,
+   * with its buffers and caches, can parse records from many offsets. Line numbers are counted from given offset.
+   * Supported only by readers created on a file channel reader.
+   * 
+   * @param offset byte offset of record start, see {@link #recordOffset()}.
+   * @throws CsvException if this reader is not created on a file channel reader.
+   */
+  void seek(long offset)
+  {
+    if(!(reader instanceof ChannelReader)) {
+      throw new CsvException("Seek not supported by CSV reader for |%s|.", reader.getClass());
+    }
+    ((ChannelReader)reader).position(offset);
+    this.offset = offset;
+    this.charOffset = 0;
+    this.line = 1;
+    this.lastChar = -1;
+    this.values = null;
+    // byte order mark can occur only on stream start
+    this.streamStarted = offset != 0;
+  }
+
   public Iterator<T> iterator()
   {
     return this;
@@ -331,12 +912,95 @@ public class CsvReaderImpl<T> implements CsvReader<T>
 
   private void addValue(List<String> values, StringBuilder builder)
   {
+    int start = 0;
+    int end = builder.length();
     if(format.trim()) {
-      values.add(Strings.trim(builder.toString()));
+      while(start < end && Character.isWhitespace(builder.charAt(start))) {
+        ++start;
+      }
+      while(end > start && Character.isWhitespace(builder.charAt(end - 1))) {
+        --end;
+      }
     }
-    else {
-      values.add(builder.toString());
+
+    // empty and null values are detected on raw characters and shared instances are added, without string creation
+    // header values are column names and are never null
+    boolean dataRecord = headerProcessed || !format.header();
+    if(start == end) {
+      // empty value is null if format null value is empty
+      values.add(dataRecord && nullValue != null && nullValue.isEmpty() ? nullValue : "");
+      return;
+    }
+    if(dataRecord && isNull(builder, start, end)) {
+      values.add(nullValue);
+      return;
     }
+
+    int columnIndex = values.size();
+    if(caches != null && columnIndex < caches.length && caches[columnIndex] != null) {
+      values.add(caches[columnIndex].get(builder, start, end));
+      return;
+    }
+    values.add(builder.substring(start, end));
+  }
+
+  /** Case insensitive compare of builder characters range with format null value. */
+  private boolean isNull(StringBuilder builder, int start, int end)
+  {
+    if(nullUpperCase == null || end - start != nullUpperCase.length) {
+      return false;
+    }
+    for(int i = 0; i < nullUpperCase.length; ++i) {
+      char c = builder.charAt(start + i);
+      if(c == nullValue.charAt(i)) {
+        continue;
+      }
+      char upperCase = Character.toUpperCase(c);
+      if(upperCase != nullUpperCase[i] && Character.toLowerCase(upperCase) != nullLowerCase[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Test if raw value is null. Values recognized as null by reader tokenizer are the format null value instance and
+   * are detected by reference; other values, e.g. decoded from a temporary file, are compared ignoring case.
+   * 
+   * @param value raw value, not null,
+   * @param nullValue format null value, possibly null.
+   * @return true if value is null.
+   */
+  static boolean isNull(String value, String nullValue)
+  {
+    return value == nullValue || value.equalsIgnoreCase(nullValue);
+  }
+
+  /**
+   * Create string caches for descriptor columns with interning enabled. Returns null if descriptor does not support
+   * interning or no column has it enabled.
+   * 
+   * @param descriptor CSV descriptor.
+   * @return string caches indexed by column, possibly null.
+   */
+  private static StringCache[] caches(CsvDescriptor<?> descriptor)
+  {
+    if(!(descriptor instanceof CsvDescriptorImpl)) {
+      return null;
+    }
+    CsvDescriptorImpl<?> descriptorImpl = (CsvDescriptorImpl<?>)descriptor;
+    List<CsvColumn> columns = descriptor.columns();
+
+    StringCache[] caches = null;
+    for(int i = 0; i < columns.size(); ++i) {
+      if(descriptorImpl.isInterned(columns.get(i).fieldName())) {
+        if(caches == null) {
+          caches = new StringCache[columns.size()];
+        }
+        caches[i] = new StringCache();
+      }
+    }
+    return caches;
   }
 
   private boolean isCloseQuote(char c) throws IOException
@@ -344,13 +1008,13 @@ public class CsvReaderImpl<T> implements CsvReader<T>
     if(c != format.closeQuote()) {
       return false;
     }
-    reader.mark(1);
-    int i = reader.read();
+    mark();
+    int i = read();
     if(i == -1) {
       return true;
     }
     boolean b = (char)i == format.delimiter() || Character.isWhitespace(i);
-    reader.reset();
+    reset();
     return b;
   }
 
@@ -363,18 +1027,60 @@ public class CsvReaderImpl<T> implements CsvReader<T>
       return false;
     }
     // here we have CR; need to check if followed by LF
-    reader.mark(1);
-    int i = reader.read();
+    mark();
+    int i = read();
     if(i == -1) {
-      // if EOS consider row complete
+      // if EOS consider row complete but note that LF could be not yet written
+      lineEndTruncated = true;
       return true;
     }
     if((char)i != '\n') {
-      reader.reset();
+      reset();
     }
     return true;
   }
 
+  private int read() throws IOException
+  {
+    int i = reader.read();
+    if(i != -1) {
+      offset += encoding.length((char)i);
+      ++charOffset;
+      if(i == '\r' || (i == '\n' && lastChar != '\r')) {
+        ++line;
+      }
+      lastChar = i;
+      if(rawRecord != null && rawRecord.length() < rawRecordLimit) {
+        rawRecord.append((char)i);
+      }
+    }
+    return i;
+  }
+
+  private void mark() throws IOException
+  {
+    reader.mark(1);
+    markOffset = offset;
+    markCharOffset = charOffset;
+    markLine = line;
+    markLastChar = lastChar;
+    if(rawRecord != null) {
+      rawMarkLength = rawRecord.length();
+    }
+  }
+
+  private void reset() throws IOException
+  {
+    reader.reset();
+    offset = markOffset;
+    charOffset = markCharOffset;
+    line = markLine;
+    lastChar = markLastChar;
+    if(rawRecord != null) {
+      rawRecord.setLength(rawMarkLength);
+    }
+  }
+
   /**
    * State machine for CSV parser.
    * 
@@ -384,4 +1090,80 @@ public class CsvReaderImpl<T> implements CsvReader<T>
   {
     RECORD_START, VALUE_START, VALUE_READING, COMPLEX_VALUE_READING, COMMENT
   }
+
+  /**
+   * Character encodings supported for byte offsets computation. A surrogate character is counted as half of its
+   * encoded code point so that a surrogates pair yields the right bytes count. Lengths are right only for well formed
+   * input since a replacement character for malformed bytes is counted as its own encoded length.
+   * 
+   * @author Iulian Rotaru
+   */
+  private enum Encoding
+  {
+    UTF8
+    {
+      @Override
+      int length(char c)
+      {
+        if(c < 0x80) {
+          return 1;
+        }
+        if(c < 0x800 || Character.isSurrogate(c)) {
+          return 2;
+        }
+        return 3;
+      }
+    },
+    UTF16
+    {
+      @Override
+      int length(char c)
+      {
+        return 2;
+      }
+    },
+    UTF32
+    {
+      @Override
+      int length(char c)
+      {
+        return Character.isSurrogate(c) ? 2 : 4;
+      }
+    },
+    SINGLE_BYTE
+    {
+      @Override
+      int length(char c)
+      {
+        return 1;
+      }
+    },
+    UNSUPPORTED
+    {
+      @Override
+      int length(char c)
+      {
+        return 0;
+      }
+    };
+
+    abstract int length(char c);
+
+    static Encoding of(Charset charset)
+    {
+      if(charset.equals(StandardCharsets.UTF_8)) {
+        return UTF8;
+      }
+      if(charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE)) {
+        return UTF16;
+      }
+      if(charset.name().equals("UTF-32BE") || charset.name().equals("UTF-32LE")) {
+        return UTF32;
+      }
+      if(charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0F) {
+        return SINGLE_BYTE;
+      }
+      return UNSUPPORTED;
+    }
+  }
 }
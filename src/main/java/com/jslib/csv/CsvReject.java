@@ -0,0 +1,120 @@
+package com.jslib.csv;
+
+/**
+ * Record rejected by CSV reader, with raw record text, position and rejection cause. Rejection is for a column value,
+ * e.g. a value that cannot be converted to field type, or for entire record, e.g. a record with unexpected values count
+ * or exceeding a parsing limit; in the latter case column index is -1.
+ * <p>
+ * Raw record text is the record characters as found on CSV stream, without line end. It is truncated to
+ * {@link #MAX_RECORD_LENGTH} characters, so that a runaway record does not keep unbounded memory.
+ *
+ * @author Iulian Rotaru
+ */
+public final class CsvReject
+{
+  /** Maximum length of raw record text. */
+  public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  /** Line number, 1 based, of record start. */
+  private final long line;
+  /** Byte offset of record start, -1 if not known. */
+  private final long offset;
+  /** Index of rejected column, -1 if rejection is for entire record. */
+  private final int column;
+  /** Raw record text, possibly truncated. */
+  private final String record;
+  /** Rejection message. */
+  private final String message;
+  /** Rejection cause, possibly null. */
+  private final Throwable cause;
+
+  /**
+   * Create rejected record instance.
+   *
+   * @param line line number of record start,
+   * @param offset byte offset of record start, -1 if not known,
+   * @param column index of rejected column, -1 for entire record,
+   * @param record raw record text,
+   * @param message rejection message,
+   * @param cause rejection cause, possibly null.
+   */
+  public CsvReject(long line, long offset, int column, String record, String message, Throwable cause)
+  {
+    this.line = line;
+    this.offset = offset;
+    this.column = column;
+    this.record = record;
+    this.message = message;
+    this.cause = cause;
+  }
+
+  /**
+   * Get line number, 1 based, of record start, see {@link CsvReaderImpl#recordLine()}.
+   *
+   * @return record line number.
+   */
+  public long line()
+  {
+    return line;
+  }
+
+  /**
+   * Get byte offset of record start, relative to CSV stream start. Returns -1 if reader does not support byte offsets,
+   * see {@link CsvReaderImpl#recordOffset()}.
+   *
+   * @return record byte offset or -1.
+   */
+  public long offset()
+  {
+    return offset;
+  }
+
+  /**
+   * Get index of rejected column on descriptor columns list. Returns -1 if rejection is for entire record, e.g. for
+   * unexpected values count or a parsing limit.
+   *
+   * @return rejected column index or -1.
+   */
+  public int column()
+  {
+    return column;
+  }
+
+  /**
+   * Get raw record text, as found on CSV stream but without line end, truncated to {@link #MAX_RECORD_LENGTH}
+   * characters.
+   *
+   * @return raw record text, possibly truncated.
+   */
+  public String record()
+  {
+    return record;
+  }
+
+  /**
+   * Get rejection message, describing the rejected value or record and the rejection reason.
+   *
+   * @return rejection message.
+   */
+  public String message()
+  {
+    return message;
+  }
+
+  /**
+   * Get the exception that caused rejection, e.g. a parse or converter exception. Returns null if rejection is not
+   * caused by an exception, e.g. for unexpected values count.
+   *
+   * @return rejection cause, possibly null.
+   */
+  public Throwable cause()
+  {
+    return cause;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d:%d:%d:%s", line, offset, column, message);
+  }
+}
@@ -0,0 +1,181 @@
+package com.jslib.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Reject handler writing rejected records to a side CSV file, on a background thread. Reject file has header and
+ * columns <code>line</code>, <code>offset</code>, <code>column</code>, <code>message</code> and <code>record</code>,
+ * the last being raw record text, so that rejected records can be inspected and reprocessed later.
+ * <p>
+ * Rejects are handed to writer thread through a bounded queue; if writer thread falls behind, reader thread waits for
+ * queue room, so rejects are never dropped. If writing to reject file fails, with I/O or runtime exception, writer
+ * thread keeps draining the queue but next rejects are discarded and failure is thrown on {@link #close()}, that also
+ * waits for all queued rejects to be written.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvRejectFile implements CsvRejectHandler, Closeable
+{
+  private static final Log log = LogFactory.getLog(CsvRejectFile.class);
+
+  /** Maximum number of rejects waiting to be written. */
+  private static final int QUEUE_CAPACITY = 8192;
+  /** Marker for end of rejects queue. */
+  private static final CsvReject EOF = new CsvReject(-1, -1, -1, null, null, null);
+  private static final AtomicInteger threadIndex = new AtomicInteger();
+
+  private final BlockingQueue<CsvReject> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final CsvWriterImpl<CsvReject> writer;
+  private final Thread thread;
+
+  /** Writing failure, set by writer thread. */
+  private volatile IOException exception;
+  private int rejectsCount;
+  private boolean closed;
+
+  /**
+   * Create reject file, truncating it if already exists, and start writer thread. Reject file is UTF-8 encoded.
+   *
+   * @param file reject file.
+   * @throws IOException if reject file cannot be created.
+   */
+  public CsvRejectFile(Path file) throws IOException
+  {
+    Params.notNull(file, "Reject file");
+    log.trace("CsvRejectFile(Path)");
+
+    CsvDescriptorImpl<CsvReject> descriptor = new CsvDescriptorImpl<>(CsvReject.class);
+    descriptor.format().header(true);
+    descriptor.columns("line", "offset", "column", "message", "record");
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.writer = new CsvWriterImpl<>(descriptor, new ChannelWriter(channel, StandardCharsets.UTF_8, CsvFactoryImpl.ForcePolicy.NONE));
+
+    this.thread = new Thread(this::run, "csv-reject-writer-" + threadIndex.incrementAndGet());
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  @Override
+  public void reject(CsvReject reject)
+  {
+    Params.notNull(reject, "Reject");
+    if(closed) {
+      throw new CsvException("Reject file closed.");
+    }
+    ++rejectsCount;
+    try {
+      queue.put(reject);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for reject queue.");
+    }
+  }
+
+  /**
+   * Get the number of rejects handled by this reject file.
+   *
+   * @return rejects count.
+   */
+  public int rejectsCount()
+  {
+    return rejectsCount;
+  }
+
+  /**
+   * Wait for queued rejects to be written and close reject file.
+   *
+   * @throws IOException if writing to reject file failed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(EOF);
+      thread.join();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for reject file writer.");
+    }
+    if(exception != null) {
+      throw exception;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /** Writer thread loop: take rejects in batches, as available, and write them on a single rendering pass. */
+  private void run()
+  {
+    List<CsvReject> batch = new ArrayList<>();
+    try {
+      for(;;) {
+        batch.add(queue.take());
+        queue.drainTo(batch);
+
+        boolean eof = batch.get(batch.size() - 1) == EOF;
+        if(eof) {
+          batch.remove(batch.size() - 1);
+        }
+        if(exception == null && !batch.isEmpty()) {
+          write(batch);
+        }
+        batch.clear();
+        if(eof) {
+          break;
+        }
+      }
+    }
+    catch(InterruptedException e) {
+      log.warn("Reject file writer interrupted.");
+    }
+    finally {
+      try {
+        writer.close();
+      }
+      catch(IOException e) {
+        if(exception == null) {
+          exception = e;
+        }
+      }
+    }
+  }
+
+  private void write(List<CsvReject> batch)
+  {
+    try {
+      writer.writeAll(batch);
+      writer.flush();
+    }
+    catch(IOException e) {
+      log.error("Cannot write reject file. Discard next rejects. Root cause: {}", e);
+      exception = e;
+    }
+    catch(RuntimeException e) {
+      // writer thread should not die since reader thread would wait forever for queue room
+      log.error("Cannot write reject file. Discard next rejects. Root cause: {}", e);
+      exception = new IOException("Cannot write reject file.", e);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.jslib.csv;
+
+/**
+ * Handler for records rejected by lenient CSV reader, see {@link CsvReaderImpl#rejectHandler(CsvRejectHandler)}.
+ * Handler is invoked on reader thread, once per rejected value, so that a record with more bad values is reported
+ * more times, with different columns. Implementations should be fast; see {@link CsvRejectFile} for a handler that
+ * writes rejects on a background thread.
+ *
+ * @author Iulian Rotaru
+ */
+@FunctionalInterface
+public interface CsvRejectHandler
+{
+  /**
+   * Handle rejected record.
+   *
+   * @param reject rejected record.
+   */
+  void reject(CsvReject reject);
+}
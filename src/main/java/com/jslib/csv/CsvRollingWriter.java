@@ -0,0 +1,275 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvWriter;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Writer that splits output in part files, rotating to a new part after a number of records or bytes. Part files are
+ * named after given file with part index inserted before extension, e.g. <code>export.csv</code> is written as
+ * <code>export-00000.csv</code>, <code>export-00001.csv</code> and so on. Header, if enabled by CSV format, is written
+ * on every part so that parts can be loaded independently. Bytes limit is checked after every record, with encoded
+ * bytes count, so a part can exceed limit by at most one record.
+ * <p>
+ * Completed parts are flushed and closed on a background thread, so that writing thread does not wait for pending
+ * bytes and, if configured, for forcing file to storage device. The number of parts waiting to be closed is bounded; if
+ * closing is slower than writing, writer waits for the oldest part. Closing failures are reported on next rotation or
+ * on writer close.
+ * <p>
+ * This writer is not thread safe.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvRollingWriter<T> implements CsvWriter<T>
+{
+  private static final Log log = LogFactory.getLog(CsvRollingWriter.class);
+
+  /** Maximum number of parts waiting to be closed by background thread. */
+  private static final int MAX_PENDING_CLOSES = 2;
+
+  private final CsvDescriptor<T> descriptor;
+  /** File name template, used to resolve part files. */
+  private final Path file;
+  /** Part file name before part index. */
+  private final String baseName;
+  /** Part file extension, possibly empty. */
+  private final String extension;
+
+  private long maxRecords;
+  private long maxBytes;
+  private CsvFactoryImpl.ForcePolicy force = CsvFactoryImpl.ForcePolicy.NONE;
+
+  /** Files of parts created so far, in parts order. */
+  private final List<Path> files = new ArrayList<>();
+  /** Parts closing in progress, oldest first. */
+  private final Deque<Future<?>> pendingCloses = new ArrayDeque<>();
+  /** Executor closing completed parts, created on first rotation. */
+  private ExecutorService executor;
+
+  private ChannelWriter channelWriter;
+  private CsvWriterImpl<T> writer;
+  /** Records written on current part. */
+  private long records;
+  private boolean closed;
+
+  /**
+   * Create rolling writer for given descriptor and file. Given file is used only as template for part file names and
+   * is not created.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file file name template.
+   */
+  public CsvRollingWriter(CsvDescriptor<T> descriptor, Path file)
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "File");
+    log.trace("CsvRollingWriter(CsvDescriptor<T>,Path)");
+    this.descriptor = descriptor;
+    this.file = file;
+
+    String fileName = file.getFileName().toString();
+    int extensionIndex = fileName.lastIndexOf('.');
+    if(extensionIndex > 0) {
+      this.baseName = fileName.substring(0, extensionIndex);
+      this.extension = fileName.substring(extensionIndex);
+    }
+    else {
+      this.baseName = fileName;
+      this.extension = "";
+    }
+  }
+
+  /**
+   * Rotate to a new part after given number of records.
+   *
+   * @param maxRecords maximum records per part, 0 for no limit.
+   * @return this pointer.
+   */
+  public CsvRollingWriter<T> maxRecords(long maxRecords)
+  {
+    Params.GTE(maxRecords, 0, "Maximum records");
+    this.maxRecords = maxRecords;
+    return this;
+  }
+
+  /**
+   * Rotate to a new part after given number of bytes, header included.
+   *
+   * @param maxBytes maximum bytes per part, 0 for no limit.
+   * @return this pointer.
+   */
+  public CsvRollingWriter<T> maxBytes(long maxBytes)
+  {
+    Params.GTE(maxBytes, 0, "Maximum bytes");
+    this.maxBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Set force policy for part files, by default {@link CsvFactoryImpl.ForcePolicy#NONE}. Forcing on close is performed
+   * on background thread, except for the last part that is forced when this writer is closed.
+   *
+   * @param force force policy.
+   * @return this pointer.
+   */
+  public CsvRollingWriter<T> force(CsvFactoryImpl.ForcePolicy force)
+  {
+    Params.notNull(force, "Force policy");
+    this.force = force;
+    return this;
+  }
+
+  @Override
+  public void write(T object) throws IOException
+  {
+    Params.notNull(object, "Object argument");
+    if(closed) {
+      throw new IOException("Rolling writer closed.");
+    }
+    if(writer == null) {
+      open();
+    }
+
+    writer.write(object);
+    ++records;
+    if((maxRecords > 0 && records >= maxRecords) || (maxBytes > 0 && channelWriter.size() >= maxBytes)) {
+      rotate();
+    }
+  }
+
+  /**
+   * Get files of parts created so far, in parts order.
+   *
+   * @return part files.
+   */
+  public List<Path> files()
+  {
+    return Collections.unmodifiableList(files);
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    if(writer != null) {
+      writer.flush();
+    }
+  }
+
+  /**
+   * Close current part and wait for parts closing in progress. If closing a part failed, first exception is thrown
+   * after all parts are closed.
+   *
+   * @throws IOException if closing a part fails.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if(closed) {
+      return;
+    }
+    closed = true;
+
+    IOException exception = null;
+    try {
+      if(writer != null) {
+        writer.close();
+        writer = null;
+        channelWriter = null;
+      }
+    }
+    catch(IOException e) {
+      exception = e;
+    }
+
+    while(!pendingCloses.isEmpty()) {
+      try {
+        get(pendingCloses.poll());
+      }
+      catch(IOException e) {
+        if(exception == null) {
+          exception = e;
+        }
+      }
+    }
+    if(executor != null) {
+      executor.shutdown();
+    }
+    if(exception != null) {
+      throw exception;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private void open() throws IOException
+  {
+    Path partFile = file.resolveSibling(String.format("%s-%05d%s", baseName, files.size(), extension));
+    FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    channelWriter = new ChannelWriter(channel, descriptor.format().charset(), force);
+    writer = new CsvWriterImpl<>(descriptor, channelWriter);
+    records = 0;
+    files.add(partFile);
+  }
+
+  /**
+   * Hand current part to background thread for closing. Next part is opened on next write so that no empty part is
+   * created when records count is a multiple of maximum records.
+   */
+  private void rotate() throws IOException
+  {
+    // report completed closing failures as soon as possible and bound the number of parts still open
+    while(!pendingCloses.isEmpty() && (pendingCloses.peek().isDone() || pendingCloses.size() >= MAX_PENDING_CLOSES)) {
+      get(pendingCloses.poll());
+    }
+
+    if(executor == null) {
+      executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("csv-rolling-writer-"));
+    }
+    final CsvWriterImpl<T> completedWriter = writer;
+    final Path completedFile = files.get(files.size() - 1);
+    pendingCloses.add(executor.submit(() -> {
+      log.debug("Close completed part |{}|.", completedFile);
+      completedWriter.close();
+      return null;
+    }));
+    writer = null;
+    channelWriter = null;
+  }
+
+  private static void get(Future<?> close) throws IOException
+  {
+    try {
+      close.get();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for part closing.");
+    }
+    catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new CsvException("Part closing failed. Root cause: %s", e.getCause());
+    }
+  }
+}
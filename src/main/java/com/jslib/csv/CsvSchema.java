@@ -0,0 +1,467 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.jslib.api.csv.CsvDelimiter;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvFormat;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Schema inferred by sampling CSV records. For every column, schema has the field name derived from CSV header, the
+ * value type and nullability. Value type is the narrowest type accepting all sampled values: int, long, double,
+ * boolean, ISO-8601 date or string; a column is nullable if it has values equal to format null value or empty values.
+ * Empty and null values do not participate to type inference.
+ * <p>
+ * Inferred schema can be used to create a CSV descriptor for a class with typed fields, see
+ * {@link #descriptor(Class)}, or to generate descriptor configuration, see {@link #config(String)}. Date columns use
+ * {@link IsoDateFormat} formatter.
+ * <p>
+ * Sample is either the first records from CSV stream or, in reservoir mode, a uniform random sample of all records.
+ * Reservoir mode reads entire CSV stream.
+ *
+ * @author Iulian Rotaru
+ */
+public final class CsvSchema
+{
+  private static final Log log = LogFactory.getLog(CsvSchema.class);
+
+  private static final Pattern DATE_PATTERN = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}(T\\d{2}:\\d{2}(:\\d{2}(\\.\\d{1,9})?)?(Z|[+-]\\d{2}:\\d{2})?)?$");
+
+  private final CsvFormat format;
+  private final List<Column> columns;
+
+  private CsvSchema(CsvFormat format, List<Column> columns)
+  {
+    this.format = format;
+    this.columns = Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * Infer schema from the first records of CSV stream.
+   *
+   * @param format CSV format,
+   * @param reader CSV characters stream, not closed by this method,
+   * @param sampleSize maximum number of records to sample.
+   * @return inferred schema.
+   * @throws IOException if CSV stream reading fails.
+   */
+  public static CsvSchema infer(CsvFormat format, Reader reader, int sampleSize) throws IOException
+  {
+    return infer(format, reader, sampleSize, false);
+  }
+
+  /**
+   * Infer schema from sampled CSV records. If format has header, column names are taken from header, otherwise columns
+   * are named <code>column1</code>, <code>column2</code> and so on.
+   *
+   * @param format CSV format,
+   * @param reader CSV characters stream, not closed by this method,
+   * @param sampleSize maximum number of records to sample,
+   * @param reservoir if true sample records uniformly from entire CSV stream.
+   * @return inferred schema.
+   * @throws IOException if CSV stream reading fails.
+   */
+  public static CsvSchema infer(CsvFormat format, Reader reader, int sampleSize, boolean reservoir) throws IOException
+  {
+    Params.notNull(format, "CSV format");
+    Params.notNull(reader, "CSV reader");
+    Params.GT(sampleSize, 0, "Sample size");
+
+    // header is processed by this method since descriptor has no type to load columns on
+    CsvFormatImpl parserFormat = new CsvFormatImpl(format).header(false);
+    CsvReaderImpl<Object> parser = new CsvReaderImpl<>(new CsvDescriptorImpl<>(parserFormat, Object.class), reader);
+
+    List<String> header = null;
+    if(format.header()) {
+      if(!parser.hasNext()) {
+        return new CsvSchema(format, new ArrayList<Column>());
+      }
+      header = new ArrayList<>(parser.values());
+    }
+
+    List<List<String>> sample = new ArrayList<>();
+    Random random = new Random();
+    for(long recordsCount = 0; parser.hasNext(); ++recordsCount) {
+      if(sample.size() < sampleSize) {
+        sample.add(parser.values());
+        continue;
+      }
+      if(!reservoir) {
+        break;
+      }
+      long index = (long)(random.nextDouble() * (recordsCount + 1));
+      if(index < sampleSize) {
+        sample.set((int)index, parser.values());
+      }
+    }
+
+    int columnsCount = header != null ? header.size() : 0;
+    for(List<String> values : sample) {
+      columnsCount = Math.max(columnsCount, values.size());
+    }
+
+    if(header == null) {
+      header = new ArrayList<>();
+    }
+    for(int i = header.size(); i < columnsCount; ++i) {
+      header.add("column" + (i + 1));
+    }
+    List<String> fieldNames = CsvDescriptorImpl.fieldNames(header);
+
+    List<Column> columns = new ArrayList<>(columnsCount);
+    for(int i = 0; i < columnsCount; ++i) {
+      Type type = null;
+      boolean nullable = false;
+      for(List<String> values : sample) {
+        String value = i < values.size() ? values.get(i) : "";
+        if(value.isEmpty() || CsvReaderImpl.isNull(value, format.nullValue())) {
+          nullable = true;
+          continue;
+        }
+        type = Type.merge(type, Type.of(value));
+      }
+      // if all sampled values are null or empty there is no information about type and string is the safe choice
+      columns.add(new Column(header.get(i), fieldNames.get(i), type != null ? type : Type.STRING, nullable));
+    }
+
+    log.debug("Inferred CSV schema from |{}| records: {}", sample.size(), columns);
+    return new CsvSchema(format, columns);
+  }
+
+  public List<Column> columns()
+  {
+    return columns;
+  }
+
+  /**
+   * Create CSV descriptor for given type, with columns from this schema and schema CSV format. Date columns are
+   * configured with {@link IsoDateFormat} formatter.
+   *
+   * @param type descriptor type, should have fields for all schema columns.
+   * @return CSV descriptor.
+   */
+  public <T> CsvDescriptorImpl<T> descriptor(Class<T> type)
+  {
+    CsvDescriptorImpl<T> descriptor = new CsvDescriptorImpl<>(new CsvFormatImpl(format), type);
+    for(Column column : columns) {
+      descriptor.column(column.fieldName(), column.type() == Type.DATE ? new IsoDateFormat() : null);
+    }
+    return descriptor;
+  }
+
+  /**
+   * Generate CSV descriptor configuration for given class name, with columns from this schema and schema CSV format
+   * properties that differ from defaults. A null format null value, that is, disabled null detection, cannot be
+   * expressed by configuration attributes and is noted by an XML comment.
+   *
+   * @param className fully qualified name of descriptor class.
+   * @return descriptor configuration, as XML document.
+   * @throws CsvException if format has comment, quote or escape character disabled, that is, null character.
+   */
+  public String config(String className)
+  {
+    Params.notNullOrEmpty(className, "Class name");
+    CsvFormat defaults = new CsvFormatImpl();
+
+    StringBuilder config = new StringBuilder();
+    config.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\r\n");
+    config.append("<config class=\"").append(escapeXml(className)).append('"');
+
+    if(format.delimiter() != defaults.delimiter()) {
+      attribute(config, "delimiter", delimiter(format.delimiter()));
+    }
+    if(format.comment() != defaults.comment()) {
+      attribute(config, "comment", format.comment());
+    }
+    if(format.openQuote() != defaults.openQuote() || format.closeQuote() != defaults.closeQuote()) {
+      attribute(config, "open-quote", format.openQuote());
+      attribute(config, "close-quote", format.closeQuote());
+    }
+    if(format.escape() != defaults.escape()) {
+      attribute(config, "escape", format.escape());
+    }
+    if(format.header()) {
+      attribute(config, "header", "true");
+    }
+    if(format.emptyLines()) {
+      attribute(config, "empty-lines", "true");
+    }
+    if(format.trim() != defaults.trim()) {
+      attribute(config, "trim", Boolean.toString(format.trim()));
+    }
+    if(!format.charset().equals(defaults.charset())) {
+      attribute(config, "charset", format.charset().name());
+    }
+    if(format.nullValue() != null && !Objects.equals(format.nullValue(), defaults.nullValue())) {
+      attribute(config, "null-value", format.nullValue());
+    }
+    config.append(">\r\n");
+    if(format.nullValue() == null) {
+      log.warn("Null value disabled on CSV format cannot be configured. Configuration uses default null value.");
+      config.append("\t<!-- null value is disabled on source format but configuration uses default null value -->\r\n");
+    }
+
+    for(Column column : columns) {
+      config.append("\t<column field=\"").append(escapeXml(column.fieldName())).append('"');
+      if(column.type() == Type.DATE) {
+        attribute(config, "format", IsoDateFormat.class.getName());
+      }
+      config.append(" />\r\n");
+    }
+
+    config.append("</config>");
+    return config.toString();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private static String delimiter(char delimiter)
+  {
+    for(CsvDelimiter constant : CsvDelimiter.values()) {
+      if(constant.value() == delimiter) {
+        return constant.name();
+      }
+    }
+    return Character.toString(delimiter);
+  }
+
+  private static void attribute(StringBuilder config, String name, char value)
+  {
+    // null character is not valid on XML document and descriptor configuration has no value for disabled character
+    if(value == '\0') {
+      throw new CsvException("Disabled |%s| character cannot be expressed on CSV descriptor configuration.", name);
+    }
+    attribute(config, name, Character.toString(value));
+  }
+
+  private static void attribute(StringBuilder config, String name, String value)
+  {
+    config.append(' ').append(name).append("=\"").append(escapeXml(value)).append('"');
+  }
+
+  private static String escapeXml(String value)
+  {
+    StringBuilder builder = new StringBuilder();
+    for(int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      switch(c) {
+      case '<':
+        builder.append("&lt;");
+        break;
+
+      case '>':
+        builder.append("&gt;");
+        break;
+
+      case '&':
+        builder.append("&amp;");
+        break;
+
+      case '"':
+        builder.append("&quot;");
+        break;
+
+      default:
+        if(c < ' ') {
+          builder.append("&#").append((int)c).append(';');
+        }
+        else {
+          builder.append(c);
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Inferred column.
+   *
+   * @author Iulian Rotaru
+   */
+  public static final class Column
+  {
+    private final String name;
+    private final String fieldName;
+    private final Type type;
+    private final boolean nullable;
+
+    Column(String name, String fieldName, Type type, boolean nullable)
+    {
+      this.name = name;
+      this.fieldName = fieldName;
+      this.type = type;
+      this.nullable = nullable;
+    }
+
+    /** Column name, from CSV header. */
+    public String name()
+    {
+      return name;
+    }
+
+    /** Field name derived from column name. */
+    public String fieldName()
+    {
+      return fieldName;
+    }
+
+    public Type type()
+    {
+      return type;
+    }
+
+    public boolean nullable()
+    {
+      return nullable;
+    }
+
+    /**
+     * Get Java type suitable for field bound to this column: primitive type for not nullable numeric and boolean
+     * columns and boxing class otherwise.
+     *
+     * @return field Java type.
+     */
+    public Class<?> javaType()
+    {
+      return nullable ? type.boxingClass : type.javaClass;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%s:%s%s", fieldName, type, nullable ? "?" : "");
+    }
+  }
+
+  /**
+   * Column value type, ordered from narrowest to widest for numeric types.
+   *
+   * @author Iulian Rotaru
+   */
+  public enum Type
+  {
+    INT(int.class, Integer.class), LONG(long.class, Long.class), DOUBLE(double.class, Double.class), BOOLEAN(boolean.class, Boolean.class), DATE(java.util.Date.class, java.util.Date.class), STRING(String.class, String.class);
+
+    private final Class<?> javaClass;
+    private final Class<?> boxingClass;
+
+    private Type(Class<?> javaClass, Class<?> boxingClass)
+    {
+      this.javaClass = javaClass;
+      this.boxingClass = boxingClass;
+    }
+
+    private boolean isNumeric()
+    {
+      return this == INT || this == LONG || this == DOUBLE;
+    }
+
+    /**
+     * Get the narrowest type accepting both given types. Numeric types are widened; any other mismatch is solved to
+     * string.
+     *
+     * @param type current column type, null if not yet known,
+     * @param valueType value type.
+     * @return merged type.
+     */
+    static Type merge(Type type, Type valueType)
+    {
+      if(type == null || type == valueType) {
+        return valueType;
+      }
+      if(type.isNumeric() && valueType.isNumeric()) {
+        return type.ordinal() > valueType.ordinal() ? type : valueType;
+      }
+      return STRING;
+    }
+
+    /**
+     * Get the narrowest type for not empty value. Integers with leading zero, e.g. codes or zip codes, and integers
+     * that overflow long, e.g. large identifiers, are strings since numeric types would not preserve them on round
+     * trip.
+     *
+     * @param value not empty value.
+     * @return value type.
+     */
+    static Type of(String value)
+    {
+      if(isInteger(value)) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if(value.charAt(start) == '0' && value.length() - start > 1) {
+          return STRING;
+        }
+        // up to 18 digits value fits a long
+        if(value.length() <= 18) {
+          long number = Long.parseLong(value);
+          return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? INT : LONG;
+        }
+        try {
+          Long.parseLong(value);
+          return LONG;
+        }
+        catch(NumberFormatException e) {
+          return STRING;
+        }
+      }
+      if(isDecimal(value)) {
+        try {
+          Double.parseDouble(value);
+          return DOUBLE;
+        }
+        catch(NumberFormatException ignore) {
+          // not a number but can still be a date, e.g. 2023-04-28
+        }
+      }
+      if("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+        return BOOLEAN;
+      }
+      if(DATE_PATTERN.matcher(value).matches()) {
+        return DATE;
+      }
+      return STRING;
+    }
+
+    private static boolean isInteger(String value)
+    {
+      int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+      if(start == value.length()) {
+        return false;
+      }
+      for(int i = start; i < value.length(); ++i) {
+        char c = value.charAt(i);
+        if(c < '0' || c > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Cheap test to avoid number format exceptions on values that are obviously not decimal. */
+    private static boolean isDecimal(String value)
+    {
+      boolean digit = false;
+      for(int i = 0; i < value.length(); ++i) {
+        char c = value.charAt(i);
+        if(c >= '0' && c <= '9') {
+          digit = true;
+        }
+        else if(c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+          return false;
+        }
+      }
+      return digit;
+    }
+  }
+}
@@ -0,0 +1,539 @@
+package com.jslib.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.converter.Converter;
+import com.jslib.converter.ConverterException;
+import com.jslib.converter.ConverterRegistry;
+import com.jslib.util.Classes;
+
+/**
+ * Binary columnar snapshot of CSV records, already converted to field values. Snapshot file is memory mapped and
+ * records are materialized straight from column sections, without CSV tokenizing and, for numeric, boolean and string
+ * fields, without values conversion.
+ * <p>
+ * Snapshot file starts with a header: magic, version, source file modification time and size, descriptor fingerprint,
+ * records count and columns metadata. Every column has a null bitmap section, a values section and, for variable
+ * length values, a data section. Column storage depends on {@link CsvBatch.Type} of the field bound to column:
+ * <ul>
+ * <li>INT, LONG, DOUBLE - packed 4 or 8 bytes values,
+ * <li>BOOLEAN - one byte per value,
+ * <li>STRING - 4 bytes offsets on data section, records count plus one, and UTF-8 bytes on data section,
+ * <li>OBJECT - like STRING, with values formatted by column formatter or converter and parsed back on
+ * materialization.
+ * </ul>
+ * Every section is mapped separately so a section cannot exceed 2GB; {@link #write(Path, CsvDescriptor, Iterator, long,
+ * long, String)} fails with {@link TooLargeException} if this limit is reached.
+ *
+ * @author Iulian Rotaru
+ */
+final class CsvSnapshot
+{
+  private static final Log log = LogFactory.getLog(CsvSnapshot.class);
+
+  private static final int MAGIC = 0x43535653;
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** Buffer size for snapshot header reading; header is small, unless descriptor has many columns. */
+  private static final int HEADER_BUFFER_SIZE = 4 * 1024;
+
+  private final Converter converter;
+  private final int rows;
+  private final List<String> fieldNames;
+  private final CsvBatch.Type[] types;
+  private final ByteBuffer[] nulls;
+  private final ByteBuffer[] values;
+  private final ByteBuffer[] data;
+
+  private CsvSnapshot(int rows, List<String> fieldNames, CsvBatch.Type[] types, ByteBuffer[] nulls, ByteBuffer[] values, ByteBuffer[] data)
+  {
+    this.converter = ConverterRegistry.getConverter();
+    this.rows = rows;
+    this.fieldNames = fieldNames;
+    this.types = types;
+    this.nulls = nulls;
+    this.values = values;
+    this.data = data;
+  }
+
+  int rows()
+  {
+    return rows;
+  }
+
+  List<String> fieldNames()
+  {
+    return fieldNames;
+  }
+
+  /**
+   * Materialize record instance from snapshot columns. Descriptor columns should match snapshot columns. Fields for
+   * null values are left to JVM defaults, like {@link CsvReaderImpl} does.
+   *
+   * @param descriptor CSV descriptor,
+   * @param mapper record mapper for descriptor,
+   * @param fieldValues field values buffer, with descriptor columns size,
+   * @param row record index.
+   * @return record instance.
+   */
+  <T> T instance(CsvDescriptor<T> descriptor, CsvMapper<T> mapper, Object[] fieldValues, int row)
+  {
+    try {
+      for(int i = 0; i < types.length; ++i) {
+        Field field = mapper.field(i);
+        if(field == null || (nulls[i].get(row >>> 3) & (1 << (row & 7))) != 0) {
+          continue;
+        }
+        fieldValues[i] = value(field, descriptor.columns().get(i), i, row);
+      }
+      return mapper.create(fieldValues);
+    }
+    finally {
+      Arrays.fill(fieldValues, null);
+    }
+  }
+
+  private Object value(Field field, CsvColumn column, int index, int row)
+  {
+    Class<?> type = field.getType();
+    switch(types[index]) {
+    case INT:
+      int intValue = values[index].getInt(row << 2);
+      if(type == short.class || type == Short.class) {
+        return (short)intValue;
+      }
+      if(type == byte.class || type == Byte.class) {
+        return (byte)intValue;
+      }
+      return intValue;
+
+    case LONG:
+      return values[index].getLong(row << 3);
+
+    case DOUBLE:
+      double doubleValue = values[index].getDouble(row << 3);
+      if(type == float.class || type == Float.class) {
+        return (float)doubleValue;
+      }
+      return doubleValue;
+
+    case BOOLEAN:
+      return values[index].get(row) != 0;
+
+    case STRING:
+      return string(index, row);
+
+    case OBJECT:
+      String value = string(index, row);
+      try {
+        return column.formatter() != null ? column.formatter().parse(value) : converter.asObject(value, type);
+      }
+      catch(ParseException | ConverterException e) {
+        throw new CsvException("Cannot parse snapshot value |%s| for field |%s|. Root cause: %s", value, field, e.getMessage());
+      }
+
+    default:
+      throw new IllegalStateException();
+    }
+  }
+
+  private String string(int index, int row)
+  {
+    int start = values[index].getInt(row << 2);
+    int end = values[index].getInt((row + 1) << 2);
+    byte[] bytes = new byte[end - start];
+    ByteBuffer buffer = data[index].duplicate();
+    buffer.position(start);
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Open snapshot file and map its sections. Returns null if snapshot file does not exist, was created for a different
+   * source file version or descriptor fingerprint, or is not a valid snapshot.
+   *
+   * @param file snapshot file,
+   * @param lastModified source file modification time, in milliseconds,
+   * @param size source file size,
+   * @param fingerprint descriptor fingerprint.
+   * @return snapshot or null.
+   * @throws IOException if snapshot file reading fails.
+   */
+  static CsvSnapshot open(Path file, long lastModified, long size, String fingerprint) throws IOException
+  {
+    if(!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // header size is not known in advance; read it with a small buffered stream and map only column sections
+      long fileSize = channel.size();
+      DataInputStream header = new DataInputStream(new BufferedInputStream(new ChannelInputStream(channel, 0, fileSize), HEADER_BUFFER_SIZE));
+      if(fileSize < 8 || header.readInt() != MAGIC || header.readInt() != VERSION) {
+        log.warn("Invalid CSV snapshot file |{}|.", file);
+        return null;
+      }
+      if(header.readLong() != lastModified || header.readLong() != size || !fingerprint.equals(readString(header, fileSize))) {
+        log.debug("Stale CSV snapshot file |{}|.", file);
+        return null;
+      }
+
+      int rows = header.readInt();
+      int columnsCount = header.readInt();
+      List<String> fieldNames = new ArrayList<>(columnsCount);
+      CsvBatch.Type[] types = new CsvBatch.Type[columnsCount];
+      ByteBuffer[] nulls = new ByteBuffer[columnsCount];
+      ByteBuffer[] values = new ByteBuffer[columnsCount];
+      ByteBuffer[] data = new ByteBuffer[columnsCount];
+
+      for(int i = 0; i < columnsCount; ++i) {
+        types[i] = CsvBatch.Type.values()[header.readByte()];
+        fieldNames.add(readString(header, fileSize));
+        // mapping stays valid after channel close
+        nulls[i] = map(channel, header.readLong(), header.readLong());
+        values[i] = map(channel, header.readLong(), header.readLong());
+        data[i] = map(channel, header.readLong(), header.readLong());
+      }
+      return new CsvSnapshot(rows, fieldNames, types, nulls, values, data);
+    }
+    catch(EOFException | RuntimeException e) {
+      // header end or invalid type ordinal on a corrupt or truncated snapshot file
+      log.warn("Corrupt CSV snapshot file |{}|: {}", file, e);
+      return null;
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException
+  {
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+  }
+
+  /**
+   * Write snapshot file for given records. Records are consumed once, in iteration order; columns are spooled on
+   * temporary files next to snapshot file and assembled when all records are processed.
+   *
+   * @param file snapshot file, created or replaced,
+   * @param descriptor CSV descriptor with columns loaded, that is, after first record,
+   * @param records records iterator,
+   * @param lastModified source file modification time, in milliseconds,
+   * @param size source file size,
+   * @param fingerprint descriptor fingerprint.
+   * @throws IOException if writing fails.
+   * @throws TooLargeException if a snapshot section exceeds 2GB.
+   */
+  static <T> void write(Path file, CsvDescriptor<T> descriptor, Iterator<T> records, long lastModified, long size, String fingerprint) throws IOException
+  {
+    List<ColumnWriter> writers = new ArrayList<>();
+    try {
+      int rows = 0;
+      while(records.hasNext()) {
+        T record = records.next();
+        if(writers.isEmpty()) {
+          // descriptor columns are loaded from header when first record is parsed
+          for(CsvColumn column : descriptor.columns()) {
+            writers.add(new ColumnWriter(file, descriptor.type(), column));
+          }
+        }
+        if(rows == Integer.MAX_VALUE) {
+          throw new TooLargeException();
+        }
+        for(ColumnWriter writer : writers) {
+          writer.write(record, rows);
+        }
+        ++rows;
+      }
+      if(writers.isEmpty()) {
+        for(CsvColumn column : descriptor.columns()) {
+          writers.add(new ColumnWriter(file, descriptor.type(), column));
+        }
+      }
+      for(ColumnWriter writer : writers) {
+        writer.close();
+      }
+
+      // header size does not depend on sections offsets since offsets are fixed size
+      byte[] header = header(writers, rows, lastModified, size, fingerprint, 0);
+      header = header(writers, rows, lastModified, size, fingerprint, header.length);
+
+      try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+        stream.write(header);
+        for(ColumnWriter writer : writers) {
+          writer.copyTo(stream);
+        }
+      }
+    }
+    finally {
+      for(ColumnWriter writer : writers) {
+        writer.delete();
+      }
+    }
+  }
+
+  private static byte[] header(List<ColumnWriter> writers, int rows, long lastModified, long size, String fingerprint, long offset) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream header = new DataOutputStream(bytes);
+    header.writeInt(MAGIC);
+    header.writeInt(VERSION);
+    header.writeLong(lastModified);
+    header.writeLong(size);
+    writeString(header, fingerprint);
+    header.writeInt(rows);
+    header.writeInt(writers.size());
+
+    for(ColumnWriter writer : writers) {
+      header.writeByte(writer.type.ordinal());
+      writeString(header, writer.column.fieldName());
+      long nullsLength = ((rows + 7) >>> 3);
+      header.writeLong(offset);
+      header.writeLong(nullsLength);
+      offset += nullsLength;
+      header.writeLong(offset);
+      header.writeLong(writer.valuesLength);
+      offset += writer.valuesLength;
+      header.writeLong(offset);
+      header.writeLong(writer.dataLength);
+      offset += writer.dataLength;
+    }
+    header.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream stream, String value) throws IOException
+  {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    stream.writeInt(bytes.length);
+    stream.write(bytes);
+  }
+
+  /** Read string written by {@link #writeString(DataOutputStream, String)}; length is checked against file size. */
+  private static String readString(DataInputStream stream, long fileSize) throws IOException
+  {
+    int length = stream.readInt();
+    if(length < 0 || length > fileSize) {
+      throw new EOFException("Invalid string length.");
+    }
+    byte[] bytes = new byte[length];
+    stream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Snapshot section exceeds 2GB and cannot be mapped.
+   *
+   * @author Iulian Rotaru
+   */
+  static final class TooLargeException extends IOException
+  {
+    private static final long serialVersionUID = -2826436540375532012L;
+
+    TooLargeException()
+    {
+      super("CSV snapshot section exceeds 2GB.");
+    }
+  }
+
+  /**
+   * Spools values of a column on temporary files, values and, for variable length values, data. Null bitmap is kept in
+   * memory, one bit per record.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class ColumnWriter implements Closeable
+  {
+    private final Converter converter;
+    private final CsvColumn column;
+    private final Field field;
+    private final CsvBatch.Type type;
+
+    private final Path valuesFile;
+    private final DataOutputStream valuesStream;
+    private final Path dataFile;
+    private final DataOutputStream dataStream;
+
+    private long[] nulls = new long[16];
+    private long valuesLength;
+    private long dataLength;
+
+    ColumnWriter(Path file, Class<?> type, CsvColumn column) throws IOException
+    {
+      this.converter = ConverterRegistry.getConverter();
+      this.column = column;
+      this.field = Classes.getOptionalFieldEx(type, column.fieldName());
+      // missing field has only null values; store it as string column
+      this.type = field != null ? CsvBatch.Type.of(field.getType()) : CsvBatch.Type.STRING;
+
+      Path directory = file.toAbsolutePath().getParent();
+      this.valuesFile = Files.createTempFile(directory, "csv-snapshot-", ".tmp");
+      this.valuesStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(valuesFile), BUFFER_SIZE));
+      if(this.type == CsvBatch.Type.STRING || this.type == CsvBatch.Type.OBJECT) {
+        this.dataFile = Files.createTempFile(directory, "csv-snapshot-", ".tmp");
+        this.dataStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile), BUFFER_SIZE));
+        // string offsets start with zero, so that value i is between offsets i and i + 1
+        writeOffset();
+      }
+      else {
+        this.dataFile = null;
+        this.dataStream = null;
+      }
+    }
+
+    void write(Object record, int row) throws IOException
+    {
+      Object value = field != null ? Classes.getFieldValue(record, field) : null;
+      if(value == null) {
+        if(row >>> 6 >= nulls.length) {
+          nulls = Arrays.copyOf(nulls, Math.max(nulls.length * 2, (row >>> 6) + 1));
+        }
+        nulls[row >>> 6] |= 1L << row;
+      }
+
+      switch(type) {
+      case INT:
+        valuesStream.writeInt(value != null ? ((Number)value).intValue() : 0);
+        valuesLength += 4;
+        break;
+
+      case LONG:
+        valuesStream.writeLong(value != null ? ((Number)value).longValue() : 0L);
+        valuesLength += 8;
+        break;
+
+      case DOUBLE:
+        valuesStream.writeDouble(value != null ? ((Number)value).doubleValue() : 0.0);
+        valuesLength += 8;
+        break;
+
+      case BOOLEAN:
+        valuesStream.writeByte(value != null && (Boolean)value ? 1 : 0);
+        valuesLength += 1;
+        break;
+
+      case STRING:
+        writeString(value != null ? (String)value : "");
+        break;
+
+      case OBJECT:
+        writeString(value == null ? "" : column.formatter() != null ? column.formatter().format(value) : converter.asString(value));
+        break;
+      }
+
+      if(valuesLength > Integer.MAX_VALUE) {
+        throw new TooLargeException();
+      }
+    }
+
+    private void writeString(String value) throws IOException
+    {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      dataStream.write(bytes);
+      dataLength += bytes.length;
+      if(dataLength > Integer.MAX_VALUE) {
+        throw new TooLargeException();
+      }
+      writeOffset();
+    }
+
+    private void writeOffset() throws IOException
+    {
+      valuesStream.writeInt((int)dataLength);
+      valuesLength += 4;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      valuesStream.close();
+      if(dataStream != null) {
+        dataStream.close();
+      }
+    }
+
+    /** Copy column sections to snapshot stream, in header order: null bitmap, values and data. */
+    void copyTo(OutputStream stream) throws IOException
+    {
+      DataOutputStream bitmap = new DataOutputStream(stream);
+      long nullsLength = (rows() + 7) >>> 3;
+      // bitmap is stored little endian, byte i holding bits for records 8 * i to 8 * i + 7
+      for(long i = 0; i < nullsLength; ++i) {
+        int word = (int)(i >>> 3);
+        long bits = word < nulls.length ? nulls[word] : 0L;
+        bitmap.writeByte((int)(bits >>> ((i & 7) << 3)));
+      }
+      bitmap.flush();
+
+      copy(valuesFile, stream);
+      if(dataFile != null) {
+        copy(dataFile, stream);
+      }
+    }
+
+    /** Records count, derived from values length. */
+    private long rows()
+    {
+      switch(type) {
+      case INT:
+        return valuesLength / 4;
+
+      case LONG:
+      case DOUBLE:
+        return valuesLength / 8;
+
+      case BOOLEAN:
+        return valuesLength;
+
+      default:
+        return valuesLength / 4 - 1;
+      }
+    }
+
+    private static void copy(Path file, OutputStream stream) throws IOException
+    {
+      try (InputStream input = Files.newInputStream(file)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length;
+        while((length = input.read(buffer)) != -1) {
+          stream.write(buffer, 0, length);
+        }
+      }
+    }
+
+    void delete() throws IOException
+    {
+      close();
+      Files.deleteIfExists(valuesFile);
+      if(dataFile != null) {
+        Files.deleteIfExists(dataFile);
+      }
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvFormat;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Cache of binary columnar snapshots for CSV files read repeatedly with the same descriptor. First read of a CSV file
+ * parses it fully and writes a snapshot on cache directory; next reads memory map the snapshot and materialize records
+ * from it, skipping CSV tokenizing and most values conversion, see {@link CsvSnapshot}.
+ * <p>
+ * Snapshot is keyed by source file absolute path and descriptor fingerprint and is automatically rebuilt when source
+ * file modification time or size changes. Descriptor fingerprint covers descriptor type and its fields, CSV format
+ * properties and column formatters, so that a configuration change does not reuse a snapshot created with different
+ * conversion rules. Note that changing formatter implementation without changing its class is not detected.
+ * <p>
+ * If snapshot cannot be created, for example because a column exceeds snapshot section size limit, returned reader
+ * parses source file as usual.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvSnapshotCache
+{
+  private static final Log log = LogFactory.getLog(CsvSnapshotCache.class);
+
+  private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+  private final Path directory;
+
+  /**
+   * Create cache storing snapshots on given directory. Directory is created if missing.
+   *
+   * @param directory cache directory.
+   * @throws IOException if directory creation fails.
+   */
+  public CsvSnapshotCache(Path directory) throws IOException
+  {
+    Params.notNull(directory, "Cache directory");
+    log.trace("CsvSnapshotCache(Path)");
+    this.directory = Files.createDirectories(directory);
+  }
+
+  /**
+   * Get reader for given CSV file, from snapshot if it exists and is up to date. Otherwise parse CSV file, write
+   * snapshot and return reader on newly created snapshot. If descriptor columns are loaded from CSV header and are not
+   * yet loaded, they are loaded from snapshot.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file source CSV file, possibly GZIP compressed.
+   * @return CSV reader.
+   * @throws IOException if source file or snapshot reading fails.
+   */
+  public <T> CsvReader<T> getReader(CsvDescriptor<T> descriptor, Path file) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "CSV file");
+
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    long size = attributes.size();
+    String fingerprint = fingerprint(descriptor);
+    Path snapshotFile = directory.resolve(key(file.toAbsolutePath().toString(), fingerprint) + SNAPSHOT_EXTENSION);
+
+    CsvSnapshot snapshot = open(descriptor, snapshotFile, lastModified, size, fingerprint);
+    if(snapshot != null) {
+      log.debug("Read CSV file |{}| from snapshot |{}|.", file, snapshotFile);
+      return new SnapshotReader<>(descriptor, snapshot);
+    }
+
+    // snapshot is written on a temporary file and moved when complete, so a concurrent reader never sees it partial
+    Path tempFile = Files.createTempFile(directory, "csv-snapshot-", ".tmp");
+    try {
+      try (CsvReader<T> reader = new CsvReaderImpl<>(descriptor, open(file))) {
+        CsvSnapshot.write(tempFile, descriptor, reader.iterator(), lastModified, size, fingerprint);
+      }
+      Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(CsvSnapshot.TooLargeException e) {
+      log.warn("Cannot create snapshot for CSV file |{}|: {}", file, e.getMessage());
+      return new CsvReaderImpl<>(descriptor, open(file));
+    }
+    finally {
+      Files.deleteIfExists(tempFile);
+    }
+    log.debug("Created snapshot |{}| for CSV file |{}|.", snapshotFile, file);
+
+    snapshot = open(descriptor, snapshotFile, lastModified, size, fingerprint);
+    if(snapshot == null) {
+      // source file changed while snapshot was created
+      return new CsvReaderImpl<>(descriptor, open(file));
+    }
+    return new SnapshotReader<>(descriptor, snapshot);
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Open snapshot and check its columns against descriptor columns. Load descriptor columns from snapshot if not
+   * already loaded.
+   */
+  private static CsvSnapshot open(CsvDescriptor<?> descriptor, Path snapshotFile, long lastModified, long size, String fingerprint) throws IOException
+  {
+    CsvSnapshot snapshot = CsvSnapshot.open(snapshotFile, lastModified, size, fingerprint);
+    if(snapshot == null) {
+      return null;
+    }
+    if(descriptor.columns().isEmpty()) {
+      // snapshot field names are valid Java names and are loaded unchanged; no field names for empty CSV file
+      if(!snapshot.fieldNames().isEmpty()) {
+        descriptor.load(snapshot.fieldNames());
+      }
+      return snapshot;
+    }
+
+    List<CsvColumn> columns = descriptor.columns();
+    if(columns.size() != snapshot.fieldNames().size()) {
+      return null;
+    }
+    for(int i = 0; i < columns.size(); ++i) {
+      if(!columns.get(i).fieldName().equals(snapshot.fieldNames().get(i))) {
+        return null;
+      }
+    }
+    return snapshot;
+  }
+
+  private static InputStream open(Path file) throws IOException
+  {
+    InputStream stream = Files.newInputStream(file);
+    try {
+      return CsvFactoryImpl.decompress(stream);
+    }
+    catch(IOException e) {
+      stream.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Descriptor fingerprint with descriptor type fields, CSV format properties and column formatters. Column names are
+   * not included since they can be loaded from CSV header; they are checked against snapshot columns on open.
+   */
+  private static String fingerprint(CsvDescriptor<?> descriptor)
+  {
+    StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append(descriptor.type().getName());
+    for(Class<?> type = descriptor.type(); type != null && type != Object.class; type = type.getSuperclass()) {
+      for(Field field : type.getDeclaredFields()) {
+        fingerprint.append(';').append(field.getName()).append(':').append(field.getType().getName());
+      }
+    }
+
+    CsvFormat format = descriptor.format();
+    fingerprint.append('|').append(format.delimiter());
+    fingerprint.append(format.comment());
+    fingerprint.append(format.openQuote());
+    fingerprint.append(format.closeQuote());
+    fingerprint.append(format.escape());
+    fingerprint.append(format.header());
+    fingerprint.append(format.emptyLines());
+    fingerprint.append(format.trim());
+    fingerprint.append(format.strict());
+    fingerprint.append(format.charset().name());
+    fingerprint.append(format.nullValue());
+
+    for(CsvColumn column : descriptor.columns()) {
+      if(column.formatter() != null) {
+        fingerprint.append('|').append(column.fieldName()).append(':').append(column.formatter().getClass().getName());
+      }
+    }
+    return fingerprint.toString();
+  }
+
+  private static String key(String path, String fingerprint)
+  {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(path.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte)0);
+      digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+
+      StringBuilder key = new StringBuilder();
+      byte[] hash = digest.digest();
+      // 128 bits are enough to avoid collisions on a cache directory
+      for(int i = 0; i < 16; ++i) {
+        key.append(String.format("%02x", hash[i]));
+      }
+      return key.toString();
+    }
+    catch(NoSuchAlgorithmException e) {
+      // SHA-256 is mandatory on every Java platform
+      throw new CsvException("Missing SHA-256 message digest. Root cause: %s", e.getMessage());
+    }
+  }
+
+  /**
+   * Reader materializing records from a snapshot, in source file order.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class SnapshotReader<T> implements CsvReader<T>
+  {
+    private final CsvDescriptor<T> descriptor;
+    private final CsvSnapshot snapshot;
+    private final CsvMapper<T> mapper;
+    private final Object[] fieldValues;
+    private int row;
+
+    SnapshotReader(CsvDescriptor<T> descriptor, CsvSnapshot snapshot)
+    {
+      this.descriptor = descriptor;
+      this.snapshot = snapshot;
+      this.mapper = CsvMapper.of(descriptor);
+      this.fieldValues = new Object[descriptor.columns().size()];
+      for(int i = 0; i < fieldValues.length; ++i) {
+        if(mapper.field(i) == null) {
+          log.warn("Missing field |{}#{}|", descriptor.type(), descriptor.columns().get(i).fieldName());
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return row < snapshot.rows();
+    }
+
+    @Override
+    public T next()
+    {
+      if(!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return snapshot.instance(descriptor, mapper, fieldValues, row++);
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+      return this;
+    }
+
+    @Override
+    public void close()
+    {
+      // snapshot file is memory mapped and mapping is released by garbage collector
+    }
+  }
+}
@@ -0,0 +1,523 @@
+package com.jslib.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * External merge sort for CSV files of arbitrary size, ordering records by one or more descriptor columns with bounded
+ * memory. Key values are compared by the type of the fields bound to key columns, see {@link CsvKey}.
+ * <p>
+ * Input records are accumulated in memory up to configured memory limit, sorted and spilled to temporary files as
+ * sorted runs, using a compact binary encoding: raw record text and key columns values, every string encoded as length
+ * variable length integer followed by UTF-8 bytes. Runs are merged with a k-way heap directly into output file; if
+ * there are more runs than the merge factor, runs are merged in multiple passes. If all records fit in memory there is
+ * no temporary file.
+ * <p>
+ * With parallelism greater than one, runs are sorted and spilled by worker threads while reading continues; memory
+ * limit is shared by all run buffers in progress. Sort is stable, that is, records with equal keys keep input order.
+ * <p>
+ * Records are copied to output as found on input, with the same quoting and null value spelling, only line ends being
+ * normalized to CR LF; quoted multi-line values are handled by CSV parser and preserved on output. Header, if enabled,
+ * is copied the same way. Input is transparently decompressed if GZIP compressed and output is compressed if file
+ * name has <code>.gz</code> extension, see {@link CsvFactoryImpl}.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvSorter<T>
+{
+  private static final Log log = LogFactory.getLog(CsvSorter.class);
+
+  /** Default memory limit for records buffered in memory, in bytes. */
+  private static final long MEMORY_LIMIT = 64L * 1024 * 1024;
+  /** Maximum number of runs merged at once, limiting open files count. */
+  private static final int MERGE_FACTOR = 64;
+  /** Buffer size for run files streams. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Estimated heap bytes used by a buffered record, besides its values. */
+  private static final int RECORD_OVERHEAD = 64;
+  /** Estimated heap bytes used by a value, besides its characters. */
+  private static final int VALUE_OVERHEAD = 48;
+
+  private final CsvDescriptor<T> descriptor;
+  private final String[] fieldNames;
+
+  private long memoryLimit = MEMORY_LIMIT;
+  private int parallelism = 1;
+  private Path tempDirectory;
+  private boolean descending;
+
+  /**
+   * Create sorter ordering records by given fields, in ascending order.
+   *
+   * @param descriptor CSV descriptor,
+   * @param fieldNames names of the fields bound to key columns, in comparison order.
+   */
+  public CsvSorter(CsvDescriptor<T> descriptor, String... fieldNames)
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNullOrEmpty(fieldNames, "Field names");
+    log.trace("CsvSorter(CsvDescriptor<T>,String...)");
+    this.descriptor = descriptor;
+    this.fieldNames = fieldNames;
+  }
+
+  /**
+   * Set memory limit for records buffered in memory. Memory use is estimated from values length so actual heap use
+   * can differ.
+   *
+   * @param memoryLimit memory limit, in bytes.
+   * @return this pointer.
+   */
+  public CsvSorter<T> memoryLimit(long memoryLimit)
+  {
+    Params.GT(memoryLimit, 0, "Memory limit");
+    this.memoryLimit = memoryLimit;
+    return this;
+  }
+
+  /**
+   * Set the number of threads sorting and spilling runs concurrently with input reading.
+   *
+   * @param parallelism number of worker threads, 1 for sequential sort.
+   * @return this pointer.
+   */
+  public CsvSorter<T> parallelism(int parallelism)
+  {
+    Params.GT(parallelism, 0, "Parallelism");
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Set directory for temporary run files. By default uses system temporary directory.
+   *
+   * @param tempDirectory directory for temporary files.
+   * @return this pointer.
+   */
+  public CsvSorter<T> tempDirectory(Path tempDirectory)
+  {
+    Params.notNull(tempDirectory, "Temporary directory");
+    this.tempDirectory = tempDirectory;
+    return this;
+  }
+
+  /**
+   * Set descending order. Null values are last on descending order.
+   *
+   * @param descending true for descending order.
+   * @return this pointer.
+   */
+  public CsvSorter<T> descending(boolean descending)
+  {
+    this.descending = descending;
+    return this;
+  }
+
+  /**
+   * Sort input CSV file into output file. Output file is created or truncated. Temporary files are removed even if
+   * sorting fails.
+   *
+   * @param input source CSV file, possibly GZIP compressed,
+   * @param output target CSV file.
+   * @throws IOException if files reading or writing fails.
+   * @throws CsvException if a key field is not a descriptor column or, on strict mode, key value conversion fails.
+   */
+  public void sort(Path input, Path output) throws IOException
+  {
+    Params.notNull(input, "Input file");
+    Params.notNull(output, "Output file");
+
+    List<Path> tempFiles = new ArrayList<>();
+    ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+    try {
+      sort(input, output, tempFiles, executor);
+    }
+    finally {
+      if(executor != null) {
+        executor.shutdownNow();
+      }
+      for(Path file : tempFiles) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private void sort(Path input, Path output, List<Path> tempFiles, ExecutorService executor) throws IOException
+  {
+    // on parallel mode there are up to parallelism buffers being sorted plus the one being filled
+    final long runLimit = executor != null ? memoryLimit / (parallelism + 1) : memoryLimit;
+    final Semaphore permits = new Semaphore(parallelism);
+    List<Future<Path>> runs = new ArrayList<>();
+
+    CsvKey key = null;
+    String header;
+    List<Record> buffer = new ArrayList<>();
+    long bufferSize = 0;
+
+    InputStream stream = Files.newInputStream(input);
+    try (CsvReaderImpl<T> reader = new CsvReaderImpl<>(descriptor, CsvFactoryImpl.decompress(stream)).keepRawRecord()) {
+      while(reader.hasNext()) {
+        if(key == null) {
+          // key columns are resolved after header processing, on first record
+          key = new CsvKey(descriptor, fieldNames);
+        }
+        Record record = new Record(key, reader.rawRecord(), key.select(reader.values()));
+        buffer.add(record);
+        bufferSize += record.size();
+
+        if(bufferSize >= runLimit) {
+          runs.add(spill(buffer, tempFiles, executor, permits));
+          buffer = new ArrayList<>();
+          bufferSize = 0;
+        }
+      }
+      header = reader.rawHeader();
+    }
+    finally {
+      stream.close();
+    }
+
+    try (CsvWriterImpl<T> writer = CsvFactoryImpl.writer(descriptor, output, CsvFactoryImpl.ForcePolicy.NONE)) {
+      if(header != null) {
+        writer.writeRecord(header);
+      }
+
+      if(runs.isEmpty()) {
+        // all records fit in memory
+        Collections.sort(buffer, comparator());
+        for(Record record : buffer) {
+          writer.writeRecord(record.text);
+        }
+        return;
+      }
+
+      if(!buffer.isEmpty()) {
+        runs.add(spill(buffer, tempFiles, executor, permits));
+      }
+      buffer = null;
+
+      List<Path> files = new ArrayList<>(runs.size());
+      for(Future<Path> run : runs) {
+        files.add(get(run));
+      }
+      log.debug("Merge |{}| sorted runs into |{}|.", files.size(), output);
+      merge(files, key, tempFiles, record -> writer.writeRecord(record.text));
+    }
+  }
+
+  /**
+   * Sort records buffer and write it to a new run file, on worker thread if executor is not null. On parallel mode
+   * blocks till a worker is available, so that the number of buffers in memory is bounded.
+   */
+  private Future<Path> spill(final List<Record> buffer, List<Path> tempFiles, ExecutorService executor, final Semaphore permits) throws IOException
+  {
+    final Path file = createTempFile(tempFiles);
+    if(executor == null) {
+      writeRun(buffer, file);
+      return CompletableFuture.completedFuture(file);
+    }
+
+    try {
+      permits.acquire();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for sort worker.");
+    }
+    return executor.submit(() -> {
+      try {
+        writeRun(buffer, file);
+        return file;
+      }
+      finally {
+        permits.release();
+      }
+    });
+  }
+
+  private void writeRun(List<Record> buffer, Path file) throws IOException
+  {
+    Collections.sort(buffer, comparator());
+    try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+      for(Record record : buffer) {
+        record.write(stream);
+      }
+    }
+    log.debug("Spilled |{}| sorted records to |{}|.", buffer.size(), file);
+  }
+
+  /**
+   * Merge sorted runs into sink. If there are more runs than merge factor, intermediate passes merge groups of runs
+   * into new runs till remaining runs count allows a single merge.
+   */
+  private void merge(List<Path> files, CsvKey key, List<Path> tempFiles, Sink sink) throws IOException
+  {
+    while(files.size() > MERGE_FACTOR) {
+      List<Path> merged = new ArrayList<>();
+      for(int i = 0; i < files.size(); i += MERGE_FACTOR) {
+        List<Path> group = files.subList(i, Math.min(i + MERGE_FACTOR, files.size()));
+        if(group.size() == 1) {
+          merged.add(group.get(0));
+          continue;
+        }
+        Path file = createTempFile(tempFiles);
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+          mergeRuns(group, key, record -> record.write(stream));
+        }
+        for(Path run : group) {
+          Files.delete(run);
+        }
+        merged.add(file);
+      }
+      files = merged;
+    }
+    mergeRuns(files, key, sink);
+  }
+
+  private void mergeRuns(List<Path> files, CsvKey key, Sink sink) throws IOException
+  {
+    final Comparator<Record> comparator = comparator();
+    // equal keys are ordered by run index so that merge preserves input order
+    PriorityQueue<RunReader> heap = new PriorityQueue<>(files.size(), (run1, run2) -> {
+      int result = comparator.compare(run1.record, run2.record);
+      return result != 0 ? result : Integer.compare(run1.index, run2.index);
+    });
+
+    List<RunReader> runs = new ArrayList<>(files.size());
+    try {
+      for(int i = 0; i < files.size(); ++i) {
+        RunReader run = new RunReader(files.get(i), i, key, fieldNames.length);
+        runs.add(run);
+        if(run.advance()) {
+          heap.add(run);
+        }
+      }
+
+      while(!heap.isEmpty()) {
+        RunReader run = heap.poll();
+        sink.write(run.record);
+        if(run.advance()) {
+          heap.add(run);
+        }
+      }
+    }
+    finally {
+      for(RunReader run : runs) {
+        run.close();
+      }
+    }
+  }
+
+  private Comparator<Record> comparator()
+  {
+    Comparator<Record> comparator = (record1, record2) -> CsvKey.compare(record1.key, record2.key);
+    return descending ? comparator.reversed() : comparator;
+  }
+
+  private Path createTempFile(List<Path> tempFiles) throws IOException
+  {
+    Path file = tempDirectory != null ? Files.createTempFile(tempDirectory, "csv-sort-", ".run") : Files.createTempFile("csv-sort-", ".run");
+    tempFiles.add(file);
+    return file;
+  }
+
+  private static Path get(Future<Path> run) throws IOException
+  {
+    try {
+      return run.get();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CsvException("Interrupted while waiting for sorted run.");
+    }
+    catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      if(e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException)e.getCause();
+      }
+      throw new CsvException("Sorted run failed. Root cause: %s", e.getCause());
+    }
+  }
+
+  /** Write string length, plus one to make room for null, as variable length integer, followed by UTF-8 bytes. */
+  private static void writeString(DataOutputStream stream, String value) throws IOException
+  {
+    if(value == null) {
+      writeVarInt(stream, 0);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(stream, bytes.length + 1);
+    stream.write(bytes);
+  }
+
+  private static String readString(DataInputStream stream) throws IOException
+  {
+    int length = readVarInt(stream);
+    if(length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length - 1];
+    stream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeVarInt(OutputStream stream, int value) throws IOException
+  {
+    while((value & ~0x7F) != 0) {
+      stream.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    stream.write(value);
+  }
+
+  private static int readVarInt(InputStream stream) throws IOException
+  {
+    int value = 0;
+    for(int shift = 0;; shift += 7) {
+      int b = stream.read();
+      if(b == -1) {
+        throw new EOFException();
+      }
+      value |= (b & 0x7F) << shift;
+      if((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Buffered record: raw record text, copied to output as it is, and raw key columns values, with key values computed
+   * once, on record creation.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Record
+  {
+    final String text;
+    final String[] keyValues;
+    @SuppressWarnings("rawtypes")
+    final Comparable[] key;
+
+    Record(CsvKey key, String text, String[] keyValues)
+    {
+      this.text = text;
+      this.keyValues = keyValues;
+      this.key = key.values(keyValues);
+    }
+
+    /** Estimated heap bytes used by this record. */
+    long size()
+    {
+      long size = RECORD_OVERHEAD + VALUE_OVERHEAD + 2 * text.length();
+      for(String value : keyValues) {
+        size += VALUE_OVERHEAD + (value != null ? 2 * value.length() : 0);
+      }
+      return size;
+    }
+
+    void write(DataOutputStream stream) throws IOException
+    {
+      writeString(stream, text);
+      for(String value : keyValues) {
+        writeString(stream, value);
+      }
+    }
+  }
+
+  /**
+   * Sequential reader for a sorted run file, holding current record.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class RunReader implements Closeable
+  {
+    private final DataInputStream stream;
+    private final CsvKey key;
+    private final int keyValuesCount;
+    final int index;
+    Record record;
+
+    RunReader(Path file, int index, CsvKey key, int keyValuesCount) throws IOException
+    {
+      this.stream = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+      this.index = index;
+      this.key = key;
+      this.keyValuesCount = keyValuesCount;
+    }
+
+    /**
+     * Read next record from run file.
+     *
+     * @return false if run file is exhausted.
+     * @throws IOException if file reading fails.
+     */
+    boolean advance() throws IOException
+    {
+      stream.mark(1);
+      if(stream.read() == -1) {
+        record = null;
+        return false;
+      }
+      stream.reset();
+
+      String text = readString(stream);
+      String[] keyValues = new String[keyValuesCount];
+      for(int i = 0; i < keyValues.length; ++i) {
+        keyValues[i] = readString(stream);
+      }
+      record = new Record(key, text, keyValues);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      stream.close();
+    }
+  }
+
+  /**
+   * Destination for merged records.
+   *
+   * @author Iulian Rotaru
+   */
+  private interface Sink
+  {
+    void write(Record record) throws IOException;
+  }
+}
@@ -0,0 +1,749 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.converter.Converter;
+import com.jslib.converter.ConverterException;
+import com.jslib.converter.ConverterRegistry;
+import com.jslib.util.Classes;
+import com.jslib.util.Params;
+
+/**
+ * Read only, in memory CSV table with column encoded, off-heap storage. Table is loaded once, using
+ * {@link CsvBatchReader} for values conversion, and stores every column on direct byte buffers: packed primitive
+ * values for numeric columns, bit packed values for boolean columns and dictionary codes for string columns, with
+ * codes width of one, two or four bytes depending on dictionary size. Every column has a null bitmap. Other field
+ * types are stored as dictionary encoded strings, formatted by column formatter or converter, and parsed back on row
+ * access.
+ * <p>
+ * Since storage is off-heap, table size has no impact on garbage collector; heap is used only while loading, for
+ * string dictionaries lookup. Direct buffers are released when table instance is garbage collected.
+ * <p>
+ * Records can be accessed by row index, see {@link #get(int)}, with instance created on demand, or scanned by column
+ * using typed getters, e.g. {@link #getInt(int, int)}, without creating instances. Table is immutable after load and
+ * safe for concurrent access, with one condition: values of object columns are parsed on row access by column formatter
+ * so, if descriptor columns have formatters that are not thread safe, they should be created per thread, see
+ * {@link CsvDescriptorImpl#columnPerThread(String, java.util.function.Supplier)}.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvTable<T> implements Iterable<T>
+{
+  private static final Log log = LogFactory.getLog(CsvTable.class);
+
+  /** Number of records per storage chunk, as power of two. */
+  private static final int CHUNK_BITS = 16;
+  private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+  /** Number of records converted at once while loading. */
+  private static final int BATCH_SIZE = 4096;
+
+  private final Converter converter;
+  private final CsvDescriptor<T> descriptor;
+  private final CsvMapper<T> mapper;
+  private final Column[] columns;
+  private final int size;
+
+  private CsvTable(CsvDescriptor<T> descriptor, Column[] columns, int size)
+  {
+    this.converter = ConverterRegistry.getConverter();
+    this.descriptor = descriptor;
+    this.mapper = CsvMapper.of(descriptor);
+    this.columns = columns;
+    this.size = size;
+  }
+
+  /**
+   * Load table from CSV characters stream. Stream is closed by this method.
+   *
+   * @param descriptor CSV descriptor,
+   * @param reader CSV characters stream.
+   * @return loaded table.
+   * @throws IOException if stream reading fails.
+   */
+  public static <T> CsvTable<T> load(CsvDescriptor<T> descriptor, Reader reader) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(reader, "CSV reader");
+    try (CsvBatchReader<T> batchReader = new CsvBatchReader<>(descriptor, reader, BATCH_SIZE)) {
+      return load(descriptor, batchReader);
+    }
+  }
+
+  /**
+   * Load table from CSV file, transparently decompressed if GZIP compressed.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file CSV file.
+   * @return loaded table.
+   * @throws IOException if file reading fails.
+   */
+  public static <T> CsvTable<T> load(CsvDescriptor<T> descriptor, Path file) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "CSV file");
+    InputStream stream = Files.newInputStream(file);
+    try (CsvBatchReader<T> batchReader = new CsvBatchReader<>(descriptor, CsvFactoryImpl.decompress(stream), BATCH_SIZE)) {
+      return load(descriptor, batchReader);
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  private static <T> CsvTable<T> load(CsvDescriptor<T> descriptor, CsvBatchReader<T> reader)
+  {
+    Column[] columns = null;
+    int size = 0;
+
+    for(CsvBatch batch = reader.next(); batch != null; batch = reader.next()) {
+      if(columns == null) {
+        // descriptor columns are loaded from header when first batch is read
+        columns = new Column[batch.columns().size()];
+        for(int i = 0; i < columns.length; ++i) {
+          columns[i] = new Column(descriptor.type(), batch.columns().get(i), batch.type(i));
+        }
+      }
+      if((long)size + batch.size() > Integer.MAX_VALUE) {
+        throw new CsvException("CSV table size exceeds |%d| records.", Integer.MAX_VALUE);
+      }
+      for(int i = 0; i < columns.length; ++i) {
+        columns[i].append(batch, i, size);
+      }
+      size += batch.size();
+    }
+
+    if(columns == null) {
+      columns = new Column[0];
+    }
+    long memory = 0;
+    for(int i = 0; i < columns.length; ++i) {
+      columns[i].seal(size);
+      memory += columns[i].memory();
+    }
+    log.debug("Loaded CSV table for |{}| with |{}| records, using |{}| off-heap bytes.", descriptor.type(), size, memory);
+    return new CsvTable<>(descriptor, columns, size);
+  }
+
+  /**
+   * Get the number of records.
+   *
+   * @return records count.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Get off-heap memory used by this table, in bytes.
+   *
+   * @return off-heap memory size.
+   */
+  public long memory()
+  {
+    long memory = 0;
+    for(Column column : columns) {
+      memory += column.memory();
+    }
+    return memory;
+  }
+
+  /**
+   * Get index of the column bound to given field.
+   *
+   * @param fieldName field name.
+   * @return column index.
+   * @throws CsvException if there is no column bound to requested field.
+   */
+  public int columnIndex(String fieldName)
+  {
+    for(int i = 0; i < columns.length; ++i) {
+      if(columns[i].column.fieldName().equals(fieldName)) {
+        return i;
+      }
+    }
+    throw new CsvException("Missing column for field |%s|.", fieldName);
+  }
+
+  /**
+   * Get storage type for column; objects of OBJECT type columns are accessible only via {@link #get(int)}.
+   *
+   * @param column column index.
+   * @return column type.
+   */
+  public CsvBatch.Type type(int column)
+  {
+    return columns[column].type;
+  }
+
+  /**
+   * Create instance for record with given index. Instance is created on every call.
+   *
+   * @param row record index.
+   * @return record instance.
+   */
+  public T get(int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    Object[] fieldValues = new Object[columns.length];
+    for(int i = 0; i < columns.length; ++i) {
+      Column column = columns[i];
+      if(column.field == null || column.nulls.get(row)) {
+        // leave field to JVM default like CSV reader does for null values
+        continue;
+      }
+      fieldValues[i] = value(column, row);
+    }
+    return mapper.create(fieldValues);
+  }
+
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new Iterator<T>()
+    {
+      private int row;
+
+      @Override
+      public boolean hasNext()
+      {
+        return row < size;
+      }
+
+      @Override
+      public T next()
+      {
+        if(row == size) {
+          throw new NoSuchElementException();
+        }
+        return get(row++);
+      }
+    };
+  }
+
+  /**
+   * Test if column value is null, that is, equal to format null value or empty.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return true if column value is null.
+   */
+  public boolean isNull(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return columns[column].nulls.get(row);
+  }
+
+  /**
+   * Get value of an INT column. Value is not defined for null values; test them with {@link #isNull(int, int)}.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return column value.
+   * @throws CsvException if column type is not INT.
+   */
+  public int getInt(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return column(column, CsvBatch.Type.INT).values.getInt(row);
+  }
+
+  /**
+   * Get value of a LONG column. Value is not defined for null values; test them with {@link #isNull(int, int)}.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return column value.
+   * @throws CsvException if column type is not LONG.
+   */
+  public long getLong(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return column(column, CsvBatch.Type.LONG).values.getLong(row);
+  }
+
+  /**
+   * Get value of a DOUBLE column. Value is not defined for null values; test them with {@link #isNull(int, int)}.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return column value.
+   * @throws CsvException if column type is not DOUBLE.
+   */
+  public double getDouble(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return column(column, CsvBatch.Type.DOUBLE).values.getDouble(row);
+  }
+
+  /**
+   * Get value of a BOOLEAN column. Value is not defined for null values; test them with {@link #isNull(int, int)}.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return column value.
+   * @throws CsvException if column type is not BOOLEAN.
+   */
+  public boolean getBoolean(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return column(column, CsvBatch.Type.BOOLEAN).booleans.get(row);
+  }
+
+  /**
+   * Get dictionary code for string column value. Codes are dense, from zero to dictionary size exclusive, and can be
+   * used for group by and equality tests without decoding strings.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return string dictionary code, zero for null values.
+   */
+  public int getCode(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    return column(column, CsvBatch.Type.STRING).values.getCode(row);
+  }
+
+  /**
+   * Decode string value from column dictionary.
+   *
+   * @param column column index,
+   * @param row record index.
+   * @return string value, null for null values.
+   */
+  public String getString(int column, int row)
+  {
+    Params.range(row, 0, size - 1, "Row index");
+    Column storage = column(column, CsvBatch.Type.STRING);
+    return storage.nulls.get(row) ? null : storage.dictionary.get(storage.values.getCode(row));
+  }
+
+  /**
+   * Get the number of distinct values of a string column.
+   *
+   * @param column column index.
+   * @return dictionary size.
+   */
+  public int dictionarySize(int column)
+  {
+    return column(column, CsvBatch.Type.STRING).dictionary.size();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  private Column column(int index, CsvBatch.Type type)
+  {
+    Column column = columns[index];
+    if(column.type != type) {
+      throw new CsvException("Column |%s| type is |%s| not |%s|.", column.column.fieldName(), column.type, type);
+    }
+    return column;
+  }
+
+  private Object value(Column column, int row)
+  {
+    Class<?> type = column.field.getType();
+    switch(column.type) {
+    case INT:
+      int intValue = column.values.getInt(row);
+      if(type == short.class || type == Short.class) {
+        return (short)intValue;
+      }
+      if(type == byte.class || type == Byte.class) {
+        return (byte)intValue;
+      }
+      return intValue;
+
+    case LONG:
+      return column.values.getLong(row);
+
+    case DOUBLE:
+      double doubleValue = column.values.getDouble(row);
+      if(type == float.class || type == Float.class) {
+        return (float)doubleValue;
+      }
+      return doubleValue;
+
+    case BOOLEAN:
+      return column.booleans.get(row);
+
+    case STRING:
+      return column.dictionary.get(column.values.getCode(row));
+
+    default:
+      String value = column.dictionary.get(column.values.getCode(row));
+      try {
+        return column.column.formatter() != null ? column.column.formatter().parse(value) : converter.asObject(value, type);
+      }
+      catch(ParseException | ConverterException e) {
+        throw new CsvException("Cannot parse table value |%s| for field |%s|. Root cause: %s", value, column.field, e.getMessage());
+      }
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Column storage. Boolean columns use bit packed values; string and object columns use dictionary codes on values
+   * vector.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Column
+  {
+    private final Converter converter;
+    final CsvColumn column;
+    final CsvBatch.Type type;
+    final Field field;
+    final Bits nulls = new Bits();
+
+    Vector values;
+    Bits booleans;
+    Dictionary dictionary;
+    /** Dictionary lookup for string and object columns, used only while loading. */
+    Map<String, Integer> codes;
+
+    Column(Class<?> type, CsvColumn column, CsvBatch.Type columnType)
+    {
+      this.converter = ConverterRegistry.getConverter();
+      this.column = column;
+      this.type = columnType;
+      this.field = Classes.getOptionalFieldEx(type, column.fieldName());
+
+      switch(columnType) {
+      case INT:
+      case STRING:
+      case OBJECT:
+        values = new Vector(4);
+        break;
+
+      case LONG:
+      case DOUBLE:
+        values = new Vector(8);
+        break;
+
+      case BOOLEAN:
+        booleans = new Bits();
+        break;
+      }
+      if(columnType == CsvBatch.Type.STRING || columnType == CsvBatch.Type.OBJECT) {
+        codes = new HashMap<>();
+        dictionary = new Dictionary();
+      }
+    }
+
+    void append(CsvBatch batch, int index, int offset)
+    {
+      // batch dictionary is cleared on every batch; map batch codes to table codes once per batch dictionary value
+      int[] tableCodes = null;
+      if(type == CsvBatch.Type.STRING) {
+        List<String> batchDictionary = batch.dictionary(index);
+        tableCodes = new int[batchDictionary.size()];
+        for(int code = 0; code < tableCodes.length; ++code) {
+          tableCodes[code] = code(batchDictionary.get(code));
+        }
+      }
+
+      for(int i = 0; i < batch.size(); ++i) {
+        int row = offset + i;
+        if(batch.isNull(index, i)) {
+          nulls.set(row, true);
+        }
+        switch(type) {
+        case INT:
+          values.putInt(row, batch.ints(index)[i]);
+          break;
+
+        case STRING:
+          values.putInt(row, batch.isNull(index, i) ? 0 : tableCodes[batch.codes(index)[i]]);
+          break;
+
+        case LONG:
+          values.putLong(row, batch.longs(index)[i]);
+          break;
+
+        case DOUBLE:
+          values.putDouble(row, batch.doubles(index)[i]);
+          break;
+
+        case BOOLEAN:
+          booleans.set(row, batch.booleans(index)[i]);
+          break;
+
+        case OBJECT:
+          Object value = batch.objects(index)[i];
+          values.putInt(row, value != null ? code(value) : 0);
+          break;
+        }
+      }
+    }
+
+    private int code(Object object)
+    {
+      return code(column.formatter() != null ? column.formatter().format(object) : converter.asString(object));
+    }
+
+    private int code(String value)
+    {
+      Integer code = codes.get(value);
+      if(code == null) {
+        code = codes.size();
+        codes.put(value, code);
+        dictionary.add(value);
+      }
+      return code;
+    }
+
+    /**
+     * Complete loading: move string dictionary off-heap and pack codes on the narrowest width.
+     *
+     * @param size records count.
+     */
+    void seal(int size)
+    {
+      if(dictionary != null) {
+        codes = null;
+        dictionary.seal();
+        int width = dictionary.size() <= 0x100 ? 1 : dictionary.size() <= 0x10000 ? 2 : 4;
+        values = values.pack(size, width);
+      }
+    }
+
+    long memory()
+    {
+      long memory = nulls.memory();
+      if(values != null) {
+        memory += values.memory();
+      }
+      if(booleans != null) {
+        memory += booleans.memory();
+      }
+      if(dictionary != null) {
+        memory += dictionary.memory();
+      }
+      return memory;
+    }
+  }
+
+  /**
+   * Fixed width values on off-heap chunks, allocated on demand.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Vector
+  {
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final int width;
+
+    Vector(int width)
+    {
+      this.width = width;
+    }
+
+    void putInt(int row, int value)
+    {
+      chunk(row).putInt((row & CHUNK_MASK) * width, value);
+    }
+
+    void putLong(int row, long value)
+    {
+      chunk(row).putLong((row & CHUNK_MASK) * width, value);
+    }
+
+    void putDouble(int row, double value)
+    {
+      chunk(row).putDouble((row & CHUNK_MASK) * width, value);
+    }
+
+    int getInt(int row)
+    {
+      return chunks.get(row >>> CHUNK_BITS).getInt((row & CHUNK_MASK) * width);
+    }
+
+    long getLong(int row)
+    {
+      return chunks.get(row >>> CHUNK_BITS).getLong((row & CHUNK_MASK) * width);
+    }
+
+    double getDouble(int row)
+    {
+      return chunks.get(row >>> CHUNK_BITS).getDouble((row & CHUNK_MASK) * width);
+    }
+
+    /** Get unsigned code stored on vector width. */
+    int getCode(int row)
+    {
+      ByteBuffer chunk = chunks.get(row >>> CHUNK_BITS);
+      int position = (row & CHUNK_MASK) * width;
+      switch(width) {
+      case 1:
+        return chunk.get(position) & 0xFF;
+
+      case 2:
+        return chunk.getShort(position) & 0xFFFF;
+
+      default:
+        return chunk.getInt(position);
+      }
+    }
+
+    /** Copy int codes to a new vector with given width. */
+    Vector pack(int size, int width)
+    {
+      if(width == this.width) {
+        return this;
+      }
+      Vector vector = new Vector(width);
+      for(int row = 0; row < size; ++row) {
+        int code = getInt(row);
+        ByteBuffer chunk = vector.chunk(row);
+        int position = (row & CHUNK_MASK) * width;
+        if(width == 1) {
+          chunk.put(position, (byte)code);
+        }
+        else {
+          chunk.putShort(position, (short)code);
+        }
+      }
+      return vector;
+    }
+
+    private ByteBuffer chunk(int row)
+    {
+      int index = row >>> CHUNK_BITS;
+      while(index >= chunks.size()) {
+        chunks.add(ByteBuffer.allocateDirect(CHUNK_ROWS * width));
+      }
+      return chunks.get(index);
+    }
+
+    long memory()
+    {
+      return (long)chunks.size() * CHUNK_ROWS * width;
+    }
+  }
+
+  /**
+   * Bitmap on off-heap chunks, allocated on demand. Bits beyond allocated chunks are false.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Bits
+  {
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    void set(int row, boolean value)
+    {
+      int index = row >>> CHUNK_BITS;
+      if(index >= chunks.size()) {
+        if(!value) {
+          return;
+        }
+        while(index >= chunks.size()) {
+          chunks.add(ByteBuffer.allocateDirect(CHUNK_ROWS >>> 3));
+        }
+      }
+      ByteBuffer chunk = chunks.get(index);
+      int position = (row & CHUNK_MASK) >>> 3;
+      int bit = 1 << (row & 7);
+      chunk.put(position, (byte)(value ? chunk.get(position) | bit : chunk.get(position) & ~bit));
+    }
+
+    boolean get(int row)
+    {
+      int index = row >>> CHUNK_BITS;
+      return index < chunks.size() && (chunks.get(index).get((row & CHUNK_MASK) >>> 3) & (1 << (row & 7))) != 0;
+    }
+
+    long memory()
+    {
+      return (long)chunks.size() * (CHUNK_ROWS >>> 3);
+    }
+  }
+
+  /**
+   * Strings dictionary with UTF-8 values stored off-heap. Values are collected on heap while loading and moved to a
+   * direct buffer by {@link #seal()}.
+   *
+   * @author Iulian Rotaru
+   */
+  private static final class Dictionary
+  {
+    private List<String> pending = new ArrayList<>();
+    private int size;
+    /** Values offsets on data buffer, dictionary size plus one. */
+    private ByteBuffer offsets;
+    private ByteBuffer data;
+
+    void add(String value)
+    {
+      pending.add(value);
+    }
+
+    void seal()
+    {
+      size = pending.size();
+      offsets = ByteBuffer.allocateDirect((size + 1) * 4);
+      List<byte[]> values = new ArrayList<>(size);
+      long length = 0;
+      for(String value : pending) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        values.add(bytes);
+        length += bytes.length;
+      }
+      if(length > Integer.MAX_VALUE) {
+        throw new CsvException("CSV table dictionary exceeds |%d| bytes.", Integer.MAX_VALUE);
+      }
+
+      data = ByteBuffer.allocateDirect((int)length);
+      for(int i = 0; i < size; ++i) {
+        offsets.putInt(i * 4, data.position());
+        data.put(values.get(i));
+      }
+      offsets.putInt(size * 4, data.position());
+      pending = null;
+    }
+
+    int size()
+    {
+      return size;
+    }
+
+    String get(int code)
+    {
+      int start = offsets.getInt(code * 4);
+      byte[] bytes = new byte[offsets.getInt((code + 1) * 4) - start];
+      // absolute bulk get is not available on Java 8; use a duplicate to keep shared buffer position unchanged
+      ByteBuffer buffer = data.duplicate();
+      buffer.position(start);
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    long memory()
+    {
+      return offsets.capacity() + data.capacity();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package com.jslib.csv;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.api.log.Log;
+import com.jslib.api.log.LogFactory;
+import com.jslib.util.Params;
+
+/**
+ * Follow mode CSV reader for append only files, similar to <code>tail -f</code>. On end of file {@link #hasNext()}
+ * waits for new records instead of returning false; it returns false only after reader was closed, possibly from
+ * another thread, or waiting thread was interrupted.
+ * <p>
+ * Records are parsed from the file region existing at the moment of reading and a record is returned only if it is
+ * terminated by end of line; a partially written record at the end of file is parsed again when file grows. A record
+ * terminated by CR at the end of file is also parsed again, since CR could be followed by LF not yet written. Header,
+ * if enabled, is subject to the same rule.
+ * <p>
+ * Reader position is exposed as {@link CsvCheckpoint}, with the byte offset after the last record returned by
+ * {@link #next()}, header values and stream charset. A restarted process can resume reading from saved checkpoint, see
+ * {@link #CsvTailReader(CsvDescriptor, Path, CsvCheckpoint)}. Byte offsets are computed as described by
+ * {@link CsvIndex}, that is, only charsets with predictable characters length are supported.
+ *
+ * @author Iulian Rotaru
+ */
+public class CsvTailReader<T> implements CsvReader<T>
+{
+  private static final Log log = LogFactory.getLog(CsvTailReader.class);
+
+  /** Default interval, in milliseconds, for checking file growth. */
+  private static final long POLL_INTERVAL = 1000;
+
+  private final CsvDescriptor<T> descriptor;
+  private final Path file;
+  private final FileChannel channel;
+
+  private volatile boolean closed;
+  private long pollInterval = POLL_INTERVAL;
+
+  /** Stream charset, format charset or detected from byte order mark on first file region. */
+  private Charset charset;
+  /** Header values, null if header is not enabled or not yet processed. */
+  private List<String> header;
+  /** Byte offset after the last record returned by {@link #next()}. */
+  private long offset;
+  /** File size at the moment the last file region was parsed; wait for file to grow beyond it. */
+  private long scannedSize;
+
+  /** Reader for current file region, null if there is no region in progress. */
+  private CsvReaderImpl<T> reader;
+  /** A record is available but not yet consumed by {@link #next()}. */
+  private boolean pending;
+  /** End offset of the pending record. */
+  private long pendingOffset;
+
+  /**
+   * Create tail reader for given file, starting from file beginning.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file append only CSV file.
+   * @throws IOException if file opening fails.
+   */
+  public CsvTailReader(CsvDescriptor<T> descriptor, Path file) throws IOException
+  {
+    this(descriptor, file, new CsvCheckpoint(0, null));
+  }
+
+  /**
+   * Create tail reader for given file, resuming from checkpoint. If checkpoint has header values they are loaded on
+   * descriptor.
+   *
+   * @param descriptor CSV descriptor,
+   * @param file append only CSV file,
+   * @param checkpoint resume point.
+   * @throws IOException if file opening fails.
+   */
+  public CsvTailReader(CsvDescriptor<T> descriptor, Path file, CsvCheckpoint checkpoint) throws IOException
+  {
+    Params.notNull(descriptor, "CSV descriptor");
+    Params.notNull(file, "CSV file");
+    Params.notNull(checkpoint, "Checkpoint");
+    log.trace("CsvTailReader(CsvDescriptor<T>,Path,CsvCheckpoint)");
+
+    this.descriptor = descriptor;
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.offset = checkpoint.offset();
+    this.scannedSize = checkpoint.offset();
+    this.charset = checkpoint.charset() != null ? checkpoint.charset() : descriptor.format().charset();
+
+    if(checkpoint.header() != null) {
+      this.header = checkpoint.header();
+      descriptor.load(header);
+    }
+  }
+
+  /**
+   * Set interval for checking file growth while waiting for new records.
+   *
+   * @param pollInterval poll interval, in milliseconds.
+   * @return this pointer.
+   */
+  public CsvTailReader<T> pollInterval(long pollInterval)
+  {
+    Params.GT(pollInterval, 0, "Poll interval");
+    this.pollInterval = pollInterval;
+    return this;
+  }
+
+  /**
+   * Get the position after the last record returned by {@link #next()}.
+   *
+   * @return current checkpoint.
+   */
+  public CsvCheckpoint checkpoint()
+  {
+    return new CsvCheckpoint(offset, header, charset);
+  }
+
+  /**
+   * Wait for next complete record. Returns false only if reader is closed or current thread is interrupted.
+   *
+   * @return true if a record is available.
+   * @throws CsvException if file reading fails or file was truncated.
+   */
+  @Override
+  public boolean hasNext()
+  {
+    try {
+      while(!pending && !closed) {
+        pending = parseRecord();
+      }
+    }
+    catch(IOException e) {
+      if(closed) {
+        return false;
+      }
+      throw new CsvException("Cannot read CSV file |%s|. Root cause: %s", file, e.getMessage());
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    return pending;
+  }
+
+  @Override
+  public T next()
+  {
+    if(!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T instance = reader.next();
+    offset = pendingOffset;
+    pending = false;
+    return instance;
+  }
+
+  @Override
+  public Iterator<T> iterator()
+  {
+    return this;
+  }
+
+  /**
+   * Close this reader. This method can be called from another thread to release a thread waiting on
+   * {@link #hasNext()}.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    closed = true;
+    channel.close();
+  }
+
+  // ----------------------------------------------------------------------------------------------
+
+  /**
+   * Attempt to parse next complete record from file region not yet parsed. Wait for file to grow if there is nothing
+   * new to parse.
+   *
+   * @return true if a complete record was parsed.
+   * @throws IOException if file reading fails.
+   * @throws InterruptedException if waiting thread is interrupted.
+   */
+  private boolean parseRecord() throws IOException, InterruptedException
+  {
+    if(reader == null) {
+      long size = channel.size();
+      if(size < offset) {
+        throw new CsvException("CSV file |%s| truncated to |%d| bytes below offset |%d|.", file, size, offset);
+      }
+      if(size <= scannedSize) {
+        Thread.sleep(pollInterval);
+        return false;
+      }
+      scannedSize = size;
+      reader = new CsvReaderImpl<>(descriptor, new ChannelInputStream(channel, offset, size), offset, charset);
+      charset = reader.charset();
+    }
+
+    if(!reader.hasNext() || !reader.recordComplete()) {
+      // file region end or partially written record; discard region reader and parse again from last record end
+      reader = null;
+      return false;
+    }
+    if(reader.offset() == -1) {
+      throw new CsvException("Charset |%s| not supported for CSV tail reader.", charset);
+    }
+
+    if(descriptor.format().header() && header == null) {
+      header = new ArrayList<>(reader.values());
+      descriptor.load(header);
+      offset = reader.offset();
+      // create a new reader for the next record so that it is initialized with columns loaded from header
+      reader = null;
+      scannedSize = offset;
+      return false;
+    }
+
+    pendingOffset = reader.offset();
+    return true;
+  }
+}
@@ -0,0 +1,95 @@
+package com.jslib.csv;
+
+import java.text.ParseException;
+
+import com.jslib.api.csv.CsvColumn;
+import com.jslib.converter.Converter;
+import com.jslib.format.Format;
+
+/**
+ * Column value parser, resolved once per column from column formatter and bound field type, so that record parsing
+ * does not look up a converter by type for every value. Strings are used as they are and numeric and boolean values
+ * are parsed directly; if direct parsing fails, value is handed to converter so that conversion rules do not change.
+ * Values for other types are converted by converter, with field type captured by parser.
+ * <p>
+ * Parser with formatter keeps formatter instance returned by column when parser was created; if column uses per
+ * thread formatters, see {@link CsvDescriptorImpl#columnPerThread(String, java.util.function.Supplier)}, parser should
+ * be used only by the thread that created it.
+ *
+ * @author Iulian Rotaru
+ */
+@FunctionalInterface
+interface CsvValueParser
+{
+  /**
+   * Parse column value to field value.
+   *
+   * @param value column value, not null.
+   * @return field value, possibly null.
+   * @throws ParseException if column formatter fails to parse value.
+   * @throws com.jslib.converter.ConverterException if converter fails to convert value.
+   */
+  Object parse(String value) throws ParseException;
+
+  /**
+   * Create parser for column and type of the field bound to it.
+   *
+   * @param column CSV column,
+   * @param type field type,
+   * @param converter converter used when column has no formatter.
+   * @return column value parser.
+   */
+  static CsvValueParser of(CsvColumn column, Class<?> type, Converter converter)
+  {
+    Format formatter = column.formatter();
+    if(formatter != null) {
+      return formatter::parse;
+    }
+
+    if(type == String.class) {
+      return value -> value;
+    }
+    if(type == int.class || type == Integer.class) {
+      return value -> {
+        try {
+          return Integer.parseInt(value);
+        }
+        catch(NumberFormatException e) {
+          return converter.asObject(value, type);
+        }
+      };
+    }
+    if(type == long.class || type == Long.class) {
+      return value -> {
+        try {
+          return Long.parseLong(value);
+        }
+        catch(NumberFormatException e) {
+          return converter.asObject(value, type);
+        }
+      };
+    }
+    if(type == double.class || type == Double.class) {
+      return value -> {
+        try {
+          return Double.parseDouble(value);
+        }
+        catch(NumberFormatException e) {
+          return converter.asObject(value, type);
+        }
+      };
+    }
+    if(type == boolean.class || type == Boolean.class) {
+      return value -> {
+        if("true".equals(value)) {
+          return Boolean.TRUE;
+        }
+        if("false".equals(value)) {
+          return Boolean.FALSE;
+        }
+        return converter.asObject(value, type);
+      };
+    }
+    return value -> converter.asObject(value, type);
+  }
+}
@@ -5,8 +5,8 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.Arrays;
 
-import com.jslib.api.csv.CsvColumn;
 import com.jslib.api.csv.CsvDescriptor;
 import com.jslib.api.csv.CsvFormat;
 import com.jslib.api.csv.CsvWriter;
@@ -14,13 +14,18 @@ import com.jslib.api.log.Log;
 import com.jslib.api.log.LogFactory;
 import com.jslib.converter.Converter;
 import com.jslib.converter.ConverterRegistry;
-import com.jslib.util.Classes;
+import com.jslib.format.Format;
 import com.jslib.util.Params;
 
 public class CsvWriterImpl<T> implements CsvWriter<T>
 {
   private static final Log log = LogFactory.getLog(CsvWriterImpl.class);
 
+  /** Render buffer initial size, in characters. Buffer grows to fit the largest record or bulk chunk. */
+  private static final int INITIAL_BUFFER_SIZE = 256;
+  /** Bulk write renders records till buffer reaches this size, in characters, then writes them in one call. */
+  private static final int CHUNK_SIZE = 64 * 1024;
+
   private final Converter converter;
   private final Writer writer;
   private final CsvDescriptor<T> descriptor;
@@ -29,6 +34,15 @@ public class CsvWriterImpl<T> implements CsvWriter<T>
   private final boolean escaped;
 
   private boolean headerProcessed;
+  /** Record mapper, created on first record, after descriptor columns are known, unless set by creator. */
+  private CsvMapper<T> mapper;
+  /** Column formatters resolved with record mapper, null items for columns without formatter. */
+  private Format[] formatters;
+
+  /** Records are rendered on this buffer and handed to characters stream in a single call. */
+  private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+  /** Number of rendered characters on buffer. */
+  private int length;
 
   /**
    * Create CSV writer using character encoding configured in the CSV format from given CSV descriptor.
@@ -58,29 +72,93 @@ public class CsvWriterImpl<T> implements CsvWriter<T>
     this.escaped = this.format.openQuote() != '\0' && this.format.closeQuote() != '\0' && this.format.escape() != '\0';
   }
 
+  /**
+   * Use given record mapper instead of creating one on first record, so that writers for the same descriptor share
+   * mapper resolution, e.g. chunk writers of {@link CsvParallelWriter}. Mapper is immutable and can be shared by
+   * threads; column formatters are still resolved by this writer. Should be called before first record.
+   * 
+   * @param mapper record mapper for this writer descriptor.
+   * @return this pointer.
+   */
+  CsvWriterImpl<T> mapper(CsvMapper<T> mapper)
+  {
+    this.mapper = mapper;
+    return this;
+  }
+
   @Override
   public void write(T object) throws IOException
   {
     Params.notNull(object, "Object argument");
+    renderHeader();
+    renderRecord(object);
+    drain();
+  }
 
-    // header processing
-    if(format.header() && !headerProcessed) {
-      headerProcessed = true;
-      for(int i = 0; i < descriptor.columns().size(); ++i) {
-        if(i > 0) {
-          writer.write(format.delimiter());
+  /**
+   * Write all records from given iterable. Records are rendered on an internal buffer that is handed to characters
+   * stream in chunks, with one write call per chunk, and header is processed once. Characters stream is not flushed.
+   * 
+   * @param objects records to write, none null.
+   * @throws IOException if writing to output CSV stream fails.
+   */
+  public void writeAll(Iterable<? extends T> objects) throws IOException
+  {
+    Params.notNull(objects, "Objects argument");
+    renderHeader();
+    try {
+      for(T object : objects) {
+        Params.notNull(object, "Object argument");
+        renderRecord(object);
+        if(length >= CHUNK_SIZE) {
+          drain();
         }
-        writeValue(descriptor.columns().get(i).fieldName().toUpperCase());
       }
-      writer.write("\r\n");
     }
-
-    writeValue(getFieldValue(object, 0));
-    for(int i = 1; i < descriptor.columns().size(); ++i) {
-      writer.write(format.delimiter());
-      writeValue(getFieldValue(object, i));
+    catch(RuntimeException e) {
+      // write records rendered before failing one, as writing them one by one does
+      drain();
+      throw e;
     }
-    writer.write("\r\n");
+    drain();
+  }
+
+  /**
+   * Write all records from given array, see {@link #writeAll(Iterable)}.
+   * 
+   * @param objects records to write, none null.
+   * @throws IOException if writing to output CSV stream fails.
+   */
+  public void writeAll(T[] objects) throws IOException
+  {
+    Params.notNull(objects, "Objects argument");
+    writeAll(Arrays.asList(objects));
+  }
+
+  /**
+   * Consider header already written, so that this writer does not write it even if enabled by CSV format. Used when
+   * writer output is appended to an output that already has a header.
+   */
+  void skipHeader()
+  {
+    headerProcessed = true;
+  }
+
+  /**
+   * Write raw record text, as found on a CSV stream, followed by line end. Record text is written as it is, without
+   * escaping, so it should be a valid CSV record for this writer format. Header is not processed by this method.
+   * 
+   * @param record raw record text, without line end.
+   * @throws IOException if writing to output CSV stream fails.
+   */
+  void writeRecord(String record) throws IOException
+  {
+    int recordLength = record.length();
+    ensureCapacity(recordLength);
+    record.getChars(0, recordLength, buffer, length);
+    length += recordLength;
+    renderEndOfLine();
+    drain();
   }
 
   @Override
@@ -106,41 +184,116 @@ public class CsvWriterImpl<T> implements CsvWriter<T>
    */
   private String getFieldValue(T object, int columnIndex)
   {
-    CsvColumn column = descriptor.columns().get(columnIndex);
-    Object value = Classes.getFieldValue(object, column.fieldName());
+    if(formatters == null) {
+      if(mapper == null) {
+        mapper = CsvMapper.of(descriptor);
+      }
+      // resolve column formatters once, per thread formatters included
+      formatters = new Format[descriptor.columns().size()];
+      for(int i = 0; i < formatters.length; ++i) {
+        formatters[i] = descriptor.columns().get(i).formatter();
+      }
+    }
+    Object value = mapper.get(object, columnIndex);
     if(value == null) {
       return format.nullValue();
     }
-    if(column.formatter() != null) {
-      return column.formatter().format(value);
+    if(formatters[columnIndex] != null) {
+      return formatters[columnIndex].format(value);
     }
     return converter.asString(value);
   }
 
+  /** Render header on first call, if header is enabled. */
+  private void renderHeader()
+  {
+    if(format.header() && !headerProcessed) {
+      headerProcessed = true;
+      for(int i = 0; i < descriptor.columns().size(); ++i) {
+        if(i > 0) {
+          render(format.delimiter());
+        }
+        renderValue(descriptor.columns().get(i).fieldName().toUpperCase());
+      }
+      renderEndOfLine();
+    }
+  }
+
+  /** Render record on buffer. If field value retrieval fails, partially rendered record is discarded. */
+  private void renderRecord(T object)
+  {
+    int start = length;
+    try {
+      renderValue(getFieldValue(object, 0));
+      for(int i = 1; i < descriptor.columns().size(); ++i) {
+        render(format.delimiter());
+        renderValue(getFieldValue(object, i));
+      }
+      renderEndOfLine();
+    }
+    catch(RuntimeException e) {
+      length = start;
+      throw e;
+    }
+  }
+
   /**
-   * Write value to output stream. If escape is enabled surround value with {@link CsvFormat#openQuote()}, respective
+   * Render value on buffer. If escape is enabled surround value with {@link CsvFormat#openQuote()}, respective
    * {@link CsvFormat#closeQuote()} and escape close quote.
    * 
-   * @param value CSV value to write.
-   * @throws IOException if writing to output CSV stream fails.
+   * @param value CSV value to render.
    */
-  private void writeValue(String value) throws IOException
+  private void renderValue(String value)
   {
+    int valueLength = value.length();
     if(!escaped) {
-      writer.write(value);
+      ensureCapacity(valueLength);
+      value.getChars(0, valueLength, buffer, length);
+      length += valueLength;
       return;
     }
 
-    writer.write(format.openQuote());
-
-    for(int i = 0; i < value.length(); ++i) {
+    // worst case every character is escaped
+    ensureCapacity(2 * valueLength + 2);
+    char escape = format.escape();
+    char closeQuote = format.closeQuote();
+    buffer[length++] = format.openQuote();
+    for(int i = 0; i < valueLength; ++i) {
       char c = value.charAt(i);
-      if(c == format.escape() || c == format.closeQuote()) {
-        writer.write(format.escape());
+      if(c == escape || c == closeQuote) {
+        buffer[length++] = escape;
       }
-      writer.write(c);
+      buffer[length++] = c;
+    }
+    buffer[length++] = closeQuote;
+  }
+
+  private void render(char c)
+  {
+    ensureCapacity(1);
+    buffer[length++] = c;
+  }
+
+  private void renderEndOfLine()
+  {
+    ensureCapacity(2);
+    buffer[length++] = '\r';
+    buffer[length++] = '\n';
+  }
+
+  private void ensureCapacity(int count)
+  {
+    if(length + count > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, length + count));
     }
+  }
 
-    writer.write(format.closeQuote());
+  /** Hand rendered characters to characters stream and reset buffer. */
+  private void drain() throws IOException
+  {
+    if(length > 0) {
+      writer.write(buffer, 0, length);
+      length = 0;
+    }
   }
 }
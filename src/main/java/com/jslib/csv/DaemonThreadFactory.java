@@ -0,0 +1,35 @@
+package com.jslib.csv;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for daemon worker threads, so that a not closed reader or writer does not prevent JVM exit. Thread names have
+ * given prefix followed by an index unique in JVM.
+ *
+ * @author Iulian Rotaru
+ */
+final class DaemonThreadFactory implements ThreadFactory
+{
+  private static final AtomicInteger index = new AtomicInteger();
+
+  private final String namePrefix;
+
+  /**
+   * Create thread factory for given thread name prefix.
+   *
+   * @param namePrefix thread name prefix, e.g. <code>csv-reader-</code>.
+   */
+  public DaemonThreadFactory(String namePrefix)
+  {
+    this.namePrefix = namePrefix;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable)
+  {
+    Thread thread = new Thread(runnable, namePrefix + index.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
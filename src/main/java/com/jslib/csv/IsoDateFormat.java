@@ -0,0 +1,190 @@
+package com.jslib.csv;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import com.jslib.format.Format;
+
+/**
+ * Column format for ISO-8601 dates, with or without time and offset, e.g. <code>2023-04-28</code>,
+ * <code>2023-04-28T14:30:00</code> or <code>2023-04-28T14:30:00.125+02:00</code>. Dates and date times without offset
+ * are considered UTC. Parsed values are {@link Date} instances; formatting uses ISO instant format, in UTC.
+ * <p>
+ * Common patterns - four digits year, optional time with minutes, seconds and fraction, and optional <code>Z</code> or
+ * <code>+hh:mm</code> offset - are parsed straight to epoch milliseconds, without intermediate objects. Other values
+ * are delegated to <code>java.time</code> parsers, that also report parse errors.
+ * <p>
+ * This format is stateless and thread safe.
+ *
+ * @author Iulian Rotaru
+ */
+public class IsoDateFormat implements Format
+{
+  @Override
+  public String format(Object object)
+  {
+    return DateTimeFormatter.ISO_INSTANT.format(((Date)object).toInstant());
+  }
+
+  @Override
+  public Object parse(String value) throws ParseException
+  {
+    long time = epochMillis(value);
+    if(time != Long.MIN_VALUE) {
+      return new Date(time);
+    }
+    try {
+      return Date.from(instant(value));
+    }
+    catch(DateTimeParseException e) {
+      throw new ParseException(e.getMessage(), e.getErrorIndex());
+    }
+  }
+
+  private static Instant instant(String value)
+  {
+    if(value.indexOf('T') == -1) {
+      return LocalDate.parse(value).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+    char last = value.charAt(value.length() - 1);
+    if(last == 'Z' || value.lastIndexOf('+') > 0 || value.lastIndexOf('-') > value.indexOf('T')) {
+      return OffsetDateTime.parse(value).toInstant();
+    }
+    return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC);
+  }
+
+  /**
+   * Parse common ISO patterns to epoch milliseconds. Fraction digits after milliseconds are truncated, like
+   * {@link Date#from(Instant)} does. Returns {@link Long#MIN_VALUE} if value does not match a common pattern or has
+   * fields out of range, so that caller falls back to <code>java.time</code> parsers.
+   *
+   * @param value date value.
+   * @return epoch milliseconds or {@link Long#MIN_VALUE}.
+   */
+  static long epochMillis(String value)
+  {
+    int length = value.length();
+    if(length < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return Long.MIN_VALUE;
+    }
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    if(year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+      return Long.MIN_VALUE;
+    }
+    long millis = epochDay(year, month, day) * 86400000L;
+    if(length == 10) {
+      return millis;
+    }
+
+    // time: THH:mm[:ss[.fraction]]
+    if(length < 16 || value.charAt(10) != 'T' || value.charAt(13) != ':') {
+      return Long.MIN_VALUE;
+    }
+    int hour = digits(value, 11, 2);
+    int minute = digits(value, 14, 2);
+    if(hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+      return Long.MIN_VALUE;
+    }
+    millis += hour * 3600000L + minute * 60000L;
+
+    int index = 16;
+    if(index < length && value.charAt(index) == ':') {
+      int second = digits(value, index + 1, 2);
+      if(second < 0 || second > 59) {
+        return Long.MIN_VALUE;
+      }
+      millis += second * 1000L;
+      index += 3;
+
+      if(index < length && value.charAt(index) == '.') {
+        int fractionStart = ++index;
+        int fraction = 0;
+        while(index < length && Character.isDigit(value.charAt(index))) {
+          if(index - fractionStart < 3) {
+            fraction = fraction * 10 + (value.charAt(index) - '0');
+          }
+          ++index;
+        }
+        int fractionLength = index - fractionStart;
+        if(fractionLength == 0 || fractionLength > 9) {
+          return Long.MIN_VALUE;
+        }
+        for(int i = fractionLength; i < 3; ++i) {
+          fraction *= 10;
+        }
+        millis += fraction;
+      }
+    }
+
+    // offset: none, Z or +hh:mm / -hh:mm
+    if(index == length) {
+      return millis;
+    }
+    char sign = value.charAt(index);
+    if(sign == 'Z') {
+      return index + 1 == length ? millis : Long.MIN_VALUE;
+    }
+    if((sign != '+' && sign != '-') || index + 6 != length || value.charAt(index + 3) != ':') {
+      return Long.MIN_VALUE;
+    }
+    int offsetHours = digits(value, index + 1, 2);
+    int offsetMinutes = digits(value, index + 4, 2);
+    if(offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+      return Long.MIN_VALUE;
+    }
+    long offset = offsetHours * 3600000L + offsetMinutes * 60000L;
+    return sign == '+' ? millis - offset : millis + offset;
+  }
+
+  /** Parse fixed count of decimal digits, returning -1 if a character is not a digit or value is too short. */
+  private static int digits(String value, int start, int count)
+  {
+    if(start + count > value.length()) {
+      return -1;
+    }
+    int result = 0;
+    for(int i = start; i < start + count; ++i) {
+      char c = value.charAt(i);
+      if(c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  private static int daysInMonth(int year, int month)
+  {
+    switch(month) {
+    case 2:
+      return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+    case 4:
+    case 6:
+    case 9:
+    case 11:
+      return 30;
+    default:
+      return 31;
+    }
+  }
+
+  /** Days since 1970-01-01 for proleptic Gregorian date, using era based civil calendar arithmetic. */
+  private static long epochDay(int year, int month, int day)
+  {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+}
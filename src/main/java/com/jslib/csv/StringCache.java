@@ -0,0 +1,97 @@
+package com.jslib.csv;
+
+/**
+ * Cache for canonical string instances of a low cardinality CSV column, e.g. country, currency or status. Cache is
+ * keyed on a characters range from value builder and returns cached string without creating a temporary one.
+ * <p>
+ * Cache has fixed capacity; when full, new values are not cached anymore but still returned as new strings. Also, cache
+ * samples first lookups and disables itself if column cardinality proves to be high, that is, most lookups are misses.
+ * This way interning can be enabled on all columns without penalty for unique values columns.
+ * <p>
+ * This class is not thread safe and is meant to be used by a single CSV reader.
+ *
+ * @author Iulian Rotaru
+ */
+final class StringCache
+{
+  /** Hash table capacity, power of two. */
+  private static final int CAPACITY = 1024;
+  /** Maximum number of cached strings, for a load factor of 0.5. */
+  private static final int MAX_SIZE = CAPACITY / 2;
+  /** Number of lookups used to sample column cardinality. */
+  private static final int SAMPLE_SIZE = 4096;
+
+  private final String[] strings = new String[CAPACITY];
+  private final int[] hashes = new int[CAPACITY];
+  private int size;
+
+  private int lookups;
+  private int misses;
+  private boolean disabled;
+
+  /**
+   * Get canonical string for characters range from given builder.
+   *
+   * @param builder characters builder,
+   * @param start range start index, inclusive,
+   * @param end range end index, exclusive.
+   * @return canonical string instance, possibly newly created.
+   */
+  public String get(StringBuilder builder, int start, int end)
+  {
+    if(disabled) {
+      return builder.substring(start, end);
+    }
+
+    if(lookups < SAMPLE_SIZE) {
+      ++lookups;
+    }
+    else if(lookups == SAMPLE_SIZE) {
+      ++lookups;
+      // if more than half of sampled values are distinct, column cardinality is too high for caching
+      if(2 * misses > SAMPLE_SIZE) {
+        disabled = true;
+      }
+    }
+
+    int hash = 0;
+    for(int i = start; i < end; ++i) {
+      hash = 31 * hash + builder.charAt(i);
+    }
+
+    int mask = CAPACITY - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    for(;;) {
+      String string = strings[slot];
+      if(string == null) {
+        break;
+      }
+      if(hashes[slot] == hash && equals(string, builder, start, end)) {
+        return string;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    ++misses;
+    String string = builder.substring(start, end);
+    if(size < MAX_SIZE) {
+      strings[slot] = string;
+      hashes[slot] = hash;
+      ++size;
+    }
+    return string;
+  }
+
+  private static boolean equals(String string, StringBuilder builder, int start, int end)
+  {
+    if(string.length() != end - start) {
+      return false;
+    }
+    for(int i = start, j = 0; i < end; ++i, ++j) {
+      if(builder.charAt(i) != string.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,97 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChannelReaderTest
+{
+  private Path file;
+  private String text;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    file = Files.createTempFile("reader", ".txt");
+    StringBuilder builder = new StringBuilder();
+    for(int i = 0; i < 5000; ++i) {
+      builder.append("România € 😀 ").append(i).append('\n');
+    }
+    text = builder.toString();
+    Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    Files.delete(file);
+  }
+
+  @Test
+  public void read() throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ChannelReader reader = new ChannelReader(channel, StandardCharsets.UTF_8);
+      assertThat(read(reader), equalTo(text));
+      assertThat(reader.read(), equalTo(-1));
+    }
+  }
+
+  @Test
+  public void position() throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ChannelReader reader = new ChannelReader(channel, StandardCharsets.UTF_8);
+      read(reader);
+
+      int index = text.indexOf("4000\n") + 5;
+      reader.position(text.substring(0, index).getBytes(StandardCharsets.UTF_8).length);
+      assertThat(read(reader), equalTo(text.substring(index)));
+
+      reader.position(0);
+      assertThat(read(reader), equalTo(text));
+    }
+  }
+
+  /** Mark and reset on every character, so that some marks are on characters buffer end. */
+  @Test
+  public void markReset() throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ChannelReader reader = new ChannelReader(channel, StandardCharsets.UTF_8);
+      StringBuilder builder = new StringBuilder();
+      for(;;) {
+        reader.mark(1);
+        int c = reader.read();
+        reader.reset();
+        assertThat(reader.read(), equalTo(c));
+        if(c == -1) {
+          break;
+        }
+        builder.append((char)c);
+      }
+      assertThat(builder.toString(), equalTo(text));
+    }
+  }
+
+  private static String read(ChannelReader reader) throws IOException
+  {
+    StringBuilder builder = new StringBuilder();
+    char[] buffer = new char[1000];
+    int length;
+    while((length = reader.read(buffer, 0, buffer.length)) != -1) {
+      builder.append(buffer, 0, length);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,88 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ChannelWriterTest
+{
+  private static final String TEXT = "plain ASCII, România Ștefan, € 100, 😀 emoji, lone \ud83d high, lone \ude00 low";
+
+  @Test
+  public void utf8() throws IOException
+  {
+    assertEncoding(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void ascii() throws IOException
+  {
+    assertEncoding(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void iso88591() throws IOException
+  {
+    assertEncoding(StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void encoder() throws IOException
+  {
+    assertEncoding(StandardCharsets.UTF_16LE);
+    assertEncoding(Charset.forName("Cp1250"));
+  }
+
+  @Test
+  public void surrogatePairSplit() throws IOException
+  {
+    String text = "a😀b";
+    for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16BE }) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      Writer writer = new ChannelWriter(Channels.newChannel(buffer), charset, CsvFactoryImpl.ForcePolicy.NONE);
+      writer.write(text, 0, 2);
+      writer.write(text, 2, 2);
+      writer.close();
+      assertThat(buffer.toByteArray(), equalTo(text.getBytes(charset)));
+    }
+  }
+
+  @Test
+  public void largeOutput() throws IOException
+  {
+    StringBuilder text = new StringBuilder();
+    for(int i = 0; i < 20000; ++i) {
+      text.append("Record ").append(i).append(" Ș€\r\n");
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    Writer writer = new ChannelWriter(Channels.newChannel(buffer), StandardCharsets.UTF_8, CsvFactoryImpl.ForcePolicy.NONE);
+    writer.write(text.toString());
+    writer.close();
+    assertThat(buffer.toByteArray(), equalTo(text.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /** Channel writer output should be the same as output stream writer output. */
+  private static void assertEncoding(Charset charset) throws IOException
+  {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(expected, charset)) {
+      writer.write(TEXT);
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (Writer writer = new ChannelWriter(Channels.newChannel(buffer), charset, CsvFactoryImpl.ForcePolicy.NONE)) {
+      writer.write(TEXT);
+    }
+    assertThat(buffer.toByteArray(), equalTo(expected.toByteArray()));
+  }
+}
@@ -0,0 +1,118 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class CharsetDetectorTest
+{
+  private static final Charset ISO_8859_2 = Charset.forName("ISO-8859-2");
+
+  @Test
+  public void bom_UTF8() throws IOException
+  {
+    assertDetection(bytes(new byte[] { (byte)0xEF, (byte)0xBB, (byte)0xBF }, "name", StandardCharsets.UTF_8), StandardCharsets.UTF_8, 3);
+  }
+
+  @Test
+  public void bom_UTF16() throws IOException
+  {
+    assertDetection(bytes(new byte[] { (byte)0xFE, (byte)0xFF }, "name", StandardCharsets.UTF_16BE), StandardCharsets.UTF_16BE, 2);
+    assertDetection(bytes(new byte[] { (byte)0xFF, (byte)0xFE }, "name", StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE, 2);
+  }
+
+  @Test
+  public void bom_UTF32() throws IOException
+  {
+    assertDetection(bytes(new byte[] { 0, 0, (byte)0xFE, (byte)0xFF }, "name", Charset.forName("UTF-32BE")), Charset.forName("UTF-32BE"), 4);
+    assertDetection(bytes(new byte[] { (byte)0xFF, (byte)0xFE, 0, 0 }, "name", Charset.forName("UTF-32LE")), Charset.forName("UTF-32LE"), 4);
+  }
+
+  @Test
+  public void noBom() throws IOException
+  {
+    CharsetDetector detector = CharsetDetector.detect(new ByteArrayInputStream("na".getBytes(StandardCharsets.US_ASCII)), ISO_8859_2, false);
+    assertThat(detector.charset(), equalTo(ISO_8859_2));
+    assertThat(detector.bomLength(), equalTo(0));
+    assertThat(read(detector.stream(), StandardCharsets.US_ASCII), equalTo("na"));
+  }
+
+  @Test
+  public void sample_UTF8() throws IOException
+  {
+    byte[] bytes = "Jassy,Rom\u00e2nia".getBytes(StandardCharsets.UTF_8);
+    CharsetDetector detector = CharsetDetector.detect(new ByteArrayInputStream(bytes), ISO_8859_2, true);
+    assertThat(detector.charset(), equalTo(StandardCharsets.UTF_8));
+    assertThat(read(detector.stream(), StandardCharsets.UTF_8), equalTo("Jassy,Rom\u00e2nia"));
+  }
+
+  @Test
+  public void sample_SingleByte() throws IOException
+  {
+    byte[] bytes = "Jassy,Rom\u00e2nia".getBytes(ISO_8859_2);
+    CharsetDetector detector = CharsetDetector.detect(new ByteArrayInputStream(bytes), ISO_8859_2, true);
+    assertThat(detector.charset(), equalTo(ISO_8859_2));
+    assertThat(read(detector.stream(), ISO_8859_2), equalTo("Jassy,Rom\u00e2nia"));
+  }
+
+  @Test
+  public void sample_Disabled() throws IOException
+  {
+    byte[] bytes = "Rom\u00e2nia".getBytes(StandardCharsets.UTF_8);
+    assertThat(CharsetDetector.detect(new ByteArrayInputStream(bytes), ISO_8859_2, false).charset(), equalTo(ISO_8859_2));
+  }
+
+  @Test
+  public void isUTF8()
+  {
+    assertTrue(isUTF8("Rom\u00e2nia \u20ac \ud83d\ude00".getBytes(StandardCharsets.UTF_8)));
+    // ASCII only has no multi-byte sequence to decide on
+    assertFalse(isUTF8("Romania".getBytes(StandardCharsets.UTF_8)));
+    assertFalse(isUTF8("Rom\u00e2nia".getBytes(ISO_8859_2)));
+    // truncated sequence at sample end
+    assertTrue(isUTF8(new byte[] { (byte)0xC3, (byte)0xA2, (byte)0xE2, (byte)0x82 }));
+    assertFalse(isUTF8(new byte[] { (byte)0xC0, (byte)0x80 }));
+  }
+
+  private static boolean isUTF8(byte[] bytes)
+  {
+    return CharsetDetector.isUTF8(bytes, bytes.length);
+  }
+
+  private static void assertDetection(byte[] bytes, Charset charset, int bomLength) throws IOException
+  {
+    CharsetDetector detector = CharsetDetector.detect(new ByteArrayInputStream(bytes), StandardCharsets.ISO_8859_1, false);
+    assertThat(detector.charset(), equalTo(charset));
+    assertThat(detector.bomLength(), equalTo(bomLength));
+    assertThat(read(detector.stream(), charset), equalTo("name"));
+  }
+
+  private static byte[] bytes(byte[] bom, String text, Charset charset) throws IOException
+  {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    stream.write(bom);
+    stream.write(text.getBytes(charset));
+    return stream.toByteArray();
+  }
+
+  private static String read(InputStream stream, Charset charset) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int length;
+    while((length = stream.read(buffer)) != -1) {
+      bytes.write(buffer, 0, length);
+    }
+    return new String(bytes.toByteArray(), charset);
+  }
+}
@@ -0,0 +1,156 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.Employee;
+
+public class CsvBatchReaderTest
+{
+  private CsvDescriptorImpl<Employee> descriptor;
+
+  @Before
+  public void beforeTest()
+  {
+    descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.columns("name", "address", "wage");
+  }
+
+  @Test
+  public void next() throws IOException
+  {
+    String CSV = "John Doe,Romania,1000.5\r\nJane Doe,France,NULL\r\nBaby Doe,Romania,250\r\n";
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 2);
+
+    CsvBatch batch = reader.next();
+    assertThat(batch.size(), equalTo(2));
+    assertThat(batch.type(1), equalTo(CsvBatch.Type.STRING));
+    assertThat(batch.type(2), equalTo(CsvBatch.Type.DOUBLE));
+    assertThat(batch.string(0, 0), equalTo("John Doe"));
+    assertThat(batch.string(1, 1), equalTo("France"));
+    assertThat(batch.doubles(2)[0], equalTo(1000.5));
+    assertFalse(batch.isNull(2, 0));
+    assertTrue(batch.isNull(2, 1));
+
+    batch = reader.next();
+    assertThat(batch.size(), equalTo(1));
+    assertThat(batch.string(0, 0), equalTo("Baby Doe"));
+    // dictionary is cleared on every batch
+    assertThat(batch.codes(1)[0], equalTo(0));
+    assertThat(batch.dictionary(1), contains("Romania"));
+    assertThat(batch.doubles(2)[0], equalTo(250.0));
+    assertFalse(batch.isNull(2, 0));
+
+    assertThat(reader.next(), nullValue());
+    reader.close();
+  }
+
+  @Test
+  public void next_Header() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.format().header(true);
+
+    String CSV = "wage,name\r\n1000,John Doe\r\n";
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16);
+
+    CsvBatch batch = reader.next();
+    assertThat(batch.size(), equalTo(1));
+    assertThat(batch.columnIndex("name"), equalTo(1));
+    assertThat(batch.doubles(0)[0], equalTo(1000.0));
+    assertThat(batch.string(1, 0), equalTo("John Doe"));
+    reader.close();
+  }
+
+  @Test
+  public void next_BadValue() throws IOException
+  {
+    String CSV = "John Doe,Romania,wage\r\n";
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16);
+
+    CsvBatch batch = reader.next();
+    assertThat(batch.size(), equalTo(1));
+    assertTrue(batch.isNull(2, 0));
+    reader.close();
+  }
+
+  @Test(expected = CsvException.class)
+  public void next_BadValue_Strict() throws IOException
+  {
+    descriptor.format().strict(true);
+    String CSV = "John Doe,Romania,wage\r\n";
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16);
+    reader.next();
+    reader.close();
+  }
+
+  @Test
+  public void next_RejectHandler() throws IOException
+  {
+    String CSV = "John Doe,Romania,wage\r\nJane Doe,France\r\n";
+    List<CsvReject> rejects = new ArrayList<>();
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16).rejectHandler(rejects::add);
+
+    CsvBatch batch = reader.next();
+    assertThat(batch.size(), equalTo(2));
+    assertTrue(batch.isNull(2, 0));
+    assertTrue(batch.isNull(2, 1));
+    reader.close();
+
+    assertThat(rejects.size(), equalTo(2));
+    assertThat(rejects.get(0).column(), equalTo(2));
+    assertThat(rejects.get(0).record(), equalTo("John Doe,Romania,wage"));
+    assertThat(rejects.get(1).column(), equalTo(-1));
+    assertThat(rejects.get(1).line(), equalTo(2L));
+  }
+
+  @Test
+  public void next_NarrowTypes() throws IOException
+  {
+    CsvDescriptorImpl<Counter> descriptor = new CsvDescriptorImpl<>(Counter.class);
+    descriptor.columns("level", "count");
+
+    String CSV = "100,30000\r\n200,40000\r\n";
+    List<CsvReject> rejects = new ArrayList<>();
+    CsvBatchReader<Counter> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16).rejectHandler(rejects::add);
+
+    CsvBatch batch = reader.next();
+    assertThat(batch.size(), equalTo(2));
+    assertThat(batch.ints(0)[0], equalTo(100));
+    assertThat(batch.ints(1)[0], equalTo(30000));
+    // values out of byte and short range are not truncated but rejected
+    assertTrue(batch.isNull(0, 1));
+    assertTrue(batch.isNull(1, 1));
+    reader.close();
+
+    assertThat(rejects.size(), equalTo(2));
+  }
+
+  @Test(expected = CsvException.class)
+  public void badVectorType() throws IOException
+  {
+    String CSV = "John Doe,Romania,1000\r\n";
+    CsvBatchReader<Employee> reader = new CsvBatchReader<>(descriptor, new StringReader(CSV), 16);
+    reader.next().ints(2);
+    reader.close();
+  }
+
+  private static class Counter
+  {
+    byte level;
+    short count;
+  }
+}
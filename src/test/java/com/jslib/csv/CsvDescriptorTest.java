@@ -4,8 +4,10 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -23,6 +25,7 @@ import com.jslib.api.csv.CsvColumn;
 import com.jslib.api.csv.CsvDescriptor;
 import com.jslib.csv.fixture.NameFormat;
 import com.jslib.csv.fixture.Person;
+import com.jslib.format.Format;
 import com.jslib.lang.ConfigBuilder;
 import com.jslib.lang.ConfigException;
 import com.jslib.util.Classes;
@@ -143,6 +146,14 @@ public class CsvDescriptorTest
     assertTrue(descriptor.format().strict());
   }
 
+  @Test
+  public void config_Intern() throws ConfigException
+  {
+    CsvDescriptorImpl<Person> descriptor = (CsvDescriptorImpl<Person>)descriptor("config-intern.xml");
+    assertFalse(descriptor.isInterned("name"));
+    assertTrue(descriptor.isInterned("address"));
+  }
+
   @Test(expected = ConfigException.class)
   public void config_NoBoundClass() throws ConfigException
   {
@@ -258,6 +269,53 @@ public class CsvDescriptorTest
     descriptor.load(Arrays.asList("NAME", "POSTAL_ADDRESS", "phone-number", "parking code"));
   }
 
+  @Test
+  public void columnPerThread() throws Exception
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columnPerThread("name", NameFormat::new);
+
+    CsvColumn column = descriptor.columns().get(0);
+    Format formatter = column.formatter();
+    assertThat(formatter, instanceOf(NameFormat.class));
+    assertThat(column.formatter(), sameInstance(formatter));
+
+    Format[] threadFormatter = new Format[1];
+    Thread thread = new Thread(() -> threadFormatter[0] = column.formatter());
+    thread.start();
+    thread.join();
+    assertThat(threadFormatter[0], instanceOf(NameFormat.class));
+    assertThat(threadFormatter[0], not(sameInstance(formatter)));
+  }
+
+  @Test
+  public void columnPerThread_Remove() throws Exception
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columnPerThread("name", NameFormat::new);
+
+    CsvColumn column = descriptor.columns().get(0);
+    Format formatter = column.formatter();
+    descriptor.removeThreadFormatters();
+    assertThat(column.formatter(), instanceOf(NameFormat.class));
+    assertThat(column.formatter(), not(sameInstance(formatter)));
+  }
+
+  /** Configured formatter is a single instance, shared by all threads. */
+  @Test
+  public void config_FormatterShared() throws Exception
+  {
+    CsvDescriptor<Person> descriptor = descriptor("default-config.xml");
+    CsvColumn column = descriptor.columns().get(0);
+    Format formatter = column.formatter();
+
+    Format[] threadFormatter = new Format[1];
+    Thread thread = new Thread(() -> threadFormatter[0] = column.formatter());
+    thread.start();
+    thread.join();
+    assertThat(threadFormatter[0], sameInstance(formatter));
+  }
+
   // ----------------------------------------------------------------------------------------------
 
   private CsvDescriptor<Person> descriptor(String resourceName) throws ConfigException
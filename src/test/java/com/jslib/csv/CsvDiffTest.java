@@ -0,0 +1,105 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.csv.fixture.Measurement;
+
+public class CsvDiffTest
+{
+  private static final String OLD = "" + //
+      "ID,VALUE,SENSOR-NAME\r\n" + //
+      "1,10.5,north\r\n" + //
+      "2,11.0,south\r\n" + //
+      "3,12.0,east\r\n" + //
+      "5,13.0,west\r\n";
+
+  private static final String NEW = "" + //
+      "ID,VALUE,SENSOR-NAME\r\n" + //
+      "1,10.5,north\r\n" + //
+      "3,12.5,north-east\r\n" + //
+      "4,14.0,center\r\n" + //
+      "5,13.0,west\r\n" + //
+      "10,1.0,remote\r\n";
+
+  private CsvDiff<Measurement> diff;
+  private List<String> events;
+  private CsvDiff.Listener<Measurement> listener;
+
+  @Before
+  public void beforeTest()
+  {
+    CsvDescriptor<Measurement> descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+    diff = new CsvDiff<>(descriptor, "id");
+    events = new ArrayList<>();
+
+    listener = new CsvDiff.Listener<Measurement>()
+    {
+      @Override
+      public void added(Measurement record)
+      {
+        events.add("+" + record.id);
+      }
+
+      @Override
+      public void removed(Measurement record)
+      {
+        events.add("-" + record.id);
+      }
+
+      @Override
+      public void changed(Measurement oldRecord, Measurement newRecord, List<String> fieldNames)
+      {
+        events.add("~" + oldRecord.id + fieldNames + oldRecord.sensorName + ">" + newRecord.sensorName);
+      }
+    };
+  }
+
+  @Test
+  public void diff() throws IOException
+  {
+    diff.diff(new StringReader(OLD), new StringReader(NEW), listener);
+    // key 10 is after key 5 since keys are compared as integers
+    assertThat(events, contains("-2", "~3[value, sensorName]east>north-east", "+4", "+10"));
+  }
+
+  /** Formatting only change is reported with empty changed fields. */
+  @Test
+  public void diff_Formatting() throws IOException
+  {
+    String OLD = "ID,VALUE,SENSOR-NAME\r\n1,10.5,north\r\n2,NULL,south\r\n";
+    String NEW = "ID,VALUE,SENSOR-NAME\r\n1,10.5,\"north\"\r\n2,null,south\r\n";
+    diff.diff(new StringReader(OLD), new StringReader(NEW), listener);
+    assertThat(events, contains("~1[]north>north", "~2[]south>south"));
+  }
+
+  @Test
+  public void diff_Files() throws IOException
+  {
+    Path oldFile = Files.createTempFile("csv", ".csv");
+    Path newFile = Files.createTempFile("csv", ".csv");
+    try {
+      Files.write(oldFile, OLD.getBytes(StandardCharsets.UTF_8));
+      Files.write(newFile, NEW.getBytes(StandardCharsets.UTF_8));
+      diff.diff(oldFile, newFile, listener);
+      assertThat(events, contains("-2", "~3[value, sensorName]east>north-east", "+4", "+10"));
+    }
+    finally {
+      Files.delete(oldFile);
+      Files.delete(newFile);
+    }
+  }
+}
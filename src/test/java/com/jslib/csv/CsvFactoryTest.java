@@ -0,0 +1,143 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.api.csv.CsvWriter;
+import com.jslib.csv.fixture.Person;
+
+public class CsvFactoryTest
+{
+  private CsvFactoryImpl factory;
+  private CsvDescriptor<Person> descriptor;
+
+  @Before
+  public void beforeTest()
+  {
+    factory = new CsvFactoryImpl();
+    descriptor = factory.getDescriptor(Person.class);
+    descriptor.columns("name", "address");
+  }
+
+  @Test
+  public void getReader_Gzip() throws IOException
+  {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    CsvWriter<Person> writer = factory.getWriter(descriptor, buffer, 9, 512);
+    writer.write(new Person("John Doe", "Romania"));
+    writer.write(new Person("Baby Doe", "United States"));
+    writer.close();
+
+    List<Person> persons = read(new ByteArrayInputStream(buffer.toByteArray()));
+    assertThat(persons, hasSize(2));
+    assertThat(persons.get(0).name, equalTo("John Doe"));
+    assertThat(persons.get(1).address, equalTo("United States"));
+  }
+
+  @Test
+  public void getReader_Plain() throws IOException
+  {
+    List<Person> persons = read(getClass().getResourceAsStream("/conformance.csv"));
+    assertThat(persons, hasSize(2));
+    assertThat(persons.get(0).name, equalTo("John Doe"));
+  }
+
+  @Test
+  public void getWriter_GzipFile() throws IOException
+  {
+    Path file = Files.createTempFile("persons", ".csv.gz");
+    try {
+      CsvWriter<Person> writer = factory.getWriter(descriptor, file);
+      writer.write(new Person("John Doe", "Romania"));
+      writer.close();
+
+      try (InputStream stream = new GZIPInputStream(Files.newInputStream(file))) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] bytes = new byte[1024];
+        for(int count; (count = stream.read(bytes)) != -1;) {
+          buffer.write(bytes, 0, count);
+        }
+        assertThat(buffer.toString("UTF-8"), equalTo("\"John Doe\",\"Romania\"\r\n"));
+      }
+
+      CsvReader<Person> reader = factory.getReader(descriptor, file);
+      assertThat(reader.next().address, equalTo("Romania"));
+      reader.close();
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void getWriter_File() throws IOException
+  {
+    Path file = Files.createTempFile("persons", ".csv");
+    try {
+      CsvWriter<Person> writer = factory.getWriter(descriptor, file, CsvFactoryImpl.ForcePolicy.FLUSH);
+      writer.write(new Person("John Doe", "Rom\u00e2nia"));
+      writer.flush();
+      writer.write(new Person("Baby Doe", "United States"));
+      writer.close();
+
+      String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+      assertThat(content, equalTo("\"John Doe\",\"Rom\u00e2nia\"\r\n\"Baby Doe\",\"United States\"\r\n"));
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = CsvException.class)
+  public void getWriter_GzipFileForce() throws IOException
+  {
+    Path file = Files.createTempFile("persons", ".csv.gz");
+    try {
+      factory.getWriter(descriptor, file, CsvFactoryImpl.ForcePolicy.CLOSE);
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void getWriter_Channel() throws IOException
+  {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    CsvWriter<Person> writer = factory.getWriter(descriptor, Channels.newChannel(buffer));
+    writer.write(new Person("John Doe", "Romania"));
+    writer.close();
+
+    assertThat(buffer.toString("UTF-8"), equalTo("\"John Doe\",\"Romania\"\r\n"));
+  }
+
+  private List<Person> read(InputStream stream) throws IOException
+  {
+    CsvReader<Person> reader = factory.getReader(descriptor, stream);
+    List<Person> persons = new ArrayList<>();
+    for(Person person : reader) {
+      persons.add(person);
+    }
+    reader.close();
+    return persons;
+  }
+}
@@ -0,0 +1,117 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.Person;
+
+public class CsvIndexTest
+{
+  private CsvDescriptor<Person> descriptor;
+  private Path file;
+
+  @Before
+  public void beforeTest() throws URISyntaxException
+  {
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    file = Paths.get(getClass().getResource("/index.csv").toURI());
+  }
+
+  @Test
+  public void lookup() throws IOException
+  {
+    CsvIndex<Person> index = new CsvIndex<>(descriptor, file, "name");
+    assertThat(index.size(), equalTo(5));
+
+    assertThat(index.lookup("Jane Doe").address, equalTo("France"));
+    assertThat(index.lookup("Ghiță Mureșan").address, equalTo("România"));
+    assertThat(index.lookup("Baby\r\nDoe").address, equalTo("United Kingdom"));
+    index.close();
+  }
+
+  /** Key value is not unique and lookup should return the first record. */
+  @Test
+  public void lookup_Duplicate() throws IOException
+  {
+    CsvIndex<Person> index = new CsvIndex<>(descriptor, file, "name");
+    assertThat(index.lookup("John Doe").address, equalTo("Romania"));
+    index.close();
+  }
+
+  @Test
+  public void lookup_Missing() throws IOException
+  {
+    CsvIndex<Person> index = new CsvIndex<>(descriptor, file, "address");
+    assertThat(index.lookup("Russia"), nullValue());
+    assertThat(index.lookup("Germany").name, equalTo("John Doe"));
+    index.close();
+  }
+
+  /** Byte order mark charset overrides format charset and should be used on lookup too. */
+  @Test
+  public void lookup_ByteOrderMark() throws IOException
+  {
+    Path file = Files.createTempFile("index", ".csv");
+    try {
+      byte[] content = "name,address\r\nJohn Doe,Romania\r\nJane Doe,France\r\n".getBytes(StandardCharsets.UTF_16LE);
+      byte[] bytes = new byte[content.length + 2];
+      bytes[0] = (byte)0xFF;
+      bytes[1] = (byte)0xFE;
+      System.arraycopy(content, 0, bytes, 2, content.length);
+      Files.write(file, bytes);
+
+      CsvIndex<Person> index = new CsvIndex<>(descriptor, file, "name");
+      assertThat(index.lookup("Jane Doe").address, equalTo("France"));
+      assertThat(index.lookup("John Doe").address, equalTo("Romania"));
+      index.close();
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  /** Lookups reuse the same reader and should not depend on previous lookup position. */
+  @Test
+  public void lookup_ManyRecords() throws IOException
+  {
+    Path file = Files.createTempFile("index", ".csv");
+    try {
+      StringBuilder content = new StringBuilder("name,address\r\n");
+      for(int i = 0; i < 10000; ++i) {
+        content.append("Ștefan ").append(i).append(",Iași ").append(i).append("\r\n");
+      }
+      Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+      CsvIndex<Person> index = new CsvIndex<>(descriptor, file, "name");
+      assertThat(index.size(), equalTo(10000));
+      for(int i = 9999; i >= 0; i -= 7) {
+        assertThat(index.lookup("Ștefan " + i).address, equalTo("Iași " + i));
+      }
+      assertThat(index.lookup("Ștefan 0").address, equalTo("Iași 0"));
+      index.close();
+    }
+    finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test(expected = CsvException.class)
+  public void missingKeyColumn() throws IOException
+  {
+    new CsvIndex<>(descriptor, file, "wage");
+  }
+}
@@ -0,0 +1,90 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.Measurement;
+import com.jslib.csv.fixture.Person;
+
+public class CsvJoinTest
+{
+  private static final String LEFT = "" + //
+      "name,address\r\n" + //
+      "a,Address A\r\n" + //
+      "b,Address B1\r\n" + //
+      "b,Address B2\r\n" + //
+      "d,Address D\r\n";
+
+  private static final String RIGHT = "" + //
+      "ID,SENSOR-NAME\r\n" + //
+      "1,b\r\n" + //
+      "2,c\r\n" + //
+      "3,d\r\n" + //
+      "4,d\r\n";
+
+  private CsvJoin<Person, Measurement> join;
+  private List<String> pairs;
+
+  @Before
+  public void beforeTest()
+  {
+    CsvDescriptor<Person> left = new CsvDescriptorImpl<>(Person.class);
+    left.format().header(true);
+    CsvDescriptor<Measurement> right = new CsvDescriptorImpl<>(Measurement.class);
+    right.format().header(true);
+
+    join = new CsvJoin<>(left, right, new String[] { "name" }, new String[] { "sensorName" });
+    pairs = new ArrayList<>();
+  }
+
+  @Test
+  public void inner() throws IOException
+  {
+    join(CsvJoin.Type.INNER);
+    assertThat(pairs, contains("Address B1:1", "Address B2:1", "Address D:3", "Address D:4"));
+  }
+
+  @Test
+  public void left() throws IOException
+  {
+    join(CsvJoin.Type.LEFT);
+    assertThat(pairs, contains("Address A:null", "Address B1:1", "Address B2:1", "Address D:3", "Address D:4"));
+  }
+
+  @Test
+  public void right() throws IOException
+  {
+    join(CsvJoin.Type.RIGHT);
+    assertThat(pairs, contains("Address B1:1", "Address B2:1", "null:2", "Address D:3", "Address D:4"));
+  }
+
+  @Test
+  public void full() throws IOException
+  {
+    join(CsvJoin.Type.FULL);
+    assertThat(pairs, contains("Address A:null", "Address B1:1", "Address B2:1", "null:2", "Address D:3", "Address D:4"));
+  }
+
+  @Test(expected = CsvException.class)
+  public void notSorted() throws IOException
+  {
+    join.join(new StringReader(LEFT), new StringReader(RIGHT.replace("3,d", "3,a")), CsvJoin.Type.INNER, (person, measurement) -> {});
+  }
+
+  private void join(CsvJoin.Type type) throws IOException
+  {
+    join.join(new StringReader(LEFT), new StringReader(RIGHT), type, (person, measurement) -> {
+      pairs.add((person != null ? person.address : null) + ":" + (measurement != null ? measurement.id : null));
+    });
+  }
+}
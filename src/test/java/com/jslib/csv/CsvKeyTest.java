@@ -0,0 +1,35 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.junit.Test;
+
+public class CsvKeyTest
+{
+  @Test
+  public void compare_Nulls()
+  {
+    assertThat(CsvKey.compare(new Comparable[] { null }, new Comparable[] { 1 }), lessThan(0));
+    assertThat(CsvKey.compare(new Comparable[] { 1 }, new Comparable[] { null }), greaterThan(0));
+    assertThat(CsvKey.compare(new Comparable[] { null }, new Comparable[] { null }), equalTo(0));
+  }
+
+  /** Number types can differ on the same column, e.g. formatter returning integer and long values. */
+  @Test
+  public void compare_MixedNumbers()
+  {
+    assertThat(CsvKey.compare(new Comparable[] { 2 }, new Comparable[] { 10L }), lessThan(0));
+    assertThat(CsvKey.compare(new Comparable[] { 10L }, new Comparable[] { 10 }), equalTo(0));
+    assertThat(CsvKey.compare(new Comparable[] { 2.5 }, new Comparable[] { 2 }), greaterThan(0));
+  }
+
+  @Test
+  public void compare_MixedTypes()
+  {
+    int result = CsvKey.compare(new Comparable[] { "a" }, new Comparable[] { 1 });
+    assertThat(result, equalTo(-CsvKey.compare(new Comparable[] { 1 }, new Comparable[] { "a" })));
+  }
+}
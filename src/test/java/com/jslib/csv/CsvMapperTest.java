@@ -0,0 +1,134 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.api.csv.CsvWriter;
+import com.jslib.csv.fixture.Location;
+import com.jslib.csv.fixture.Person;
+import com.jslib.csv.fixture.Point;
+
+public class CsvMapperTest
+{
+  @Test
+  public void constructor()
+  {
+    assertThat(CsvMapper.constructor(Person.class), nullValue());
+    assertThat(CsvMapper.constructor(Point.class), notNullValue());
+    assertThat(CsvMapper.constructor(Location.class).getParameterCount(), equalTo(2));
+  }
+
+  @Test(expected = CsvException.class)
+  public void constructor_Missing()
+  {
+    CsvMapper.constructor(Missing.class);
+  }
+
+  @Test
+  public void parameterNames() throws NoSuchMethodException
+  {
+    assertThat(Arrays.asList(CsvMapper.parameterNames(Point.class.getConstructor(int.class, int.class))), contains("x", "y"));
+    assertThat(Arrays.asList(CsvMapper.parameterNames(Location.class.getConstructor(String.class, String.class))), contains("country", "city"));
+  }
+
+  @Test
+  public void readCanonicalConstructor() throws IOException
+  {
+    CsvDescriptorImpl<Point> descriptor = new CsvDescriptorImpl<>(Point.class);
+    descriptor.columns("y", "x");
+
+    List<Point> points = read(descriptor, "2,1\r\nNULL,3\r\n");
+    assertThat(points, hasSize(2));
+    assertThat(points.get(0).getX(), equalTo(1));
+    assertThat(points.get(0).getY(), equalTo(2));
+    assertThat(points.get(1).getX(), equalTo(3));
+    assertThat(points.get(1).getY(), equalTo(0));
+  }
+
+  @Test
+  public void readAnnotatedConstructor() throws IOException
+  {
+    CsvDescriptorImpl<Location> descriptor = new CsvDescriptorImpl<>(Location.class);
+    descriptor.columns("city", "country", "zip");
+
+    List<Location> locations = read(descriptor, "Iasi,Romania,700259\r\n");
+    assertThat(locations, hasSize(1));
+    assertThat(locations.get(0).getCity(), equalTo("Iasi"));
+    assertThat(locations.get(0).getCountry(), equalTo("Romania"));
+    assertThat(locations.get(0).getZip(), equalTo("700259"));
+  }
+
+  @Test
+  public void write() throws IOException
+  {
+    CsvDescriptorImpl<Point> descriptor = new CsvDescriptorImpl<>(Point.class);
+    descriptor.columns("x", "y");
+
+    StringWriter buffer = new StringWriter();
+    CsvWriter<Point> writer = new CsvWriterImpl<>(descriptor, buffer);
+    writer.write(new Point(1, 2));
+    writer.close();
+
+    assertThat(buffer.toString(), equalTo("\"1\",\"2\"\r\n"));
+  }
+
+  @Test
+  public void write_MissingConstructor() throws IOException
+  {
+    CsvDescriptorImpl<Missing> descriptor = new CsvDescriptorImpl<>(Missing.class);
+    descriptor.columns("name");
+
+    StringWriter buffer = new StringWriter();
+    CsvWriter<Missing> writer = new CsvWriterImpl<>(descriptor, buffer);
+    writer.write(new Missing("John Doe", 1));
+    writer.close();
+
+    assertThat(buffer.toString(), equalTo("\"John Doe\"\r\n"));
+  }
+
+  @Test(expected = CsvException.class)
+  public void read_MissingConstructor() throws IOException
+  {
+    CsvDescriptorImpl<Missing> descriptor = new CsvDescriptorImpl<>(Missing.class);
+    descriptor.columns("name");
+    read(descriptor, "John Doe\r\n");
+  }
+
+  private static <T> List<T> read(CsvDescriptorImpl<T> descriptor, String csv) throws IOException
+  {
+    List<T> records = new ArrayList<>();
+    try (CsvReader<T> reader = new CsvReaderImpl<>(descriptor, new StringReader(csv))) {
+      for(T record : reader) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private static class Missing
+  {
+    @SuppressWarnings("unused")
+    private final String name;
+
+    @SuppressWarnings("unused")
+    Missing(String name, int count)
+    {
+      this.name = name;
+    }
+  }
+}
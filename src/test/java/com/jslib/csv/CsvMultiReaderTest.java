@@ -0,0 +1,125 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.csv.fixture.Person;
+
+public class CsvMultiReaderTest
+{
+  private Path directory;
+  private CsvDescriptor<Person> descriptor;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    directory = Files.createTempDirectory("csv");
+    for(int i = 0; i < 4; ++i) {
+      StringBuilder builder = new StringBuilder("name,address\r\n");
+      for(int j = 0; j < 3; ++j) {
+        builder.append(String.format("Person %d.%d,Address %d.%d\r\n", i, j, i, j));
+      }
+      Files.write(directory.resolve(String.format("part-%d.csv", i)), builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    Files.write(directory.resolve("readme.txt"), "not a CSV file".getBytes(StandardCharsets.UTF_8));
+
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    for(Path file : CsvMultiReader.files(directory, "*")) {
+      Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void files() throws IOException
+  {
+    List<Path> files = CsvMultiReader.files(directory, "part-*.csv");
+    assertThat(files, hasSize(4));
+    assertThat(files.get(0).getFileName().toString(), equalTo("part-0.csv"));
+    assertThat(files.get(3).getFileName().toString(), equalTo("part-3.csv"));
+  }
+
+  @Test
+  public void sequential() throws IOException
+  {
+    List<String> names = names(new CsvMultiReader<>(descriptor, CsvMultiReader.files(directory, "*.csv")));
+    assertThat(names, contains(expectedNames()));
+  }
+
+  @Test
+  public void concurrent_Ordered() throws IOException
+  {
+    List<String> names = names(new CsvMultiReader<>(descriptor, CsvMultiReader.files(directory, "*.csv"), 3, true));
+    assertThat(names, contains(expectedNames()));
+  }
+
+  @Test
+  public void concurrent_Unordered() throws IOException
+  {
+    List<String> names = names(new CsvMultiReader<>(descriptor, CsvMultiReader.files(directory, "*.csv"), 3, false));
+    assertThat(names, containsInAnyOrder(expectedNames()));
+  }
+
+  /** Columns are loaded from the first file with header, even if first file is empty, before reading threads start. */
+  @Test
+  public void concurrent_EmptyFirstFile() throws IOException
+  {
+    Files.write(directory.resolve("part-.csv"), new byte[0]);
+    List<Path> files = CsvMultiReader.files(directory, "*.csv");
+    assertThat(files.get(0).getFileName().toString(), equalTo("part-.csv"));
+
+    List<String> names = names(new CsvMultiReader<>(descriptor, files, 3, true));
+    assertThat(names, contains(expectedNames()));
+  }
+
+  @Test(expected = CsvException.class)
+  public void headerMismatch() throws IOException
+  {
+    Files.write(directory.resolve("part-4.csv"), "address,name\r\nAddress,Person\r\n".getBytes(StandardCharsets.UTF_8));
+    new CsvMultiReader<>(descriptor, CsvMultiReader.files(directory, "*.csv"));
+  }
+
+  private static List<String> names(CsvReader<Person> reader) throws IOException
+  {
+    List<String> names = new ArrayList<>();
+    for(Person person : reader) {
+      names.add(person.name);
+    }
+    reader.close();
+    return names;
+  }
+
+  private static Object[] expectedNames()
+  {
+    List<String> names = new ArrayList<>();
+    for(int i = 0; i < 4; ++i) {
+      for(int j = 0; j < 3; ++j) {
+        names.add(String.format("Person %d.%d", i, j));
+      }
+    }
+    return names.toArray();
+  }
+}
@@ -0,0 +1,82 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.csv.fixture.ExceptionalFormat;
+import com.jslib.csv.fixture.NameFormat;
+import com.jslib.csv.fixture.Person;
+
+public class CsvParallelWriterTest
+{
+  private CsvDescriptorImpl<Person> descriptor;
+
+  @Before
+  public void beforeTest()
+  {
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    descriptor.columnPerThread("name", NameFormat::new);
+    descriptor.column("address");
+  }
+
+  @Test
+  public void write() throws IOException
+  {
+    List<Person> persons = new ArrayList<>();
+    for(int i = 0; i < 10000; ++i) {
+      persons.add(new Person("person " + i, i % 10 == 0 ? null : "Address \"" + i + "\""));
+    }
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (CsvWriterImpl<Person> writer = new CsvWriterImpl<>(descriptor, expected)) {
+      for(Person person : persons) {
+        writer.write(person);
+      }
+    }
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    new CsvParallelWriter<>(descriptor).chunkSize(100).parallelism(4).write(persons, stream);
+
+    assertThat(stream.toString("UTF-8"), equalTo(expected.toString("UTF-8")));
+  }
+
+  @Test
+  public void write_Stream() throws IOException
+  {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    new CsvParallelWriter<>(descriptor).chunkSize(2).parallelism(2).write(IntStream.range(0, 5).mapToObj(i -> new Person("p" + i, "a" + i)), stream);
+
+    String expected = "\"NAME\",\"ADDRESS\"\r\n\"P0\",\"a0\"\r\n\"P1\",\"a1\"\r\n\"P2\",\"a2\"\r\n\"P3\",\"a3\"\r\n\"P4\",\"a4\"\r\n";
+    assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8), equalTo(expected));
+  }
+
+  @Test
+  public void write_Empty() throws IOException
+  {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    new CsvParallelWriter<>(descriptor).write(Collections.<Person> emptyList(), stream);
+    assertThat(stream.size(), equalTo(0));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void write_FormatException() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.column("name", new ExceptionalFormat());
+
+    List<Person> persons = Collections.nCopies(100, new Person("John Doe", "Romania"));
+    new CsvParallelWriter<>(descriptor).chunkSize(10).parallelism(2).write(persons, new ByteArrayOutputStream());
+  }
+}
@@ -0,0 +1,177 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.NameFormat;
+import com.jslib.csv.fixture.Person;
+
+public class CsvPartitionedWriterTest
+{
+  private CsvDescriptorImpl<Person> descriptor;
+  private Path directory;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    descriptor.column("name");
+    descriptor.column("address");
+    directory = Files.createTempDirectory("partitions");
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    try (Stream<Path> files = Files.list(directory)) {
+      for(Path file : (Iterable<Path>)files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void write() throws IOException
+  {
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, "address")) {
+      writer.write(new Person("John Doe", "Romania"));
+      writer.write(new Person("Jane Doe", "Spain"));
+      writer.write(new Person("Joe Doe", "Romania"));
+    }
+
+    assertThat(read("Romania.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"John Doe\",\"Romania\"\r\n\"Joe Doe\",\"Romania\"\r\n"));
+    assertThat(read("Spain.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"Jane Doe\",\"Spain\"\r\n"));
+  }
+
+  @Test
+  public void write_Reopen() throws IOException
+  {
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, person -> person.address).maxOpenFiles(1)) {
+      writer.write(new Person("p1", "A"));
+      writer.write(new Person("p2", "B"));
+      writer.write(new Person("p3", "A"));
+      writer.write(new Person("p4", "B"));
+    }
+
+    // header is written once although files are closed and reopened in append mode
+    assertThat(read("A.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p1\",\"A\"\r\n\"p3\",\"A\"\r\n"));
+    assertThat(read("B.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"B\"\r\n\"p4\",\"B\"\r\n"));
+  }
+
+  @Test
+  public void write_TruncateExisting() throws IOException
+  {
+    Files.write(directory.resolve("A.csv"), "stale content".getBytes(StandardCharsets.UTF_8));
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, person -> person.address)) {
+      writer.write(new Person("p1", "A"));
+    }
+    assertThat(read("A.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p1\",\"A\"\r\n"));
+  }
+
+  @Test
+  public void write_MaxRecords() throws IOException
+  {
+    CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, person -> person.address).maxRecords(2).maxOpenFiles(1);
+    try {
+      for(int i = 0; i < 5; ++i) {
+        writer.write(new Person("p" + i, "A"));
+        writer.write(new Person("q" + i, "B"));
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    assertThat(writer.files(), contains(directory.resolve("A-00000.csv"), directory.resolve("A-00001.csv"), directory.resolve("A-00002.csv"), //
+        directory.resolve("B-00000.csv"), directory.resolve("B-00001.csv"), directory.resolve("B-00002.csv")));
+    assertThat(read("A-00001.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"A\"\r\n\"p3\",\"A\"\r\n"));
+    assertThat(read("B-00002.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"q4\",\"B\"\r\n"));
+  }
+
+  @Test
+  public void write_MaxBytes() throws IOException
+  {
+    // header is 18 bytes and every record 10 bytes; part is rolled when it reaches the limit
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, person -> person.address).maxBytes(38)) {
+      for(int i = 0; i < 5; ++i) {
+        writer.write(new Person("p" + i, "A"));
+      }
+    }
+
+    assertThat(read("A-00000.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p0\",\"A\"\r\n\"p1\",\"A\"\r\n"));
+    assertThat(read("A-00001.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"A\"\r\n\"p3\",\"A\"\r\n"));
+    assertThat(read("A-00002.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p4\",\"A\"\r\n"));
+  }
+
+  @Test
+  public void write_UnsafeKey() throws IOException
+  {
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, "address")) {
+      writer.write(new Person("p1", "../etc/x"));
+      writer.write(new Person("p2", null));
+      writer.write(new Person("p3", ""));
+    }
+
+    assertThat(read("_._etc_x.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p1\",\"../etc/x\"\r\n"));
+    assertThat(read("null.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"NULL\"\r\n"));
+    assertThat(read("_.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p3\",\"\"\r\n"));
+  }
+
+  @Test
+  public void write_FileNameCollision() throws IOException
+  {
+    CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, "address");
+    try {
+      writer.write(new Person("p1", "New York"));
+      writer.write(new Person("p2", "New_York"));
+      writer.write(new Person("p3", "new york"));
+      writer.write(new Person("p4", "New York"));
+    }
+    finally {
+      writer.close();
+    }
+
+    assertThat(writer.files(), contains(directory.resolve("New_York.csv"), directory.resolve("New_York~1.csv"), directory.resolve("new_york~2.csv")));
+    assertThat(read("New_York.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p1\",\"New York\"\r\n\"p4\",\"New York\"\r\n"));
+    assertThat(read("New_York~1.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"New_York\"\r\n"));
+    assertThat(read("new_york~2.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p3\",\"new york\"\r\n"));
+  }
+
+  @Test
+  public void write_ColumnFormatter() throws IOException
+  {
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.column("name", new NameFormat());
+    descriptor.column("address");
+
+    try (CsvPartitionedWriter<Person> writer = new CsvPartitionedWriter<>(descriptor, directory, "name")) {
+      writer.write(new Person("john", "Romania"));
+    }
+    assertThat(read("JOHN.csv"), equalTo("\"JOHN\",\"Romania\"\r\n"));
+  }
+
+  @Test(expected = CsvException.class)
+  public void missingColumn() throws IOException
+  {
+    new CsvPartitionedWriter<>(descriptor, directory, "age");
+  }
+
+  private String read(String fileName) throws IOException
+  {
+    return new String(Files.readAllBytes(directory.resolve(fileName)), StandardCharsets.UTF_8);
+  }
+}
@@ -7,10 +7,14 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -798,6 +802,418 @@ public class CsvReaderTest
     reader.close();
   }
 
+  @Test
+  public void intern() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+    descriptor.intern("address");
+
+    String CSV = "John Doe, Romania\r\nJane Doe,Romania \r\nBaby Doe,\"Romania\"\r\n";
+    CsvReader<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+    List<Person> persons = new ArrayList<>();
+    for(Person person : reader) {
+      persons.add(person);
+    }
+    reader.close();
+
+    assertThat(persons, hasSize(3));
+    assertThat(persons.get(0).address, equalTo("Romania"));
+    assertThat(persons.get(1).address, sameInstance(persons.get(0).address));
+    assertThat(persons.get(2).address, sameInstance(persons.get(0).address));
+    assertThat(persons.get(1).name, not(sameInstance(persons.get(0).name)));
+  }
+
+  @Test
+  public void nullDetection() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    String CSV = "John Doe,NULL\r\nnull, \"Null\" \r\nNULLS,\r\n";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+
+    assertTrue(reader.hasNext());
+    assertThat(reader.values().get(1), sameInstance(descriptor.format().nullValue()));
+    Person person = reader.next();
+    assertThat(person.name, equalTo("John Doe"));
+    assertThat(person.address, nullValue());
+
+    assertTrue(reader.hasNext());
+    person = reader.next();
+    assertThat(person.name, nullValue());
+    assertThat(person.address, nullValue());
+
+    assertTrue(reader.hasNext());
+    person = reader.next();
+    assertThat(person.name, equalTo("NULLS"));
+    assertThat(person.address, equalTo(""));
+
+    assertFalse(reader.hasNext());
+    reader.close();
+  }
+
+  @Test
+  public void nullDetection_Empty() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.format().nullValue("");
+    descriptor.format().strict(true);
+    descriptor.columns("name", "address", "wage");
+
+    CsvReaderImpl<Employee> reader = new CsvReaderImpl<>(descriptor, new StringReader("John Doe,,\r\n"));
+    Employee employee = reader.next();
+    reader.close();
+
+    assertThat(employee.name, equalTo("John Doe"));
+    assertThat(employee.address, nullValue());
+    assertThat(employee.wage, equalTo(0.0));
+  }
+
+  @Test
+  public void nullDetection_Header() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    descriptor.format().nullValue("ADDRESS");
+
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader("name,address\r\nJohn Doe,address\r\n"));
+    assertTrue(reader.hasNext());
+    assertThat(reader.header().get(1), equalTo("address"));
+    Person person = reader.next();
+    assertThat(person.name, equalTo("John Doe"));
+    assertThat(person.address, nullValue());
+    reader.close();
+  }
+
+  @Test
+  public void nextBatch() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    String CSV = "John Doe,Romania\r\nBaby Doe,United Kingdom\r\nJane Doe,France\r\n";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+
+    List<Person> batch = reader.nextBatch(2);
+    assertThat(batch, hasSize(2));
+    assertThat(batch.get(0).name, equalTo("John Doe"));
+    assertThat(batch.get(1).name, equalTo("Baby Doe"));
+
+    batch = reader.nextBatch(2);
+    assertThat(batch, hasSize(1));
+    assertThat(batch.get(0).name, equalTo("Jane Doe"));
+
+    assertThat(reader.nextBatch(2), empty());
+    reader.close();
+  }
+
+  @Test
+  public void nextBatch_AfterHasNext() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader("John Doe,Romania\r\nBaby Doe,United Kingdom\r\n"));
+    assertTrue(reader.hasNext());
+
+    List<Person> batch = reader.nextBatch(10);
+    assertThat(batch, hasSize(2));
+    assertThat(batch.get(0).name, equalTo("John Doe"));
+    assertThat(batch.get(1).name, equalTo("Baby Doe"));
+    reader.close();
+  }
+
+  @Test
+  public void forEachBatch() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+
+    StringBuilder CSV = new StringBuilder("name,address\r\n");
+    for(int i = 0; i < 10; ++i) {
+      CSV.append("Person ").append(i).append(",Address ").append(i).append("\r\n");
+    }
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV.toString()));
+
+    List<List<Person>> batches = new ArrayList<>();
+    reader.forEachBatch(4, batches::add);
+    reader.close();
+
+    assertThat(batches, hasSize(3));
+    assertThat(batches.get(0), hasSize(4));
+    assertThat(batches.get(1), hasSize(4));
+    assertThat(batches.get(2), hasSize(2));
+    assertThat(batches.get(2).get(1).name, equalTo("Person 9"));
+  }
+
+  @Test
+  public void compile() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.columns("name", "address", "wage");
+    descriptor.compile();
+
+    String CSV = "John Doe,Romania,3500\r\nBaby Doe,NULL,NULL\r\n";
+    CsvReader<Employee> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+    List<Employee> employees = new ArrayList<>();
+    for(Employee employee : reader) {
+      employees.add(employee);
+    }
+    reader.close();
+
+    assertThat(employees, hasSize(2));
+    assertThat(employees.get(0).name, equalTo("John Doe"));
+    assertThat(employees.get(0).address, equalTo("Romania"));
+    assertThat(employees.get(0).wage, equalTo(3500.0));
+    assertThat(employees.get(1).name, equalTo("Baby Doe"));
+    assertThat(employees.get(1).address, nullValue());
+    assertThat(employees.get(1).wage, equalTo(0.0));
+  }
+
+  @Test
+  public void maxFieldLength() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    // unterminated quote on second record would consume the rest of the stream into a single value
+    String CSV = "John Doe,Romania\r\n\"Baby Doe,United Kingdom\r\nJane Doe,France\r\n";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).maxFieldLength(16);
+    List<Person> persons = reader.nextBatch(10);
+    reader.close();
+
+    assertThat(persons, hasSize(2));
+    assertThat(persons.get(0).name, equalTo("John Doe"));
+    assertThat(persons.get(1).name, equalTo("Jane Doe"));
+    assertThat(persons.get(1).address, equalTo("France"));
+    assertThat(reader.skippedRecords(), equalTo(1L));
+  }
+
+  @Test
+  public void maxColumns() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    String CSV = "John Doe,Romania\r\na,b,c,d,e,f\r\nJane Doe,France\r\n";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).maxColumns(2);
+    List<Person> persons = reader.nextBatch(10);
+    reader.close();
+
+    assertThat(persons, hasSize(2));
+    assertThat(persons.get(1).name, equalTo("Jane Doe"));
+    assertThat(reader.skippedRecords(), equalTo(1L));
+  }
+
+  @Test
+  public void maxRecordLength() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    String CSV = "John Doe,Romania\r\nBaby Doe,United Kingdom of Great Britain\r\nJane Doe,France\r\n";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).maxRecordLength(20);
+    List<Person> persons = reader.nextBatch(10);
+    reader.close();
+
+    assertThat(persons, hasSize(2));
+    assertThat(persons.get(0).name, equalTo("John Doe"));
+    assertThat(persons.get(1).name, equalTo("Jane Doe"));
+    assertThat(reader.skippedRecords(), equalTo(1L));
+  }
+
+  @Test
+  public void maxRecordLength_LimitOnLineEnd() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    // first record has exactly 16 characters; limit falls on its LF, respectively on CR and LF
+    for(String EOL : new String[] { "\n", "\r\n" }) {
+      String CSV = "John Doe,Romania" + EOL + "Baby Doe,United Kingdom" + EOL + "Jane Doe,France" + EOL;
+      CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).maxRecordLength(16);
+      List<Person> persons = reader.nextBatch(10);
+      reader.close();
+
+      assertThat(persons, hasSize(2));
+      assertThat(persons.get(0).name, equalTo("John Doe"));
+      assertThat(persons.get(1).name, equalTo("Jane Doe"));
+      assertThat(reader.skippedRecords(), equalTo(1L));
+    }
+  }
+
+  @Test(expected = CsvException.class)
+  public void maxFieldLength_Strict() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().strict(true);
+    descriptor.columns("name", "address");
+
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader("John Doe,Romania\r\n")).maxFieldLength(4);
+    reader.hasNext();
+    reader.close();
+  }
+
+  @Test
+  public void rejectHandler() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.columns("name", "address", "wage");
+
+    String CSV = "John Doe,Romania,3500\r\nBaby Doe,\"United\r\nKingdom\",NAN\r\nJane Doe,France\r\n";
+    List<CsvReject> rejects = new ArrayList<>();
+    CsvReaderImpl<Employee> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).rejectHandler(rejects::add);
+    List<Employee> employees = reader.nextBatch(10);
+    reader.close();
+
+    // rejected records are still returned, with rejected fields left to default
+    assertThat(employees, hasSize(3));
+    assertThat(employees.get(1).wage, equalTo(0.0));
+
+    assertThat(rejects, hasSize(2));
+    assertThat(rejects.get(0).line(), equalTo(2L));
+    assertThat(rejects.get(0).offset(), equalTo(23L));
+    assertThat(rejects.get(0).column(), equalTo(2));
+    assertThat(rejects.get(0).record(), equalTo("Baby Doe,\"United\r\nKingdom\",NAN"));
+    assertThat(rejects.get(0).cause(), notNullValue());
+    assertThat(rejects.get(1).line(), equalTo(4L));
+    assertThat(rejects.get(1).offset(), equalTo(55L));
+    assertThat(rejects.get(1).column(), equalTo(-1));
+    assertThat(rejects.get(1).record(), equalTo("Jane Doe,France"));
+  }
+
+  @Test
+  public void rejectHandler_SkippedRecord() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.columns("name", "address");
+
+    String CSV = "John Doe,Romania\r\na,b,c\r\n";
+    List<CsvReject> rejects = new ArrayList<>();
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV)).maxColumns(2).rejectHandler(rejects::add);
+    assertThat(reader.nextBatch(10), hasSize(1));
+    reader.close();
+
+    assertThat(rejects, hasSize(1));
+    assertThat(rejects.get(0).offset(), equalTo(18L));
+    assertThat(rejects.get(0).record(), equalTo("a,b,c"));
+  }
+
+  @Test
+  public void recordPosition() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+
+    String CSV = "name,address\r\n# comment\r\n\r\nJohn Doe,\"Rom\u00e2nia\r\nEU\"\nBaby Doe,United Kingdom\rJane Doe,France";
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+
+    assertTrue(reader.hasNext());
+    reader.next();
+    // record starts after comment and empty lines
+    assertThat(reader.recordLine(), equalTo(4L));
+    assertThat(reader.recordCharOffset(), equalTo(27L));
+    assertThat(reader.recordOffset(), equalTo(27L));
+
+    assertTrue(reader.hasNext());
+    reader.next();
+    // quoted value line end is counted; a with circumflex is two bytes on UTF-8
+    assertThat(reader.recordLine(), equalTo(6L));
+    assertThat(reader.recordCharOffset(), equalTo(50L));
+    assertThat(reader.recordOffset(), equalTo(51L));
+
+    assertTrue(reader.hasNext());
+    reader.next();
+    assertThat(reader.recordLine(), equalTo(7L));
+    assertThat(reader.recordCharOffset(), equalTo(74L));
+    reader.close();
+  }
+
+  @Test
+  public void recordPosition_ExceptionMessage() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.format().strict(true);
+    descriptor.columns("name", "address", "wage");
+
+    CsvReaderImpl<Employee> reader = new CsvReaderImpl<>(descriptor, new StringReader("John Doe,Romania,3500\r\nBaby Doe,Romania,NAN\r\n"));
+    reader.next();
+    try {
+      reader.next();
+      throw new AssertionError("Missing CSV exception.");
+    }
+    catch(CsvException e) {
+      assertTrue(e.getMessage().endsWith("Record at line |2|, byte offset |23|."));
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void byteOrderMark() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+
+    byte[] CSV = "\ufeffname,address\r\nJohn Doe,Rom\u00e2nia\r\nBaby Doe,UK\r\n".getBytes(StandardCharsets.UTF_8);
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new ByteArrayInputStream(CSV));
+
+    assertTrue(reader.hasNext());
+    assertThat(reader.header().get(0), equalTo("name"));
+    // byte offsets include byte order mark
+    assertThat(reader.recordOffset(), equalTo(17L));
+    assertThat(reader.recordCharOffset(), equalTo(14L));
+    assertThat(reader.next().address, equalTo("Rom\u00e2nia"));
+    assertTrue(reader.hasNext());
+    assertThat(reader.recordOffset(), equalTo(36L));
+    reader.close();
+  }
+
+  @Test
+  public void byteOrderMark_UTF16() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+
+    byte[] CSV = "\ufeffname,address\r\nJohn Doe,Romania\r\n".getBytes(StandardCharsets.UTF_16LE);
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new ByteArrayInputStream(CSV));
+
+    assertTrue(reader.hasNext());
+    assertThat(reader.recordOffset(), equalTo(30L));
+    Person person = reader.next();
+    assertThat(person.name, equalTo("John Doe"));
+    assertThat(person.address, equalTo("Romania"));
+    reader.close();
+  }
+
+  @Test
+  public void byteOrderMark_Reader() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new StringReader("\ufeffname,address\r\nJohn Doe,Romania\r\n"));
+    assertTrue(reader.hasNext());
+    assertThat(reader.header().get(0), equalTo("name"));
+    assertThat(reader.next().name, equalTo("John Doe"));
+    reader.close();
+  }
+
+  @Test
+  public void sampleCharset() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().charset("ISO-8859-2");
+    descriptor.columns("name", "address");
+
+    byte[] CSV = "John Doe,Rom\u00e2nia\r\n".getBytes(StandardCharsets.UTF_8);
+    CsvReaderImpl<Person> reader = new CsvReaderImpl<>(descriptor, new ByteArrayInputStream(CSV), true);
+    assertThat(reader.next().address, equalTo("Rom\u00e2nia"));
+    reader.close();
+  }
+
   @Test(expected = NoSuchElementException.class)
   public void nullNext() throws IOException
   {
@@ -0,0 +1,78 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.Employee;
+
+public class CsvRejectFileTest
+{
+  private Path file;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    file = Files.createTempFile("rejects", ".csv");
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    Files.delete(file);
+  }
+
+  @Test
+  public void reject() throws IOException
+  {
+    CsvRejectFile rejects = new CsvRejectFile(file);
+    rejects.reject(new CsvReject(1, 0, 2, "John Doe,Romania,NAN", "Bad wage", null));
+    rejects.reject(new CsvReject(2, 22, -1, "Jane \"Doe\",France", "Bad values count", null));
+    rejects.close();
+
+    assertThat(rejects.rejectsCount(), equalTo(2));
+    String expected = "\"LINE\",\"OFFSET\",\"COLUMN\",\"MESSAGE\",\"RECORD\"\r\n" + //
+        "\"1\",\"0\",\"2\",\"Bad wage\",\"John Doe,Romania,NAN\"\r\n" + //
+        "\"2\",\"22\",\"-1\",\"Bad values count\",\"Jane \"\"Doe\"\",France\"\r\n";
+    assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), equalTo(expected));
+  }
+
+  @Test
+  public void reader() throws IOException
+  {
+    CsvDescriptorImpl<Employee> descriptor = new CsvDescriptorImpl<>(Employee.class);
+    descriptor.columns("name", "address", "wage");
+
+    StringBuilder CSV = new StringBuilder();
+    for(int i = 0; i < 10000; ++i) {
+      CSV.append("Person ").append(i).append(",Address,").append(i % 2 == 0 ? "NAN" : "1000").append("\r\n");
+    }
+
+    try (CsvRejectFile rejects = new CsvRejectFile(file)) {
+      CsvReaderImpl<Employee> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV.toString())).rejectHandler(rejects);
+      reader.forEachBatch(1000, batch -> {});
+      reader.close();
+    }
+
+    // header and one line per rejected record
+    assertThat(Files.readAllLines(file).size(), equalTo(5001));
+  }
+
+  @Test(expected = CsvException.class)
+  public void reject_Closed() throws IOException
+  {
+    CsvRejectFile rejects = new CsvRejectFile(file);
+    rejects.close();
+    rejects.reject(new CsvReject(1, 0, -1, "", "", null));
+  }
+}
@@ -0,0 +1,140 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.csv.fixture.Person;
+
+public class CsvRollingWriterTest
+{
+  private CsvDescriptorImpl<Person> descriptor;
+  private Path directory;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    descriptor.column("name");
+    descriptor.column("address");
+    directory = Files.createTempDirectory("parts");
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    try (Stream<Path> files = Files.list(directory)) {
+      for(Path file : (Iterable<Path>)files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void write_MaxRecords() throws IOException
+  {
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export.csv")).maxRecords(2);
+    try {
+      for(int i = 0; i < 5; ++i) {
+        writer.write(new Person("p" + i, "A"));
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    assertThat(writer.files(), contains(directory.resolve("export-00000.csv"), directory.resolve("export-00001.csv"), directory.resolve("export-00002.csv")));
+    assertThat(read("export-00000.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p0\",\"A\"\r\n\"p1\",\"A\"\r\n"));
+    assertThat(read("export-00001.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"A\"\r\n\"p3\",\"A\"\r\n"));
+    assertThat(read("export-00002.csv"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p4\",\"A\"\r\n"));
+  }
+
+  @Test
+  public void write_MaxRecordsMultiple() throws IOException
+  {
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export.csv")).maxRecords(2);
+    try {
+      for(int i = 0; i < 4; ++i) {
+        writer.write(new Person("p" + i, "A"));
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    // no empty part is created after last rotation
+    assertThat(writer.files(), contains(directory.resolve("export-00000.csv"), directory.resolve("export-00001.csv")));
+  }
+
+  @Test
+  public void write_MaxBytes() throws IOException
+  {
+    // header is 18 bytes and every record 10 bytes; part is rotated when it reaches the limit
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export")).maxBytes(38);
+    try {
+      for(int i = 0; i < 3; ++i) {
+        writer.write(new Person("p" + i, "A"));
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    assertThat(writer.files(), contains(directory.resolve("export-00000"), directory.resolve("export-00001")));
+    assertThat(read("export-00000"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p0\",\"A\"\r\n\"p1\",\"A\"\r\n"));
+    assertThat(read("export-00001"), equalTo("\"NAME\",\"ADDRESS\"\r\n\"p2\",\"A\"\r\n"));
+  }
+
+  @Test
+  public void write_ManyParts() throws IOException
+  {
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export.csv")).maxRecords(10);
+    try {
+      for(int i = 0; i < 1000; ++i) {
+        writer.write(new Person("p" + i, "A"));
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    assertThat(writer.files().size(), equalTo(100));
+    for(Path file : writer.files()) {
+      assertThat(Files.readAllLines(file).size(), equalTo(11));
+    }
+  }
+
+  @Test
+  public void close_Empty() throws IOException
+  {
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export.csv")).maxRecords(2);
+    writer.close();
+    assertThat(writer.files(), empty());
+  }
+
+  @Test(expected = IOException.class)
+  public void write_Closed() throws IOException
+  {
+    CsvRollingWriter<Person> writer = new CsvRollingWriter<>(descriptor, directory.resolve("export.csv"));
+    writer.close();
+    writer.write(new Person("p0", "A"));
+  }
+
+  private String read(String fileName) throws IOException
+  {
+    return new String(Files.readAllBytes(directory.resolve(fileName)), StandardCharsets.UTF_8);
+  }
+}
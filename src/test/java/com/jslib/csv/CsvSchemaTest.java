@@ -0,0 +1,154 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.csv.fixture.Measurement;
+
+public class CsvSchemaTest
+{
+  private static final String CSV = "" + //
+      "ID,COUNTER,TIMESTAMP,VALUE,VALID,SENSOR-NAME\r\n" + //
+      "1,10,2023-04-28,12.5,true,north\r\n" + //
+      "2,10000000000,2023-04-28T14:30:00Z,NULL,false,south\r\n" + //
+      "3,-7,2023-04-28T14:30:00.125+02:00,13,TRUE,12\r\n";
+
+  private CsvFormatImpl format;
+
+  @Before
+  public void beforeTest()
+  {
+    format = new CsvFormatImpl();
+    format.header(true);
+  }
+
+  @Test
+  public void infer() throws IOException
+  {
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 100);
+    List<CsvSchema.Column> columns = schema.columns();
+
+    assertThat(columns, hasSize(6));
+    assertColumn(columns.get(0), "id", CsvSchema.Type.INT, false);
+    assertColumn(columns.get(1), "counter", CsvSchema.Type.LONG, false);
+    assertColumn(columns.get(2), "timestamp", CsvSchema.Type.DATE, false);
+    assertColumn(columns.get(3), "value", CsvSchema.Type.DOUBLE, true);
+    assertColumn(columns.get(4), "valid", CsvSchema.Type.BOOLEAN, false);
+    assertColumn(columns.get(5), "sensorName", CsvSchema.Type.STRING, false);
+
+    assertThat(columns.get(0).javaType(), equalTo((Object)int.class));
+    assertThat(columns.get(3).javaType(), equalTo((Object)Double.class));
+  }
+
+  @Test
+  public void infer_SampleSize() throws IOException
+  {
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 1);
+    List<CsvSchema.Column> columns = schema.columns();
+    assertColumn(columns.get(1), "counter", CsvSchema.Type.INT, false);
+    assertColumn(columns.get(3), "value", CsvSchema.Type.DOUBLE, false);
+  }
+
+  @Test
+  public void infer_Reservoir() throws IOException
+  {
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 100, true);
+    assertThat(schema.columns(), hasSize(6));
+    assertColumn(schema.columns().get(1), "counter", CsvSchema.Type.LONG, false);
+  }
+
+  @Test
+  public void infer_NoHeader() throws IOException
+  {
+    format.header(false);
+    CsvSchema schema = CsvSchema.infer(format, new StringReader("1,John Doe\r\n2,Jane Doe\r\n"), 100);
+    assertColumn(schema.columns().get(0), "column1", CsvSchema.Type.INT, false);
+    assertColumn(schema.columns().get(1), "column2", CsvSchema.Type.STRING, false);
+  }
+
+  @Test
+  public void typeOf()
+  {
+    assertThat(CsvSchema.Type.of("0"), equalTo(CsvSchema.Type.INT));
+    assertThat(CsvSchema.Type.of("-12"), equalTo(CsvSchema.Type.INT));
+    assertThat(CsvSchema.Type.of("12345678901"), equalTo(CsvSchema.Type.LONG));
+    assertThat(CsvSchema.Type.of("1.5"), equalTo(CsvSchema.Type.DOUBLE));
+    // leading zero codes and integers overflowing long would be altered by numeric types
+    assertThat(CsvSchema.Type.of("007"), equalTo(CsvSchema.Type.STRING));
+    assertThat(CsvSchema.Type.of("-01"), equalTo(CsvSchema.Type.STRING));
+    assertThat(CsvSchema.Type.of("12345678901234567890"), equalTo(CsvSchema.Type.STRING));
+  }
+
+  @Test
+  public void descriptor() throws IOException
+  {
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 100);
+    CsvDescriptorImpl<Measurement> descriptor = schema.descriptor(Measurement.class);
+
+    CsvReader<Measurement> reader = new CsvReaderImpl<>(descriptor, new StringReader(CSV));
+    Measurement measurement = reader.next();
+    assertThat(measurement.id, equalTo(1));
+    assertThat(measurement.counter, equalTo(10L));
+    assertThat(measurement.timestamp.getTime(), equalTo(1682640000000L));
+    assertThat(measurement.value, equalTo(12.5));
+    assertTrue(measurement.valid);
+    assertThat(measurement.sensorName, equalTo("north"));
+
+    measurement = reader.next();
+    assertThat(measurement.value, nullValue());
+    assertFalse(measurement.valid);
+    reader.close();
+  }
+
+  @Test
+  public void config() throws IOException
+  {
+    format.delimiter(';');
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV.replace(',', ';')), 100);
+    String config = schema.config(Measurement.class.getName());
+
+    assertThat(config, containsString("<config class=\"com.jslib.csv.fixture.Measurement\" delimiter=\"SEMICOLON\" header=\"true\">"));
+    assertThat(config, containsString("<column field=\"id\" />"));
+    assertThat(config, containsString("<column field=\"timestamp\" format=\"com.jslib.csv.IsoDateFormat\" />"));
+  }
+
+  @Test
+  public void config_NullValueDisabled() throws IOException
+  {
+    format.nullValue(null);
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 100);
+    String config = schema.config(Measurement.class.getName());
+
+    assertThat(config, containsString("<config class=\"com.jslib.csv.fixture.Measurement\" header=\"true\">"));
+    assertThat(config, containsString("<!-- null value is disabled"));
+  }
+
+  @Test(expected = CsvException.class)
+  public void config_QuoteDisabled() throws IOException
+  {
+    format.quote('\0', '\0');
+    CsvSchema schema = CsvSchema.infer(format, new StringReader(CSV), 100);
+    schema.config(Measurement.class.getName());
+  }
+
+  private static void assertColumn(CsvSchema.Column column, String fieldName, CsvSchema.Type type, boolean nullable)
+  {
+    assertThat(column.fieldName(), equalTo(fieldName));
+    assertThat(column.type(), equalTo(type));
+    assertThat(column.nullable(), equalTo(nullable));
+  }
+}
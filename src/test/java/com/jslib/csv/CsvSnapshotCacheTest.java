@@ -0,0 +1,153 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvReader;
+import com.jslib.csv.fixture.Measurement;
+import com.jslib.csv.fixture.Person;
+
+public class CsvSnapshotCacheTest
+{
+  private static final String CSV = "" + //
+      "ID,COUNTER,TIMESTAMP,VALUE,VALID,SENSOR-NAME\r\n" + //
+      "1,10,2023-04-28,12.5,true,north\r\n" + //
+      "2,10000000000,2023-04-28T14:30:00Z,NULL,false,south\r\n" + //
+      "3,-7,2023-04-28T14:30:00.125+02:00,13,true,east\r\n";
+
+  private Path directory;
+  private Path file;
+  private CsvSnapshotCache cache;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    directory = Files.createTempDirectory("csv");
+    file = directory.resolve("measurements.csv");
+    Files.write(file, CSV.getBytes(StandardCharsets.UTF_8));
+    cache = new CsvSnapshotCache(directory.resolve("cache"));
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    for(Path file : CsvMultiReader.files(directory.resolve("cache"), "*")) {
+      Files.delete(file);
+    }
+    Files.delete(directory.resolve("cache"));
+    Files.delete(file);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void getReader() throws IOException
+  {
+    List<Measurement> measurements = read();
+    assertThat(measurements, hasSize(3));
+    assertThat(CsvMultiReader.files(directory.resolve("cache"), "*.snapshot"), hasSize(1));
+
+    Measurement measurement = measurements.get(0);
+    assertThat(measurement.id, equalTo(1));
+    assertThat(measurement.counter, equalTo(10L));
+    assertThat(measurement.timestamp.getTime(), equalTo(1682640000000L));
+    assertThat(measurement.value, equalTo(12.5));
+    assertTrue(measurement.valid);
+    assertThat(measurement.sensorName, equalTo("north"));
+
+    measurement = measurements.get(1);
+    assertThat(measurement.counter, equalTo(10000000000L));
+    assertThat(measurement.value, nullValue());
+    assertFalse(measurement.valid);
+  }
+
+  @Test
+  public void getReader_FromSnapshot() throws IOException
+  {
+    read();
+
+    // change content but keep size and modification time; reader should still use snapshot
+    FileTime lastModified = Files.getLastModifiedTime(file);
+    Files.write(file, CSV.replace("north", "NORTH").getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, lastModified);
+
+    assertThat(read().get(0).sensorName, equalTo("north"));
+  }
+
+  @Test
+  public void getReader_Invalidate() throws IOException
+  {
+    read();
+    Files.write(file, CSV.replace("north", "north-west").getBytes(StandardCharsets.UTF_8));
+
+    assertThat(read().get(0).sensorName, equalTo("north-west"));
+    assertThat(CsvMultiReader.files(directory.resolve("cache"), "*.snapshot"), hasSize(1));
+  }
+
+  /** Truncated snapshot header is detected and snapshot is recreated. */
+  @Test
+  public void getReader_TruncatedSnapshot() throws IOException
+  {
+    read();
+    Path snapshot = CsvMultiReader.files(directory.resolve("cache"), "*.snapshot").get(0);
+    byte[] bytes = Files.readAllBytes(snapshot);
+    Files.write(snapshot, Arrays.copyOf(bytes, 40));
+
+    assertThat(read().get(0).sensorName, equalTo("north"));
+    assertThat(Files.size(snapshot), equalTo((long)bytes.length));
+  }
+
+  @Test
+  public void getReader_HeaderColumns() throws IOException
+  {
+    Path persons = directory.resolve("persons.csv");
+    Files.write(persons, "name,address\r\nJohn Doe,Jupiter\r\n".getBytes(StandardCharsets.UTF_8));
+    try {
+      for(int i = 0; i < 2; ++i) {
+        // descriptor columns are loaded from CSV header on first read and from snapshot on second read
+        CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+        descriptor.format().header(true);
+        try (CsvReader<Person> reader = cache.getReader(descriptor, persons)) {
+          Person person = reader.next();
+          assertThat(person.name, equalTo("John Doe"));
+          assertThat(person.address, equalTo("Jupiter"));
+          assertFalse(reader.hasNext());
+        }
+      }
+    }
+    finally {
+      Files.delete(persons);
+    }
+  }
+
+  private List<Measurement> read() throws IOException
+  {
+    CsvDescriptorImpl<Measurement> descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+    descriptor.column("id").column("counter").column("timestamp", new IsoDateFormat()).column("value").column("valid").column("sensorName");
+
+    List<Measurement> measurements = new ArrayList<>();
+    try (CsvReader<Measurement> reader = cache.getReader(descriptor, file)) {
+      for(Measurement measurement : reader) {
+        measurements.add(measurement);
+      }
+    }
+    return measurements;
+  }
+}
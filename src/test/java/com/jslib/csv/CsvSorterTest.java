@@ -0,0 +1,145 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.api.csv.CsvReader;
+import com.jslib.csv.fixture.Measurement;
+
+public class CsvSorterTest
+{
+  private static final int RECORDS_COUNT = 2000;
+
+  private Path directory;
+  private Path input;
+  private Path output;
+  private CsvDescriptor<Measurement> descriptor;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    directory = Files.createTempDirectory("csv");
+    input = directory.resolve("input.csv");
+    output = directory.resolve("output.csv");
+
+    Random random = new Random(1964);
+    StringBuilder builder = new StringBuilder("ID,SENSOR-NAME\r\n");
+    for(int i = 0; i < RECORDS_COUNT; ++i) {
+      // sensor name keeps input order, to check sort stability; multi-line value checks quoted values handling
+      builder.append(String.format("\"%d\",\"sensor %04d\r\nline\"\r\n", random.nextInt(100), i));
+    }
+    Files.write(input, builder.toString().getBytes(StandardCharsets.UTF_8));
+
+    descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    for(Path file : CsvMultiReader.files(directory, "*")) {
+      Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void sort() throws IOException
+  {
+    new CsvSorter<>(descriptor, "id").sort(input, output);
+    assertSorted(read(output), false);
+    assertThat(CsvMultiReader.files(directory, "*.run"), hasSize(0));
+  }
+
+  @Test
+  public void sort_Spill() throws IOException
+  {
+    // small memory limit leads to more runs than merge factor
+    new CsvSorter<>(descriptor, "id").memoryLimit(2048).tempDirectory(directory).sort(input, output);
+    assertSorted(read(output), false);
+    assertThat(CsvMultiReader.files(directory, "*.run"), hasSize(0));
+  }
+
+  @Test
+  public void sort_Parallel() throws IOException
+  {
+    new CsvSorter<>(descriptor, "id").memoryLimit(16 * 1024).parallelism(4).tempDirectory(directory).sort(input, output);
+    assertSorted(read(output), false);
+    assertThat(CsvMultiReader.files(directory, "*.run"), hasSize(0));
+  }
+
+  @Test
+  public void sort_Descending() throws IOException
+  {
+    new CsvSorter<>(descriptor, "id").memoryLimit(16 * 1024).descending(true).tempDirectory(directory).sort(input, output);
+    assertSorted(read(output), true);
+  }
+
+  @Test
+  public void sort_Header() throws IOException
+  {
+    new CsvSorter<>(descriptor, "id").sort(input, output);
+    String content = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+    assertThat(content, startsWith("ID,SENSOR-NAME\r\n"));
+  }
+
+  /** Records are copied as found on input, with original quoting and null value spelling. */
+  @Test
+  public void sort_RawRecords() throws IOException
+  {
+    Files.write(input, "ID,SENSOR-NAME\n3,null\n1,\"north\"\n2,\"a \"\"b\"\"\"\n".getBytes(StandardCharsets.UTF_8));
+    new CsvSorter<>(descriptor, "id").sort(input, output);
+    String content = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+    assertThat(content, equalTo("ID,SENSOR-NAME\r\n1,\"north\"\r\n2,\"a \"\"b\"\"\"\r\n3,null\r\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sort_NoFields() throws IOException
+  {
+    new CsvSorter<>(descriptor);
+  }
+
+  private List<Measurement> read(Path file) throws IOException
+  {
+    CsvDescriptor<Measurement> descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+    List<Measurement> measurements = new ArrayList<>();
+    try (CsvReader<Measurement> reader = new CsvReaderImpl<>(descriptor, Files.newInputStream(file))) {
+      for(Measurement measurement : reader) {
+        measurements.add(measurement);
+      }
+    }
+    return measurements;
+  }
+
+  private static void assertSorted(List<Measurement> measurements, boolean descending)
+  {
+    assertThat(measurements, hasSize(RECORDS_COUNT));
+    for(int i = 1; i < measurements.size(); ++i) {
+      Measurement previous = measurements.get(i - 1);
+      Measurement current = measurements.get(i);
+      int result = Integer.compare(previous.id, current.id);
+      assertThat(descending ? result >= 0 : result <= 0, equalTo(true));
+      if(result == 0) {
+        assertThat(previous.sensorName.compareTo(current.sensorName) < 0, equalTo(true));
+      }
+    }
+    assertThat(measurements.get(0).sensorName, startsWith("sensor "));
+    assertThat(measurements.get(0).sensorName.endsWith("\r\nline"), equalTo(true));
+  }
+}
@@ -0,0 +1,113 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvException;
+import com.jslib.csv.fixture.Measurement;
+
+public class CsvTableTest
+{
+  private static final String CSV = "" + //
+      "ID,COUNTER,TIMESTAMP,VALUE,VALID,SENSOR-NAME\r\n" + //
+      "1,10,2023-04-28,12.5,true,north\r\n" + //
+      "2,10000000000,2023-04-28T14:30:00Z,NULL,false,south\r\n" + //
+      "3,-7,2023-04-28T14:30:00.125+02:00,13,true,north\r\n";
+
+  private CsvDescriptorImpl<Measurement> descriptor;
+
+  @Before
+  public void beforeTest()
+  {
+    descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+    descriptor.column("id").column("counter").column("timestamp", new IsoDateFormat()).column("value").column("valid").column("sensorName");
+  }
+
+  @Test
+  public void get() throws IOException
+  {
+    CsvTable<Measurement> table = CsvTable.load(descriptor, new StringReader(CSV));
+    assertThat(table.size(), equalTo(3));
+
+    Measurement measurement = table.get(0);
+    assertThat(measurement.id, equalTo(1));
+    assertThat(measurement.counter, equalTo(10L));
+    assertThat(measurement.timestamp.getTime(), equalTo(1682640000000L));
+    assertThat(measurement.value, equalTo(12.5));
+    assertTrue(measurement.valid);
+    assertThat(measurement.sensorName, equalTo("north"));
+
+    measurement = table.get(1);
+    assertThat(measurement.counter, equalTo(10000000000L));
+    assertThat(measurement.value, nullValue());
+    assertFalse(measurement.valid);
+  }
+
+  @Test
+  public void columns() throws IOException
+  {
+    CsvTable<Measurement> table = CsvTable.load(descriptor, new StringReader(CSV));
+    int id = table.columnIndex("id");
+    int value = table.columnIndex("value");
+    int sensorName = table.columnIndex("sensorName");
+
+    long sum = 0;
+    for(int row = 0; row < table.size(); ++row) {
+      sum += table.getInt(id, row);
+    }
+    assertThat(sum, equalTo(6L));
+
+    assertTrue(table.isNull(value, 1));
+    assertThat(table.getDouble(value, 2), equalTo(13.0));
+    assertThat(table.getString(sensorName, 2), equalTo("north"));
+    assertThat(table.dictionarySize(sensorName), equalTo(2));
+    assertThat(table.getCode(sensorName, 0), equalTo(table.getCode(sensorName, 2)));
+    assertThat(table.memory(), greaterThan(0L));
+  }
+
+  @Test
+  public void iterator() throws IOException
+  {
+    StringBuilder csv = new StringBuilder("ID,SENSOR-NAME\r\n");
+    for(int i = 0; i < 100000; ++i) {
+      csv.append(i).append(",sensor ").append(i % 1000).append("\r\n");
+    }
+    CsvDescriptorImpl<Measurement> descriptor = new CsvDescriptorImpl<>(Measurement.class);
+    descriptor.format().header(true);
+
+    CsvTable<Measurement> table = CsvTable.load(descriptor, new StringReader(csv.toString()));
+    int index = 0;
+    for(Measurement measurement : table) {
+      assertThat(measurement.id, equalTo(index));
+      assertThat(measurement.sensorName, equalTo("sensor " + (index % 1000)));
+      ++index;
+    }
+    assertThat(index, equalTo(100000));
+  }
+
+  @Test(expected = CsvException.class)
+  public void getInt_BadType() throws IOException
+  {
+    CsvTable<Measurement> table = CsvTable.load(descriptor, new StringReader(CSV));
+    table.getInt(table.columnIndex("sensorName"), 0);
+  }
+
+  /** Row past table size is inside the last storage chunk but should be rejected. */
+  @Test(expected = IllegalArgumentException.class)
+  public void getInt_RowOutOfRange() throws IOException
+  {
+    CsvTable<Measurement> table = CsvTable.load(descriptor, new StringReader(CSV));
+    table.getInt(table.columnIndex("id"), table.size());
+  }
+}
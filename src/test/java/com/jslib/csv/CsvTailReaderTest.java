@@ -0,0 +1,178 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jslib.api.csv.CsvDescriptor;
+import com.jslib.csv.fixture.Person;
+
+public class CsvTailReaderTest
+{
+  private Path file;
+  private CsvDescriptor<Person> descriptor;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    file = Files.createTempFile("tail", ".csv");
+    descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+  }
+
+  @After
+  public void afterTest() throws IOException
+  {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".checkpoint"));
+  }
+
+  @Test
+  public void follow() throws IOException, InterruptedException
+  {
+    append("name,address\r\nJohn Doe,Romania\r\nJane");
+
+    CsvTailReader<Person> reader = new CsvTailReader<>(descriptor, file).pollInterval(10);
+    assertTrue(reader.hasNext());
+    assertThat(reader.next().name, equalTo("John Doe"));
+
+    Thread writer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        append(" Doe,France\r\n");
+      }
+      catch(Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    writer.start();
+
+    // partially written record is not returned; wait for it to be completed by writer thread
+    assertTrue(reader.hasNext());
+    Person person = reader.next();
+    assertThat(person.name, equalTo("Jane Doe"));
+    assertThat(person.address, equalTo("France"));
+    writer.join();
+
+    reader.close();
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void follow_CarriageReturnAtRegionEnd() throws IOException, InterruptedException
+  {
+    descriptor.format().emptyLines(true);
+    append("name,address\r\nJohn Doe,Romania\r");
+
+    Thread writer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        append("\nJane Doe,France\r\n");
+      }
+      catch(Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    writer.start();
+
+    // record ended by CR at end of file is not returned until line feed is written, so no empty record is reported
+    CsvTailReader<Person> reader = new CsvTailReader<>(descriptor, file).pollInterval(10);
+    assertThat(reader.next().name, equalTo("John Doe"));
+    assertThat(reader.next().name, equalTo("Jane Doe"));
+    writer.join();
+
+    assertThat(reader.checkpoint().offset(), equalTo(Files.size(file)));
+    reader.close();
+  }
+
+  @Test
+  public void checkpoint() throws IOException
+  {
+    append("name,address\r\nJohn Doe,Romania\r\n");
+
+    CsvTailReader<Person> reader = new CsvTailReader<>(descriptor, file).pollInterval(10);
+    reader.next();
+    CsvCheckpoint checkpoint = reader.checkpoint();
+    reader.close();
+
+    assertThat(checkpoint.offset(), equalTo(Files.size(file)));
+    assertThat(checkpoint.header(), contains("name", "address"));
+
+    Path checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+    checkpoint.save(checkpointFile);
+    append("Baby Doe,United Kingdom\r\n");
+
+    CsvDescriptor<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    reader = new CsvTailReader<>(descriptor, file, CsvCheckpoint.load(checkpointFile)).pollInterval(10);
+    Person person = reader.next();
+    reader.close();
+
+    assertThat(person.name, equalTo("Baby Doe"));
+    assertThat(person.address, equalTo("United Kingdom"));
+  }
+
+  @Test
+  public void checkpoint_ByteOrderMark() throws IOException
+  {
+    Files.write(file, new byte[] { (byte)0xFE, (byte)0xFF });
+    Files.write(file, "name,address\r\nJohn Doe,Romania\r\n".getBytes(StandardCharsets.UTF_16BE), StandardOpenOption.APPEND);
+
+    CsvTailReader<Person> reader = new CsvTailReader<>(descriptor, file).pollInterval(10);
+    assertThat(reader.next().name, equalTo("John Doe"));
+    CsvCheckpoint checkpoint = reader.checkpoint();
+    reader.close();
+    assertThat(checkpoint.charset(), equalTo(StandardCharsets.UTF_16BE));
+
+    Path checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+    checkpoint.save(checkpointFile);
+    Files.write(file, "Baby Doe,United Kingdom\r\n".getBytes(StandardCharsets.UTF_16BE), StandardOpenOption.APPEND);
+
+    CsvDescriptor<Person> descriptor = new CsvDescriptorImpl<>(Person.class);
+    descriptor.format().header(true);
+    reader = new CsvTailReader<>(descriptor, file, CsvCheckpoint.load(checkpointFile)).pollInterval(10);
+    Person person = reader.next();
+    reader.close();
+
+    assertThat(person.name, equalTo("Baby Doe"));
+    assertThat(person.address, equalTo("United Kingdom"));
+  }
+
+  @Test
+  public void close_WaitingThread() throws IOException, InterruptedException
+  {
+    append("name,address\r\n");
+    final CsvTailReader<Person> reader = new CsvTailReader<>(descriptor, file).pollInterval(10);
+
+    Thread closer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        reader.close();
+      }
+      catch(Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    closer.start();
+
+    assertFalse(reader.hasNext());
+    closer.join();
+  }
+
+  private void append(String records) throws IOException
+  {
+    Files.write(file, records.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+}
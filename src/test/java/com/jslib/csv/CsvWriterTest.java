@@ -6,6 +6,9 @@ import static org.hamcrest.Matchers.equalTo;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -88,6 +91,60 @@ public class CsvWriterTest
     assertThat(buffer.toString(), equalTo("\"John Doe\",\"Romania, \"\"Jassy\"\"\"\r\n\"Baby\r\nDoe\",\"United States\"\r\n"));
   }
 
+  @Test
+  public void writeAll() throws IOException
+  {
+    format.header(true);
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(format, Person.class);
+    descriptor.columns("name", "address");
+
+    StringWriter buffer = new StringWriter();
+    CsvWriterImpl<Person> writer = new CsvWriterImpl<>(descriptor, buffer);
+    writer.writeAll(Arrays.asList(new Person("John Doe", "Romania"), new Person("Baby Doe", null)));
+    writer.writeAll(new Person[] { new Person("Jane \"JD\" Doe", "France") });
+    writer.close();
+
+    assertThat(buffer.toString(), equalTo("\"NAME\",\"ADDRESS\"\r\n\"John Doe\",\"Romania\"\r\n\"Baby Doe\",\"NULL\"\r\n\"Jane \"\"JD\"\" Doe\",\"France\"\r\n"));
+  }
+
+  @Test
+  public void writeAll_Chunks() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(format, Person.class);
+    descriptor.columns("name", "address");
+
+    List<Person> persons = new ArrayList<>();
+    StringBuilder expected = new StringBuilder();
+    for(int i = 0; i < 10000; ++i) {
+      persons.add(new Person("Person " + i, "Address " + i));
+      expected.append("\"Person ").append(i).append("\",\"Address ").append(i).append("\"\r\n");
+    }
+
+    StringWriter buffer = new StringWriter();
+    CsvWriterImpl<Person> writer = new CsvWriterImpl<>(descriptor, buffer);
+    writer.writeAll(persons);
+    writer.close();
+
+    assertThat(buffer.toString(), equalTo(expected.toString()));
+  }
+
+  @Test
+  public void compile() throws IOException
+  {
+    CsvDescriptorImpl<Person> descriptor = new CsvDescriptorImpl<>(format, Person.class);
+    descriptor.columns("name", "address");
+    descriptor.compile();
+
+    StringWriter buffer = new StringWriter();
+
+    CsvWriter<Person> writer = new CsvWriterImpl<>(descriptor, buffer);
+    writer.write(new Person("John Doe", "Romania"));
+    writer.write(new Person("Baby Doe", null));
+    writer.close();
+
+    assertThat(buffer.toString(), equalTo("\"John Doe\",\"Romania\"\r\n\"Baby Doe\",\"NULL\"\r\n"));
+  }
+
   @Test
   public void nullValue() throws IOException
   {
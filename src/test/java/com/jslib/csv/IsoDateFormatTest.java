@@ -0,0 +1,70 @@
+package com.jslib.csv;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class IsoDateFormatTest
+{
+  private final IsoDateFormat format = new IsoDateFormat();
+
+  @Test
+  public void epochMillis()
+  {
+    assertThat(IsoDateFormat.epochMillis("1970-01-01"), equalTo(0L));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28"), equalTo(millis(LocalDate.parse("2023-04-28").atStartOfDay().toInstant(ZoneOffset.UTC))));
+    assertThat(IsoDateFormat.epochMillis("1900-02-28"), equalTo(millis(LocalDate.parse("1900-02-28").atStartOfDay().toInstant(ZoneOffset.UTC))));
+    assertThat(IsoDateFormat.epochMillis("2000-02-29"), equalTo(millis(LocalDate.parse("2000-02-29").atStartOfDay().toInstant(ZoneOffset.UTC))));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30"), equalTo(millis(LocalDateTime.parse("2023-04-28T14:30").toInstant(ZoneOffset.UTC))));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30:15"), equalTo(millis(LocalDateTime.parse("2023-04-28T14:30:15").toInstant(ZoneOffset.UTC))));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30:15.1Z"), equalTo(millis(OffsetDateTime.parse("2023-04-28T14:30:15.1Z").toInstant())));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30:15.123456789Z"), equalTo(millis(OffsetDateTime.parse("2023-04-28T14:30:15.123456789Z").toInstant())));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30:00.125+02:00"), equalTo(millis(OffsetDateTime.parse("2023-04-28T14:30:00.125+02:00").toInstant())));
+    assertThat(IsoDateFormat.epochMillis("1969-12-31T23:59:59-05:30"), equalTo(millis(OffsetDateTime.parse("1969-12-31T23:59:59-05:30").toInstant())));
+  }
+
+  @Test
+  public void epochMillis_NotCommon()
+  {
+    assertThat(IsoDateFormat.epochMillis("2023-02-29"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("2023-13-01"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T24:00"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28 14:30"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("2023-04-28T14:30:00+0200"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("+12023-04-28"), equalTo(Long.MIN_VALUE));
+    assertThat(IsoDateFormat.epochMillis("28/04/2023"), equalTo(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void parse() throws ParseException
+  {
+    assertThat(format.parse("2023-04-28T14:30:00Z"), equalTo(Date.from(Instant.parse("2023-04-28T14:30:00Z"))));
+    assertThat(format.parse("2023-04-28T14:30:00.5+02:00"), equalTo(Date.from(Instant.parse("2023-04-28T12:30:00.500Z"))));
+  }
+
+  @Test(expected = ParseException.class)
+  public void parse_Invalid() throws ParseException
+  {
+    format.parse("2023-02-29");
+  }
+
+  @Test
+  public void format()
+  {
+    assertThat(format.format(new Date(0)), equalTo("1970-01-01T00:00:00Z"));
+  }
+
+  private static long millis(Instant instant)
+  {
+    return instant.toEpochMilli();
+  }
+}
@@ -0,0 +1,38 @@
+package com.jslib.csv.fixture;
+
+import com.jslib.csv.CsvConstructor;
+
+public class Location
+{
+  private final String city;
+  private final String country;
+  private String zip;
+
+  public Location()
+  {
+    this.city = null;
+    this.country = null;
+  }
+
+  @CsvConstructor({ "country", "city" })
+  public Location(String country, String city)
+  {
+    this.city = city;
+    this.country = country;
+  }
+
+  public String getCity()
+  {
+    return city;
+  }
+
+  public String getCountry()
+  {
+    return country;
+  }
+
+  public String getZip()
+  {
+    return zip;
+  }
+}
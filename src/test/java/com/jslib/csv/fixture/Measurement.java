@@ -0,0 +1,13 @@
+package com.jslib.csv.fixture;
+
+import java.util.Date;
+
+public class Measurement
+{
+  public int id;
+  public long counter;
+  public Date timestamp;
+  public Double value;
+  public boolean valid;
+  public String sensorName;
+}